@@ -0,0 +1,175 @@
+package com.programming.chess.rules;
+
+/**
+ * Precomputed bitboard tables shared by the position and the move generator.
+ *
+ * Squares are numbered the same way as the GUI's board array: square = row * 8 + col,
+ * so a8 is 0, h8 is 7, a1 is 56 and h1 is 63.
+ */
+public class bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_8 = 0xFFL;          // row 0
+    public static final long RANK_1 = 0xFFL << 56;    // row 7
+    public static final long RANK_3 = 0xFFL << 40;    // row 5, white double-push stop
+    public static final long RANK_6 = 0xFFL << 16;    // row 2, black double-push stop
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    // PAWN_ATTACKS[color][square]: squares a pawn of that color on that square attacks
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // Squares strictly between two aligned squares (0 if not aligned)
+    public static final long[][] BETWEEN = new long[64][64];
+    // Full board line through two aligned squares (0 if not aligned)
+    public static final long[][] LINE = new long[64][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] kingSteps = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >> 3;
+            int col = sq & 7;
+
+            KNIGHT_ATTACKS[sq] = stepAttacks(row, col, knightSteps);
+            KING_ATTACKS[sq] = stepAttacks(row, col, kingSteps);
+
+            // White pawns move towards row 0, black pawns towards row 7
+            PAWN_ATTACKS[0][sq] = stepAttacks(row, col, new int[][] {{-1, -1}, {-1, 1}});
+            PAWN_ATTACKS[1][sq] = stepAttacks(row, col, new int[][] {{1, -1}, {1, 1}});
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a != b) {
+                    fillLine(a, b, ROOK_DIRECTIONS);
+                    fillLine(a, b, BISHOP_DIRECTIONS);
+                }
+            }
+        }
+    }
+
+    private static void fillLine(int a, int b, int[][] directions) {
+        long fromA = slidingAttacks(a, 0L, directions, false);
+        if ((fromA & bit(b)) == 0) {
+            return; // Not aligned along these directions
+        }
+        long fromB = slidingAttacks(b, 0L, directions, false);
+        LINE[a][b] = (fromA & fromB) | bit(a) | bit(b);
+        BETWEEN[a][b] = slidingAttacks(a, bit(b), directions, true)
+                      & slidingAttacks(b, bit(a), directions, true);
+    }
+
+    private static long stepAttacks(int row, int col, int[][] steps) {
+        long attacks = 0L;
+        for (int[] step : steps) {
+            int r = row + step[0];
+            int c = col + step[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                attacks |= bit(r * 8 + c);
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks each direction square by square until the edge or the first blocker (inclusive).
+     */
+    private static long slidingAttacks(int sq, long occupied, int[][] directions, boolean stopAtBlocker) {
+        long attacks = 0L;
+        int row = sq >> 3;
+        int col = sq & 7;
+
+        for (int[] dir : directions) {
+            int r = row + dir[0];
+            int c = col + dir[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long b = bit(r * 8 + c);
+                attacks |= b;
+                if (stopAtBlocker && (occupied & b) != 0) {
+                    break;
+                }
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Rook attacks from a square given the board occupancy (magic bitboard lookup)
+     */
+    public static long rookAttacks(int sq, long occupied) {
+        return magicBitboards.rookAttacks(sq, occupied);
+    }
+
+    /**
+     * Bishop attacks from a square given the board occupancy (magic bitboard lookup)
+     */
+    public static long bishopAttacks(int sq, long occupied) {
+        return magicBitboards.bishopAttacks(sq, occupied);
+    }
+
+    /**
+     * Rook attacks computed by walking the rays; used to build and verify the magic tables
+     */
+    static long rayRookAttacks(int sq, long occupied) {
+        return slidingAttacks(sq, occupied, ROOK_DIRECTIONS, true);
+    }
+
+    /**
+     * Bishop attacks computed by walking the rays; used to build and verify the magic tables
+     */
+    static long rayBishopAttacks(int sq, long occupied) {
+        return slidingAttacks(sq, occupied, BISHOP_DIRECTIONS, true);
+    }
+
+    /**
+     * Queen attacks are the union of rook and bishop attacks
+     */
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    public static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    /**
+     * Index of the lowest set bit (the "first" square of a bitboard)
+     */
+    public static int lsb(long bb) {
+        return Long.numberOfTrailingZeros(bb);
+    }
+
+    public static int popCount(long bb) {
+        return Long.bitCount(bb);
+    }
+
+    /**
+     * Converts a square index to algebraic notation (e.g. 52 -> "e2")
+     */
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (8 - (sq >> 3));
+    }
+
+    /**
+     * Parses algebraic notation into a square index, or -1 for "-"
+     */
+    public static int parseSquare(String name) {
+        if (name == null || name.length() != 2) {
+            return -1;
+        }
+        int col = name.charAt(0) - 'a';
+        int row = 8 - (name.charAt(1) - '0');
+        if (col < 0 || col > 7 || row < 0 || row > 7) {
+            return -1;
+        }
+        return row * 8 + col;
+    }
+}
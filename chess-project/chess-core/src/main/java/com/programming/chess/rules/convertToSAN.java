@@ -6,6 +6,8 @@ import com.programming.chess.rules.gameState.Move;
  * Utility class for converting chess moves to standard algebraic notation.
  */
 public class convertToSAN {
+
+    private static final String SAN_PIECE_LETTERS = "PNBRQK";
     
     /**
      * Converts a chess move to standard algebraic notation.
@@ -73,6 +75,73 @@ public class convertToSAN {
         return toStandardAlgebraicNotation(move, boardState, false, false);
     }
     
+    /**
+     * Converts an encoded move to standard algebraic notation, with file/rank
+     * disambiguation and check or checkmate suffix.
+     *
+     * @param pos The position the move is played from (left unchanged)
+     * @param move A legal encoded move
+     * @return The move in standard algebraic notation (e.g., "Nbd7", "exd6", "e8=Q+", "O-O#")
+     */
+    public static String toSAN(position pos, int move) {
+        int from = moveEncoding.from(move);
+        int to = moveEncoding.to(move);
+        int flag = moveEncoding.flag(move);
+        int type = pos.pieceAt(from) % 6;
+
+        StringBuilder notation = new StringBuilder();
+        if (flag == moveEncoding.FLAG_CASTLING) {
+            notation.append((to & 7) == 6 ? "O-O" : "O-O-O");
+        } else {
+            boolean isCapture = pos.pieceAt(to) != position.EMPTY || flag == moveEncoding.FLAG_EN_PASSANT;
+            if (type == position.PAWN) {
+                if (isCapture) {
+                    notation.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                notation.append(SAN_PIECE_LETTERS.charAt(type));
+
+                // Other pieces of the same type that can reach the same square
+                boolean sameFile = false;
+                boolean sameRank = false;
+                boolean ambiguous = false;
+                int[] moves = new int[moveGenerator.MAX_MOVES];
+                int count = moveGenerator.generateLegalMoves(pos, moves);
+                for (int i = 0; i < count; i++) {
+                    int other = moveEncoding.from(moves[i]);
+                    if (other != from && moveEncoding.to(moves[i]) == to && pos.pieceAt(other) % 6 == type) {
+                        ambiguous = true;
+                        sameFile |= (other & 7) == (from & 7);
+                        sameRank |= (other >> 3) == (from >> 3);
+                    }
+                }
+                if (ambiguous) {
+                    if (!sameFile) {
+                        notation.append((char) ('a' + (from & 7)));
+                    } else if (!sameRank) {
+                        notation.append((char) ('8' - (from >> 3)));
+                    } else {
+                        notation.append(bitboards.squareName(from));
+                    }
+                }
+            }
+            if (isCapture) {
+                notation.append('x');
+            }
+            notation.append(bitboards.squareName(to));
+            if (flag == moveEncoding.FLAG_PROMOTION) {
+                notation.append('=').append(SAN_PIECE_LETTERS.charAt(moveEncoding.promotionType(move)));
+            }
+        }
+
+        pos.makeMove(move);
+        if (pos.inCheck()) {
+            notation.append(moveGenerator.hasLegalMove(pos) ? '+' : '#');
+        }
+        pos.unmakeMove();
+        return notation.toString();
+    }
+
     /**
      * Determines the type of piece being moved and returns the SAN character.
      */
@@ -101,11 +170,8 @@ public class convertToSAN {
                                          String piece, String capturedPiece, boolean isCastling, 
                                          boolean isEnPassant, String[][] boardState, 
                                          boolean isCheck, boolean isCheckMate) {
-        // Get the gameState instance
-        gameState state = gameState.getInstance();
-        
-        // Create a temporary gameState.Move object
-        gameState.Move tempMove = state.createTempMove(fromRow, fromCol, toRow, toCol, piece, capturedPiece);
+        // Create a temporary gameState.Move object (no game state needed)
+        gameState.Move tempMove = new gameState.Move(fromRow, fromCol, toRow, toCol, piece, capturedPiece);
         
         // Set castling information if needed
         if (isCastling) {
@@ -1,7 +1,107 @@
 package com.programming.chess.rules;
 
 public class detectCheck {
-    
+
+    /**
+     * Outcome of a position for the side to move
+     */
+    public enum GameStatus {
+        ONGOING(false),
+        CHECK(false),
+        CHECKMATE(true),
+        STALEMATE(true),
+        FIFTY_MOVE_RULE(true),          // only when claimed
+        INSUFFICIENT_MATERIAL(true),
+        THREEFOLD_REPETITION(true),     // only when claimed
+        SEVENTY_FIVE_MOVE_RULE(true),
+        FIVEFOLD_REPETITION(true);
+
+        private final boolean gameOver;
+
+        GameStatus(boolean gameOver) {
+            this.gameOver = gameOver;
+        }
+
+        public boolean isGameOver() {
+            return gameOver;
+        }
+
+        public boolean isDraw() {
+            return gameOver && this != CHECKMATE;
+        }
+    }
+
+    /**
+     * Determines every game-ending condition for the side to move with a single
+     * legal-move-existence pass that stops at the first legal move found.
+     * The halfmove clock, material counters and repetition hashes are maintained
+     * incrementally by the position, so the draw rules need no board scan.
+     * Only the automatic draws end the game here: the 50-move rule and threefold
+     * repetition must be claimed (see claimableDraw).
+     * @param pos The position to evaluate
+     * @return The status of the game in this position
+     */
+    public static GameStatus evaluateStatus(position pos) {
+        return evaluateStatus(pos, false);
+    }
+
+    /**
+     * As evaluateStatus(pos), optionally claiming every claimable draw at once,
+     * as engine matches and self-play do
+     */
+    public static GameStatus evaluateStatus(position pos, boolean claimDraws) {
+        boolean inCheck = pos.inCheck();
+
+        if (!moveGenerator.hasLegalMove(pos)) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+
+        GameStatus status = quickStatus(pos);
+        if (claimDraws && !status.isGameOver()) {
+            GameStatus claim = claimableDraw(pos);
+            return claim != null ? claim : status;
+        }
+        return status;
+    }
+
+    /**
+     * The automatic draw rules of evaluateStatus without the legal-move search, cheap enough
+     * to run on every move. A draw it reports is final: a repeated position or one without
+     * mating material cannot be checkmate, and at the 75-move limit a checked side to move is
+     * searched. Only checkmate and stalemate are left out.
+     * @return A drawn status, or CHECK or ONGOING
+     */
+    public static GameStatus quickStatus(position pos) {
+        boolean inCheck = pos.inCheck();
+
+        if (pos.getHalfmoveClock() >= 150 && (!inCheck || moveGenerator.hasLegalMove(pos))) {
+            return GameStatus.SEVENTY_FIVE_MOVE_RULE;
+        }
+        if (pos.isInsufficientMaterial()) {
+            return GameStatus.INSUFFICIENT_MATERIAL;
+        }
+        if (pos.repetitionCount() >= 5) {
+            return GameStatus.FIVEFOLD_REPETITION;
+        }
+
+        return inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+    }
+
+    /**
+     * The draw the side to move may claim in this position, which must not already be over:
+     * the 50-move rule or threefold repetition
+     * @return FIFTY_MOVE_RULE, THREEFOLD_REPETITION, or null if no draw can be claimed
+     */
+    public static GameStatus claimableDraw(position pos) {
+        if (pos.getHalfmoveClock() >= 100) {
+            return GameStatus.FIFTY_MOVE_RULE;
+        }
+        if (pos.repetitionCount() >= 3) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        return null;
+    }
+
     /**
      * Determines if the specified player's king is in check
      * @param board The current board state
@@ -92,6 +192,28 @@ public class detectCheck {
         return true; // No legal moves to escape check
     }
     
+    /**
+     * Determines if the side to move in a bitboard position is in check
+     * @param pos The position to examine
+     * @return true if the side to move is in check
+     */
+    public static boolean isCheck(position pos) {
+        return pos.inCheck();
+    }
+
+    /**
+     * Determines if the side to move in a bitboard position is checkmated.
+     * Uses the strictly legal move generator, so no trial moves are played.
+     * @param pos The position to examine
+     * @return true if the side to move is in check and has no legal moves
+     */
+    public static boolean isCheckMate(position pos) {
+        if (!pos.inCheck()) {
+            return false;
+        }
+        return !moveGenerator.hasLegalMove(pos);
+    }
+
     /**
      * Helper method to find the king's position on the board
      * @param board The current board state
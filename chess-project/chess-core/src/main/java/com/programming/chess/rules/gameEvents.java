@@ -0,0 +1,282 @@
+package com.programming.chess.rules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event bus for one game: moves, status changes, game over and resets, each carrying the
+ * gameSnapshot published with it.
+ *
+ * Listeners subscribe to an event class and receive that class and its subclasses.
+ * Synchronous listeners run on the publishing thread before publish() returns, so they
+ * should be quick. Batched listeners run on an executor of their choice: publish() only
+ * queues the event, and at most one delivery per listener is queued or running at a time,
+ * so events that arrive while it waits are handed over together as one list. Batches
+ * therefore never overlap and stay in order, whatever the executor's thread count. A
+ * listener whose executor has shut down is dropped. A GUI passes
+ * SwingUtilities::invokeLater and repaints once per batch however many events came in.
+ *
+ * Publishing never blocks and never throws because of a listener; the subscriber list is
+ * copy-on-write, so publishing takes no lock either.
+ */
+public final class gameEvents {
+
+    /**
+     * Base of every event. The snapshot is the state of the game right after the event.
+     */
+    public abstract static class Event {
+        public final gameSnapshot snapshot;
+
+        Event(gameSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    /**
+     * A move was played. The move is the game's own record of it and must not be modified.
+     */
+    public static final class MoveMade extends Event {
+        public final gameState.Move move;
+
+        public MoveMade(gameSnapshot snapshot, gameState.Move move) {
+            super(snapshot);
+            this.move = move;
+        }
+    }
+
+    /**
+     * The status of the current position was evaluated
+     */
+    public static final class StatusChanged extends Event {
+        public final detectCheck.GameStatus status;
+
+        public StatusChanged(gameSnapshot snapshot, detectCheck.GameStatus status) {
+            super(snapshot);
+            this.status = status;
+        }
+    }
+
+    /**
+     * The game ended by checkmate or a draw; follows the StatusChanged event that ended it
+     */
+    public static final class GameOver extends Event {
+        public final detectCheck.GameStatus status;
+
+        public GameOver(gameSnapshot snapshot, detectCheck.GameStatus status) {
+            super(snapshot);
+            this.status = status;
+        }
+    }
+
+    /**
+     * A new game started from the initial position
+     */
+    public static final class GameReset extends Event {
+        public GameReset(gameSnapshot snapshot) {
+            super(snapshot);
+        }
+    }
+
+    public interface Listener<E extends Event> {
+        void onEvent(E event);
+    }
+
+    public interface BatchListener<E extends Event> {
+        /**
+         * @param events Every matching event since the last batch, oldest first; never empty
+         */
+        void onEvents(List<E> events);
+    }
+
+    /**
+     * Handle returned by the subscribe methods
+     */
+    public interface Subscription {
+        void cancel();
+    }
+
+    private final CopyOnWriteArrayList<subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Delivers matching events on the publishing thread
+     */
+    public <E extends Event> Subscription subscribe(Class<E> type, Listener<? super E> listener) {
+        return add(new syncSubscriber<>(type, listener));
+    }
+
+    /**
+     * Delivers matching events in batches on the executor
+     */
+    public <E extends Event> Subscription subscribeBatched(Class<E> type, Executor executor,
+                                                         BatchListener<E> listener) {
+        return add(new batchedSubscriber<>(type, executor, listener));
+    }
+
+    private Subscription add(subscriber subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Hands an event to every listener subscribed to its class
+     */
+    public void publish(Event event) {
+        for (subscriber subscriber : subscribers) {
+            if (subscriber.type.isInstance(event)) {
+                try {
+                    subscriber.deliver(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Game event listener failed: " + e);
+                }
+                if (subscriber.isClosed()) {
+                    subscribers.remove(subscriber);
+                }
+            }
+        }
+    }
+
+    private abstract static class subscriber {
+        final Class<? extends Event> type;
+
+        subscriber(Class<? extends Event> type) {
+            this.type = type;
+        }
+
+        abstract void deliver(Event event);
+
+        /**
+         * @return true once the subscriber can never deliver again and should be dropped
+         */
+        boolean isClosed() {
+            return false;
+        }
+    }
+
+    private static final class syncSubscriber<E extends Event> extends subscriber {
+        private final Class<E> eventType;
+        private final Listener<? super E> listener;
+
+        syncSubscriber(Class<E> type, Listener<? super E> listener) {
+            super(type);
+            this.eventType = type;
+            this.listener = listener;
+        }
+
+        @Override
+        void deliver(Event event) {
+            listener.onEvent(eventType.cast(event));
+        }
+    }
+
+    private static final class batchedSubscriber<E extends Event> extends subscriber {
+        private final Class<E> eventType;
+        private final Executor executor;
+        private final BatchListener<E> listener;
+        private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();  // a drain is queued or running
+        private volatile boolean closed;
+
+        batchedSubscriber(Class<E> type, Executor executor, BatchListener<E> listener) {
+            super(type);
+            this.eventType = type;
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        @Override
+        void deliver(Event event) {
+            if (closed) {
+                return;
+            }
+            queue.add(eventType.cast(event));
+            // Only the publisher that flips the flag schedules a drain; the others ride along
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // Nothing was scheduled: let the next event try again. An executor that
+                    // has shut down never will run a drain, so stop queueing for it.
+                    scheduled.set(false);
+                    if (executor instanceof ExecutorService service && service.isShutdown()) {
+                        closed = true;
+                        queue.clear();
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Delivers everything queued. The flag stays set while it runs, so drains never
+         * overlap even on a pool; it is only cleared once the queue has been seen empty,
+         * and an event that slipped in just before that is picked up by another round.
+         */
+        private void drain() {
+            do {
+                List<E> batch = new ArrayList<>();
+                for (E event = queue.poll(); event != null; event = queue.poll()) {
+                    batch.add(event);
+                }
+                if (!batch.isEmpty()) {
+                    try {
+                        listener.onEvents(batch);
+                    } catch (RuntimeException e) {
+                        System.err.println("Game event listener failed: " + e);
+                    }
+                }
+                scheduled.set(false);
+            } while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+    }
+
+    /**
+     * Publishes a burst of events to synchronous and batched listeners and reports the cost
+     * per publish and how the batched listener's deliveries were coalesced.
+     * Usage: gameEvents [events]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        gameSnapshot snapshot = new gameSnapshot(0, positionSnapshot.of(position.startPosition()), 0,
+                                                 moveEncoding.NONE, detectCheck.GameStatus.ONGOING);
+        gameState.Move move = new gameState.Move(6, 4, 4, 4, "pawnW", null);
+
+        gameEvents events = new gameEvents();
+        AtomicLong syncSeen = new AtomicLong();
+        AtomicLong batchedSeen = new AtomicLong();
+        AtomicLong batches = new AtomicLong();
+        ExecutorService ui = Executors.newSingleThreadExecutor();
+        events.subscribe(MoveMade.class, event -> syncSeen.incrementAndGet());
+        events.subscribe(GameOver.class, event -> { throw new AssertionError("Wrong event type delivered"); });
+        events.subscribeBatched(Event.class, ui, batch -> {
+            batchedSeen.addAndGet(batch.size());
+            batches.incrementAndGet();
+        });
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                events.publish(new MoveMade(snapshot, move));
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%,d events published in %.3f s, %.0f ns each%n", count, seconds, seconds * 1e9 / count);
+        }
+
+        ui.shutdown();
+        ui.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf("Synchronous listener saw %,d events; batched listener saw %,d in %,d batches (%.1f per batch)%n",
+                          syncSeen.get(), batchedSeen.get(), batches.get(), (double) batchedSeen.get() / batches.get());
+    }
+}
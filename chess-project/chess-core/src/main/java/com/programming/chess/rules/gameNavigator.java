@@ -0,0 +1,254 @@
+package com.programming.chess.rules;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Moves back and forth through the positions of a game.
+ *
+ * The moves of the game are kept as encoded ints, plus a compact snapshot of the
+ * position every {@code interval} plies. Jumping to a ply restores the nearest snapshot
+ * at or before it and replays the few moves in between; short steps just make or
+ * unmake moves on the current position. Snapshots are capped at MAX_SNAPSHOTS: when
+ * the cap is reached every other one is dropped and the interval doubles, so memory
+ * stays bounded however long the game gets.
+ */
+public class gameNavigator {
+
+    public static final int DEFAULT_INTERVAL = 8;
+    static final int MAX_SNAPSHOTS = 512;
+
+    private int[] moves = new int[256];
+    private int moveCount;
+
+    // snapshots[i] is the position after i * interval plies
+    private final positionSnapshot[] snapshots = new positionSnapshot[MAX_SNAPSHOTS];
+    private int snapshotCount;
+    private int interval;
+
+    // Position shown to the caller, and the ply it was restored at (it can unmake back to there)
+    private position cursor;
+    private int cursorPly;
+    private int cursorBasePly;
+
+    public gameNavigator(position start) {
+        this(start, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * @param start The position the game starts from
+     * @param interval Plies between two snapshots
+     */
+    public gameNavigator(position start, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + interval);
+        }
+        this.interval = interval;
+        positionSnapshot first = positionSnapshot.of(start);
+        snapshots[snapshotCount++] = first;
+        cursor = first.toPosition();
+    }
+
+    /**
+     * Appends a move to the end of the game. If the cursor is on the last ply it follows the move.
+     * @param move An encoded move, legal in the final position of the game
+     */
+    public void addMove(int move) {
+        boolean following = cursorPly == moveCount;
+
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = move;
+
+        if (following) {
+            cursor.makeMove(move);
+            cursorPly++;
+        }
+
+        if (moveCount % interval == 0) {
+            addSnapshot(positionSnapshot.of(following ? cursor : rebuild(moveCount)));
+        }
+    }
+
+    private void addSnapshot(positionSnapshot snapshot) {
+        if (snapshotCount == MAX_SNAPSHOTS) {
+            // Halve the density instead of growing: keep the even snapshots and double the spacing.
+            // The new snapshot, at MAX_SNAPSHOTS * interval, lands exactly on the new grid.
+            for (int i = 0; i < MAX_SNAPSHOTS / 2; i++) {
+                snapshots[i] = snapshots[i * 2];
+            }
+            Arrays.fill(snapshots, MAX_SNAPSHOTS / 2, MAX_SNAPSHOTS, null);
+            snapshotCount = MAX_SNAPSHOTS / 2;
+            interval *= 2;
+        }
+        snapshots[snapshotCount++] = snapshot;
+    }
+
+    /**
+     * Moves the cursor to the position after the given number of plies
+     * @return The position at that ply. It is owned by the navigator and must not be modified.
+     */
+    public position goTo(int ply) {
+        if (ply < 0 || ply > moveCount) {
+            throw new IllegalArgumentException("Ply " + ply + " is outside the game (0-" + moveCount + ")");
+        }
+
+        if (ply >= cursorPly && ply - cursorPly < interval) {
+            // A few moves ahead: replay them
+            while (cursorPly < ply) {
+                cursor.makeMove(moves[cursorPly++]);
+            }
+        } else if (ply < cursorPly && ply >= cursorBasePly && cursorPly - ply < interval) {
+            // A few moves back and still in the cursor's own history: take them back
+            while (cursorPly > ply) {
+                cursor.unmakeMove();
+                cursorPly--;
+            }
+        } else {
+            int index = Math.min(ply / interval, snapshotCount - 1);
+            cursor = snapshots[index].toPosition();
+            cursorBasePly = index * interval;
+            cursorPly = cursorBasePly;
+            while (cursorPly < ply) {
+                cursor.makeMove(moves[cursorPly++]);
+            }
+        }
+        return cursor;
+    }
+
+    public position first() {
+        return goTo(0);
+    }
+
+    public position previous() {
+        return goTo(Math.max(0, cursorPly - 1));
+    }
+
+    public position next() {
+        return goTo(Math.min(moveCount, cursorPly + 1));
+    }
+
+    public position last() {
+        return goTo(moveCount);
+    }
+
+    /**
+     * Builds a fresh position at the given ply without moving the cursor
+     */
+    public position positionAt(int ply) {
+        if (ply < 0 || ply > moveCount) {
+            throw new IllegalArgumentException("Ply " + ply + " is outside the game (0-" + moveCount + ")");
+        }
+        return rebuild(ply);
+    }
+
+    private position rebuild(int ply) {
+        int index = Math.min(ply / interval, snapshotCount - 1);
+        position pos = snapshots[index].toPosition();
+        for (int p = index * interval; p < ply; p++) {
+            pos.makeMove(moves[p]);
+        }
+        return pos;
+    }
+
+    /**
+     * @return The position at the cursor. It is owned by the navigator and must not be modified.
+     */
+    public position getPosition() {
+        return cursor;
+    }
+
+    public int getPly() {
+        return cursorPly;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public boolean isAtEnd() {
+        return cursorPly == moveCount;
+    }
+
+    /**
+     * @param index Zero-based index of the move (0 = the first move of the game)
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + index + " of " + moveCount);
+        }
+        return moves[index];
+    }
+
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Plays a long random game and times jumps to random plies against replaying from the start
+     */
+    public static void main(String[] args) {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int jumps = 200_000;
+
+        // Build a random game, stopping early if it runs out of moves
+        Random random = new Random(2024);
+        position game = position.startPosition();
+        gameNavigator navigator = new gameNavigator(game);
+        int[] legal = new int[moveGenerator.MAX_MOVES];
+        while (navigator.getMoveCount() < plies) {
+            int count = moveGenerator.generateLegalMoves(game, legal);
+            if (count == 0) {
+                break;
+            }
+            int move = legal[random.nextInt(count)];
+            game.makeMove(move);
+            navigator.addMove(move);
+        }
+        int length = navigator.getMoveCount();
+        System.out.printf("Game of %d plies, %d snapshots every %d plies%n",
+                          length, navigator.getSnapshotCount(), navigator.getInterval());
+
+        // Sanity check: every ply, reached from a random ply, matches the position built from the start
+        position replay = position.startPosition();
+        for (int ply = 0; ply <= length; ply++) {
+            navigator.goTo(random.nextInt(length + 1));
+            if (!navigator.goTo(ply).toFen().equals(replay.toFen())) {
+                throw new IllegalStateException("Navigation mismatch at ply " + ply);
+            }
+            if (ply < length) {
+                replay.makeMove(navigator.getMove(ply));
+            }
+        }
+
+        long checksum = 0;
+        for (int i = 0; i < jumps; i++) {
+            checksum += navigator.goTo(random.nextInt(length + 1)).getHash(); // Warm-up
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < jumps; i++) {
+            checksum += navigator.goTo(random.nextInt(length + 1)).getHash();
+        }
+        double jumpNanos = (double) (System.nanoTime() - start) / jumps;
+
+        int replays = 2_000;
+        start = System.nanoTime();
+        for (int i = 0; i < replays; i++) {
+            int target = random.nextInt(length + 1);
+            position pos = position.startPosition();
+            for (int p = 0; p < target; p++) {
+                pos.makeMove(navigator.getMove(p));
+            }
+            checksum += pos.getHash();
+        }
+        double replayNanos = (double) (System.nanoTime() - start) / replays;
+
+        System.out.printf("Random jump: %.2f us, replay from start: %.2f us (checksum %x)%n",
+                          jumpNanos / 1000, replayNanos / 1000, checksum);
+    }
+}
@@ -0,0 +1,76 @@
+package com.programming.chess.rules;
+
+/**
+ * Immutable view of the game at one moment: the packed position plus the ply, the move
+ * that led to it and the game status.
+ *
+ * gameState publishes a new snapshot through a volatile field after every change, so
+ * analysis, spectators and persistence can read the current game from any thread without
+ * locks and without touching the mutable board. All fields are final; a reader that wants
+ * to search or generate moves calls position() and toPosition() on its own copy.
+ */
+public final class gameSnapshot {
+
+    private final long sequence;
+    private final positionSnapshot position;
+    private final int ply;
+    private final int lastMove;
+    private final detectCheck.GameStatus status;
+
+    gameSnapshot(long sequence, positionSnapshot position, int ply, int lastMove, detectCheck.GameStatus status) {
+        this.sequence = sequence;
+        this.position = position;
+        this.ply = ply;
+        this.lastMove = lastMove;
+        this.status = status;
+    }
+
+    /**
+     * Number of this snapshot; every publication, including resets, gets a higher one,
+     * so readers can tell whether anything changed by comparing a single long
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public positionSnapshot position() {
+        return position;
+    }
+
+    /**
+     * Plies played since the start of the game
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return The encoded move that led to this position, or moveEncoding.NONE at the start
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Status of this position. Right after a move it is CHECK, ONGOING or a draw by rule;
+     * checkmate and stalemate arrive in a later snapshot, once the game thread has evaluated them.
+     */
+    public detectCheck.GameStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The piece code on a square, or position.EMPTY
+     */
+    public int pieceAt(int sq) {
+        return position.pieceAt(sq);
+    }
+
+    public int getSideToMove() {
+        return position.getSideToMove();
+    }
+
+    public long getHash() {
+        return position.getHash();
+    }
+}
@@ -13,6 +13,20 @@ public class gameState {
     private String statusMessage;
     private boolean isInCheck = false;
     private boolean isInCheckMate = false;
+    private detectCheck.GameStatus gameStatus = detectCheck.GameStatus.ONGOING;
+    
+    // Bitboard mirror of the GUI board, used for fast status evaluation
+    private position boardPosition;
+    
+    // Every position of the game, for stepping back and forth
+    private gameNavigator navigator;
+    
+    // Latest immutable view of the game, for reader threads
+    private volatile gameSnapshot snapshot;
+    private long snapshotSequence;
+    
+    // Subscribers to moves and status changes; kept across resets
+    private final gameEvents events = new gameEvents();
     
     // Track whether kings and rooks have moved (needed for castling)
     private Map<String, Boolean> pieceHasMoved;
@@ -21,6 +35,9 @@ public class gameState {
     private int enPassantCol = -1;  // Column where en passant capture is possible (-1 if not possible)
     private int enPassantRow = -1;  // Row where en passant capture is possible (-1 if not possible)
 
+    // Scratch space for move generation, reused by every move
+    private final int[] moveBuffer = new int[moveGenerator.MAX_MOVES];
+
     private static gameState instance;
 
     private gameState() {
@@ -30,6 +47,9 @@ public class gameState {
         statusMessage = "White's turn to move";
         pieceHasMoved = new HashMap<>();
         resetPieceMovementTracking();
+        boardPosition = position.startPosition();
+        navigator = new gameNavigator(boardPosition);
+        publishSnapshot(moveEncoding.NONE);
     }
 
     public static gameState getInstance() {
@@ -63,10 +83,29 @@ public class gameState {
         statusMessage = "White's turn to move";
         isInCheck = false;
         isInCheckMate = false;
+        gameStatus = detectCheck.GameStatus.ONGOING;
         resetPieceMovementTracking();
+        boardPosition = position.startPosition();
+        navigator = new gameNavigator(boardPosition);
+        publishSnapshot(moveEncoding.NONE);
+        events.publish(new gameEvents.GameReset(snapshot));
     }
 
-    public void makeMove(int fromRow, int fromCol, int toRow, int toCol, String piece, String capturedPiece) {
+    /**
+     * Records a move of the current player. Nothing changes if the game is over or the move is
+     * not legal in the current position, so the board model and the bitboard position never disagree.
+     * Pawns reaching the last rank are promoted to a queen.
+     * @return false if the move was rejected
+     */
+    public boolean makeMove(int fromRow, int fromCol, int toRow, int toCol, String piece, String capturedPiece) {
+        if (!activeGame) {
+            return false;
+        }
+        int encoded = findLegalMove(fromRow * 8 + fromCol, toRow * 8 + toCol);
+        if (encoded == moveEncoding.NONE) {
+            return false;
+        }
+        
         Move move = new Move(fromRow, fromCol, toRow, toCol, piece, capturedPiece);
         moveHistory.add(move);
         
@@ -113,10 +152,92 @@ public class gameState {
             move.setEnPassantCapture(true);
         }
 
+        // Keep the bitboard position in step with the GUI board
+        boardPosition.makeMove(encoded);
+        navigator.addMove(encoded);
         switchTurn();
 
-        // The status message will be updated when check status is set
-        statusMessage = (currentPlayer.equals("W") ? "White" : "Black") + "'s turn to move";
+        // Draws by rule are settled before anyone hears of the move, so the MoveMade snapshot
+        // already carries them and no further move is accepted; mates are left to setGameStatus
+        detectCheck.GameStatus status = detectCheck.quickStatus(boardPosition);
+        if (status.isGameOver()) {
+            applyStatus(status);
+        } else {
+            // The status message will be updated when check status is set
+            statusMessage = (currentPlayer.equals("W") ? "White" : "Black") + "'s turn to move";
+        }
+        publishSnapshot(encoded, status.isGameOver() ? status : null);
+        
+        events.publish(new gameEvents.MoveMade(snapshot, move));
+        if (status.isGameOver()) {
+            publishStatus(status);
+        }
+        return true;
+    }
+
+    /**
+     * @return The legal move between two squares in the current position, or moveEncoding.NONE
+     */
+    private int findLegalMove(int from, int to) {
+        int[] moves = moveBuffer;
+        int count = moveGenerator.generateLegalMoves(boardPosition, moves);
+        for (int i = 0; i < count; i++) {
+            // The generator lists queen promotions first
+            if (moveEncoding.from(moves[i]) == from && moveEncoding.to(moves[i]) == to) {
+                return moves[i];
+            }
+        }
+        return moveEncoding.NONE;
+    }
+
+    /**
+     * Get the navigator over all positions of the current game
+     */
+    public gameNavigator getNavigator() {
+        return navigator;
+    }
+
+    /**
+     * Get the bitboard position that mirrors the current game
+     */
+    public position getPosition() {
+        return boardPosition;
+    }
+
+    /**
+     * Get the bus that announces moves, status changes, game over and resets.
+     * Events are published on the thread that changes the game.
+     */
+    public gameEvents getEvents() {
+        return events;
+    }
+
+    /**
+     * Get the latest snapshot of the game. Safe to call from any thread: the snapshot is
+     * immutable and replaced, never modified, after each move, status change or reset.
+     */
+    public gameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Packs the current position and publishes it. Right after a move only check and draws
+     * by rule are known; setGameStatus publishes the full status once it has been evaluated.
+     */
+    private void publishSnapshot(int lastMove) {
+        publishSnapshot(lastMove, null);
+    }
+
+    /**
+     * @param status The status of the position, or null for just CHECK or ONGOING
+     */
+    private void publishSnapshot(int lastMove, detectCheck.GameStatus status) {
+        if (status == null) {
+            status = boardPosition.inCheck() ? detectCheck.GameStatus.CHECK : detectCheck.GameStatus.ONGOING;
+        }
+        // The volatile write comes last, so readers always see a fully built snapshot
+        snapshot = new gameSnapshot(++snapshotSequence, positionSnapshot.of(boardPosition),
+                                    navigator.getMoveCount(), lastMove, status);
     }
 
     /**
@@ -159,6 +280,100 @@ public class gameState {
         }
     }
     
+    /**
+     * Set the full game status as computed by detectCheck.evaluateStatus.
+     * Ends the game on checkmate or any draw; while it goes on, the message
+     * mentions a draw the player to move could claim.
+     */
+    public void setGameStatus(detectCheck.GameStatus status) {
+        applyStatus(status);
+        
+        gameSnapshot current = snapshot;
+        snapshot = new gameSnapshot(++snapshotSequence, current.position(), current.getPly(),
+                                    current.getLastMove(), status);
+        publishStatus(status);
+    }
+    
+    /**
+     * Records a status and its message without publishing anything
+     */
+    private void applyStatus(detectCheck.GameStatus status) {
+        this.gameStatus = status;
+        this.isInCheck = status == detectCheck.GameStatus.CHECK || status == detectCheck.GameStatus.CHECKMATE;
+        this.isInCheckMate = status == detectCheck.GameStatus.CHECKMATE;
+        
+        String player = currentPlayer.equals("W") ? "White" : "Black";
+        String opponent = currentPlayer.equals("W") ? "Black" : "White";
+        
+        statusMessage = switch (status) {
+            case CHECKMATE -> player + " is in checkmate! " + opponent + " wins!";
+            case STALEMATE -> "Stalemate! The game is a draw.";
+            case FIFTY_MOVE_RULE -> player + " claimed a draw by the 50-move rule.";
+            case INSUFFICIENT_MATERIAL -> "Draw by insufficient material.";
+            case THREEFOLD_REPETITION -> player + " claimed a draw by threefold repetition.";
+            case SEVENTY_FIVE_MOVE_RULE -> "Draw by the 75-move rule.";
+            case FIVEFOLD_REPETITION -> "Draw by fivefold repetition.";
+            case CHECK -> player + " is in check!";
+            case ONGOING -> player + "'s turn to move";
+        };
+        
+        detectCheck.GameStatus claim = status.isGameOver() ? null : detectCheck.claimableDraw(boardPosition);
+        if (claim != null) {
+            statusMessage += claim == detectCheck.GameStatus.FIFTY_MOVE_RULE
+                    ? " (a draw can be claimed under the 50-move rule)"
+                    : " (a draw can be claimed by threefold repetition)";
+        }
+        
+        if (status.isGameOver()) {
+            activeGame = false;
+        }
+    }
+    
+    /**
+     * Tells listeners about the status in the current snapshot
+     */
+    private void publishStatus(detectCheck.GameStatus status) {
+        events.publish(new gameEvents.StatusChanged(snapshot, status));
+        if (status.isGameOver()) {
+            events.publish(new gameEvents.GameOver(snapshot, status));
+        }
+    }
+    
+    /**
+     * Get the draw the player to move may claim now
+     * @return FIFTY_MOVE_RULE, THREEFOLD_REPETITION, or null if the game is over or there is none
+     */
+    public detectCheck.GameStatus getClaimableDraw() {
+        return activeGame ? detectCheck.claimableDraw(boardPosition) : null;
+    }
+
+    /**
+     * Ends the game in a draw claimed by the player to move, if the rules allow one
+     * @return false if no draw can be claimed
+     */
+    public boolean claimDraw() {
+        detectCheck.GameStatus claim = getClaimableDraw();
+        if (claim == null) {
+            return false;
+        }
+        setGameStatus(claim);
+        return true;
+    }
+
+    /**
+     * Get the status of the game as of the last move
+     */
+    public detectCheck.GameStatus getGameStatus() {
+        return gameStatus;
+    }
+    
+    /**
+     * Check if the game is still in progress
+     */
+    public boolean isActiveGame() {
+        return activeGame;
+    }
+    
     /**
      * Check if the current player is in check
      */
@@ -254,7 +469,7 @@ public class gameState {
         return pieceColor.equals(currentPlayer);
     }
 
-    public class Move {
+    public static class Move {
         public int fromRow, fromCol, toRow, toCol;
         public String piece;
         public String capturedPiece;
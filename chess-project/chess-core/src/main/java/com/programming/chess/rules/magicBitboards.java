@@ -0,0 +1,260 @@
+package com.programming.chess.rules;
+
+import java.util.Random;
+
+/**
+ * Magic bitboard lookup tables for rook and bishop attacks.
+ *
+ * For every square the relevant blocker squares are masked out of the occupancy,
+ * multiplied by a "magic" constant and shifted down to an index into a flat table,
+ * so a slider attack query is one multiply, one shift and one load.
+ * The magics are searched at class load from fixed per-square seeds, so the tables
+ * are identical on every run.
+ */
+public class magicBitboards {
+
+    // Per-square PRNG seeds, picked offline so that each square's search ends after a few candidates
+    private static final int[] ROOK_SEEDS = {
+        206, 226, 59, 334, 200, 135, 117, 72,
+        204, 115, 310, 39, 3, 326, 264, 274,
+        348, 157, 11, 48, 332, 190, 12, 171,
+        41, 157, 10, 355, 371, 303, 215, 101,
+        313, 385, 120, 39, 337, 303, 216, 348,
+        387, 348, 349, 199, 169, 340, 264, 188,
+        258, 258, 11, 399, 371, 240, 104, 365,
+        306, 320, 147, 255, 107, 309, 64, 171
+    };
+    private static final int[] BISHOP_SEEDS = {
+        68, 288, 337, 55, 140, 302, 122, 336,
+        230, 232, 236, 346, 224, 353, 190, 240,
+        94, 5, 266, 116, 395, 342, 309, 67,
+        25, 316, 237, 8, 205, 350, 53, 99,
+        344, 29, 195, 16, 172, 240, 122, 234,
+        100, 184, 32, 170, 201, 87, 87, 185,
+        122, 316, 240, 320, 393, 292, 288, 288,
+        336, 240, 394, 89, 243, 181, 230, 68
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    // Reported by main() and the benchmarks
+    static final long GENERATION_NANOS;
+
+    static {
+        long start = System.nanoTime();
+        ROOK_TABLE = buildTable(true, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_TABLE = buildTable(false, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+        GENERATION_NANOS = System.nanoTime() - start;
+    }
+
+    /**
+     * Rook attacks from a square given the board occupancy
+     */
+    public static long rookAttacks(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[sq]
+                + (int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    /**
+     * Bishop attacks from a square given the board occupancy
+     */
+    public static long bishopAttacks(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq]
+                + (int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    /**
+     * Total size of the lookup tables and per-square metadata in bytes
+     */
+    public static long memoryFootprint() {
+        long tables = 8L * (ROOK_TABLE.length + BISHOP_TABLE.length);
+        long metadata = 2 * 64 * (8 + 8 + 4 + 4);
+        return tables + metadata;
+    }
+
+    private static long[] buildTable(boolean rook, long[] masks, long[] magics, int[] shifts, int[] offsets) {
+        // Size the flat table first: each square needs 2^(mask bits) entries
+        int total = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            masks[sq] = relevantMask(sq, rook);
+            int bits = Long.bitCount(masks[sq]);
+            shifts[sq] = 64 - bits;
+            offsets[sq] = total;
+            total += 1 << bits;
+        }
+
+        long[] table = new long[total];
+        long[] occupancies = new long[4096];
+        long[] attacks = new long[4096];
+        int[] epoch = new int[4096];
+        int attempt = 0;
+
+        for (int sq = 0; sq < 64; sq++) {
+            // Enumerate every subset of the mask (Carry-Rippler) with its reference attacks
+            int size = 0;
+            long subset = 0L;
+            do {
+                occupancies[size] = subset;
+                attacks[size] = rook ? bitboards.rayRookAttacks(sq, subset) : bitboards.rayBishopAttacks(sq, subset);
+                size++;
+                subset = (subset - masks[sq]) & masks[sq];
+            } while (subset != 0);
+
+            // Try sparse random candidates until one maps every subset without a destructive collision
+            long[] state = {rook ? ROOK_SEEDS[sq] : BISHOP_SEEDS[sq]};
+            while (true) {
+                long magic = nextRandom(state) & nextRandom(state) & nextRandom(state);
+                if (Long.bitCount((masks[sq] * magic) >>> 56) < 6) {
+                    continue;
+                }
+
+                attempt++;
+                boolean ok = true;
+                for (int i = 0; i < size && ok; i++) {
+                    int index = (int) ((occupancies[i] * magic) >>> shifts[sq]);
+                    if (epoch[index] < attempt) {
+                        epoch[index] = attempt;
+                        table[offsets[sq] + index] = attacks[i];
+                    } else if (table[offsets[sq] + index] != attacks[i]) {
+                        ok = false;
+                    }
+                }
+
+                if (ok) {
+                    magics[sq] = magic;
+                    break;
+                }
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * xorshift64* generator; the state is kept in a one-element array
+     */
+    private static long nextRandom(long[] state) {
+        long s = state[0];
+        s ^= s >>> 12;
+        s ^= s << 25;
+        s ^= s >>> 27;
+        state[0] = s;
+        return s * 2685821657736338717L;
+    }
+
+    /**
+     * Squares whose occupancy can change a slider's attacks: the rays without their last square
+     */
+    private static long relevantMask(int sq, boolean rook) {
+        int row = sq >> 3;
+        int col = sq & 7;
+        long mask = 0L;
+        int[][] directions = rook
+                ? new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}}
+                : new int[][] {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+        for (int[] dir : directions) {
+            int r = row + dir[0];
+            int c = col + dir[1];
+            while (r + dir[0] >= 0 && r + dir[0] < 8 && c + dir[1] >= 0 && c + dir[1] < 8) {
+                mask |= 1L << (r * 8 + c);
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Reports table generation time and memory, then cross-checks the tables against the
+     * ray-walking code in bitboards and the String[][] path checks in validateMove.
+     */
+    public static void main(String[] args) {
+        System.out.printf("Magic tables generated in %.2f ms, %d rook + %d bishop entries, %d KB%n",
+                GENERATION_NANOS / 1e6, ROOK_TABLE.length, BISHOP_TABLE.length, memoryFootprint() / 1024);
+
+        Random random = new Random(1);
+        int mismatches = 0;
+        int boardsChecked = 0;
+
+        for (int trial = 0; trial < 20000; trial++) {
+            // Random sparse-to-dense occupancy
+            long occupied = random.nextLong() & random.nextLong();
+            if ((trial & 1) == 0) {
+                occupied &= random.nextLong();
+            }
+
+            for (int sq = 0; sq < 64; sq++) {
+                if (bitboards.rayRookAttacks(sq, occupied) != rookAttacks(sq, occupied)) mismatches++;
+                if (bitboards.rayBishopAttacks(sq, occupied) != bishopAttacks(sq, occupied)) mismatches++;
+            }
+
+            // Compare against validateMove on a subset of boards (it is much slower)
+            if (trial % 20 == 0) {
+                int sq = random.nextInt(64);
+                long blockers = occupied & ~(1L << sq);
+                String[][] board = new String[8][8];
+                for (int s = 0; s < 64; s++) {
+                    if ((blockers & (1L << s)) != 0) {
+                        board[s >> 3][s & 7] = "pawnB";
+                    }
+                }
+
+                for (String piece : new String[] {"rookW", "bishopW"}) {
+                    board[sq >> 3][sq & 7] = piece;
+                    long expected = piece.equals("rookW") ? rookAttacks(sq, blockers) : bishopAttacks(sq, blockers);
+                    for (int to = 0; to < 64; to++) {
+                        boolean valid = validateMove.isValidMove(board, sq >> 3, sq & 7, to >> 3, to & 7, piece, true);
+                        if (valid != ((expected & (1L << to)) != 0)) {
+                            mismatches++;
+                        }
+                    }
+                }
+                boardsChecked++;
+            }
+        }
+
+        // Lookup speed
+        long sink = 0;
+        long start = System.nanoTime();
+        int queries = 0;
+        for (int trial = 0; trial < 200; trial++) {
+            long occupied = random.nextLong() & random.nextLong();
+            for (int rep = 0; rep < 100; rep++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    sink ^= rookAttacks(sq, occupied) ^ bishopAttacks(sq, occupied ^ rep);
+                    queries += 2;
+                }
+            }
+        }
+        long magicNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int trial = 0; trial < 200; trial++) {
+            long occupied = random.nextLong() & random.nextLong();
+            for (int rep = 0; rep < 100; rep++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    sink ^= bitboards.rayRookAttacks(sq, occupied) ^ bitboards.rayBishopAttacks(sq, occupied ^ rep);
+                }
+            }
+        }
+        long rayNanos = System.nanoTime() - start;
+
+        System.out.printf("Lookup: %.1f ns/query magic, %.1f ns/query ray walking (%d)%n",
+                (double) magicNanos / queries, (double) rayNanos / queries, sink & 1);
+        System.out.println("Checked against validateMove on " + boardsChecked + " boards, mismatches: " + mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.programming.chess.rules;
+
+/**
+ * Helpers for the compact int move encoding used by the bitboard position and move generator.
+ *
+ * Layout: bits 0-5 from square, bits 6-11 to square, bits 12-14 promotion piece type,
+ * bits 15-17 special move flag.
+ */
+public class moveEncoding {
+
+    public static final int NONE = 0;
+
+    // Special move flags
+    public static final int FLAG_NORMAL = 0;
+    public static final int FLAG_DOUBLE_PUSH = 1;
+    public static final int FLAG_EN_PASSANT = 2;
+    public static final int FLAG_CASTLING = 3;
+    public static final int FLAG_PROMOTION = 4;
+
+    public static int encode(int from, int to, int flag, int promotionType) {
+        return from | (to << 6) | (promotionType << 12) | (flag << 15);
+    }
+
+    public static int encode(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * Promotion piece type (position.KNIGHT .. position.QUEEN), only meaningful for promotions
+     */
+    public static int promotionType(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 15) & 7;
+    }
+
+    public static boolean isPromotion(int move) {
+        return flag(move) == FLAG_PROMOTION;
+    }
+
+    /**
+     * Converts a move to UCI-style long algebraic notation (e.g. "e2e4", "e7e8q")
+     */
+    public static String toUci(int move) {
+        String text = bitboards.squareName(from(move)) + bitboards.squareName(to(move));
+        if (isPromotion(move)) {
+            text += "nbrq".charAt(promotionType(move) - position.KNIGHT);
+        }
+        return text;
+    }
+}
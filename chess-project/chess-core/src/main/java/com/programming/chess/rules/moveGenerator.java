@@ -0,0 +1,330 @@
+package com.programming.chess.rules;
+
+import static com.programming.chess.rules.bitboards.BETWEEN;
+import static com.programming.chess.rules.bitboards.KING_ATTACKS;
+import static com.programming.chess.rules.bitboards.KNIGHT_ATTACKS;
+import static com.programming.chess.rules.bitboards.LINE;
+import static com.programming.chess.rules.bitboards.PAWN_ATTACKS;
+
+import java.util.Arrays;
+
+/**
+ * Strictly legal move generator for the bitboard position.
+ *
+ * Instead of playing every pseudo-legal move and asking whether the king is attacked,
+ * the checkers and pinned pieces are computed once per node. Non-king moves are then
+ * restricted to the check-blocking mask and, for pinned pieces, to the pin ray.
+ * King moves and en passant captures are the only moves that need an attack test.
+ */
+public class moveGenerator {
+
+    // Upper bound on the number of legal moves in any chess position
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * Generates all legal moves for the side to move
+     *
+     * @param pos The position to generate moves for
+     * @param moves Output buffer of at least MAX_MOVES entries
+     * @return The number of moves written to the buffer
+     */
+    public static int generateLegalMoves(position pos, int[] moves) {
+        int us = pos.sideToMove;
+        int them = us ^ 1;
+        long own = pos.colorBitboards[us];
+        long enemy = pos.colorBitboards[them];
+        long occupied = pos.occupied;
+        int king = pos.kingSquare(us);
+
+        long checkers = pos.attackersTo(king, occupied) & enemy;
+        long pinned = pinnedPieces(pos, us, king);
+        int count = 0;
+
+        // King moves are tested with the king removed so it cannot shield itself from a slider
+        long kingTargets = KING_ATTACKS[king] & ~own;
+        long withoutKing = occupied ^ (1L << king);
+        while (kingTargets != 0) {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+            if (!pos.isSquareAttacked(to, them, withoutKing)) {
+                moves[count++] = moveEncoding.encode(king, to);
+            }
+        }
+
+        // In double check only the king can move
+        if (Long.bitCount(checkers) > 1) {
+            return count;
+        }
+
+        // Squares that capture the checker or block its ray; everything when not in check
+        long checkMask = checkers == 0 ? -1L
+                : checkers | BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        long targetMask = ~own & checkMask;
+
+        // Knights: a pinned knight can never move
+        long knights = pos.pieceBitboards[us * 6 + position.KNIGHT] & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(moves, count, from, KNIGHT_ATTACKS[from] & targetMask);
+        }
+
+        long queens = pos.pieceBitboards[us * 6 + position.QUEEN];
+
+        long diagonalSliders = pos.pieceBitboards[us * 6 + position.BISHOP] | queens;
+        while (diagonalSliders != 0) {
+            int from = Long.numberOfTrailingZeros(diagonalSliders);
+            diagonalSliders &= diagonalSliders - 1;
+            long targets = bitboards.bishopAttacks(from, occupied) & targetMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= LINE[king][from];
+            }
+            count = addMoves(moves, count, from, targets);
+        }
+
+        long straightSliders = pos.pieceBitboards[us * 6 + position.ROOK] | queens;
+        while (straightSliders != 0) {
+            int from = Long.numberOfTrailingZeros(straightSliders);
+            straightSliders &= straightSliders - 1;
+            long targets = bitboards.rookAttacks(from, occupied) & targetMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= LINE[king][from];
+            }
+            count = addMoves(moves, count, from, targets);
+        }
+
+        count = generatePawnMoves(pos, moves, count, us, king, pinned, checkMask);
+
+        if (checkers == 0) {
+            count = generateCastling(pos, moves, count, us);
+        }
+
+        return count;
+    }
+
+    /**
+     * Collects the legal destination squares of every piece of the side to move as bitmasks,
+     * so a drop or a move request can be validated with a single bit test
+     *
+     * @param pos The position to generate moves for
+     * @param targetsBySquare Output array of 64 entries, indexed by origin square
+     */
+    public static void legalTargets(position pos, long[] targetsBySquare) {
+        Arrays.fill(targetsBySquare, 0L);
+
+        int[] moves = new int[MAX_MOVES];
+        int count = generateLegalMoves(pos, moves);
+        for (int i = 0; i < count; i++) {
+            targetsBySquare[moveEncoding.from(moves[i])] |= 1L << moveEncoding.to(moves[i]);
+        }
+    }
+
+    /**
+     * Checks whether the side to move has at least one legal move, stopping at the first one found.
+     * Uses the same check and pin masks as generateLegalMoves but only tests whether each
+     * piece's target set is non-empty, trying king moves first since they are usually available.
+     */
+    public static boolean hasLegalMove(position pos) {
+        int us = pos.sideToMove;
+        int them = us ^ 1;
+        long own = pos.colorBitboards[us];
+        long occupied = pos.occupied;
+        int king = pos.kingSquare(us);
+
+        long kingTargets = KING_ATTACKS[king] & ~own;
+        long withoutKing = occupied ^ (1L << king);
+        while (kingTargets != 0) {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+            if (!pos.isSquareAttacked(to, them, withoutKing)) {
+                return true;
+            }
+        }
+
+        long checkers = pos.attackersTo(king, occupied) & pos.colorBitboards[them];
+        if (Long.bitCount(checkers) > 1) {
+            return false;
+        }
+
+        long pinned = pinnedPieces(pos, us, king);
+        long checkMask = checkers == 0 ? -1L
+                : checkers | BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        long targetMask = ~own & checkMask;
+
+        long knights = pos.pieceBitboards[us * 6 + position.KNIGHT] & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            if ((KNIGHT_ATTACKS[from] & targetMask) != 0) {
+                return true;
+            }
+        }
+
+        long queens = pos.pieceBitboards[us * 6 + position.QUEEN];
+        long sliders = pos.pieceBitboards[us * 6 + position.BISHOP] | pos.pieceBitboards[us * 6 + position.ROOK] | queens;
+        while (sliders != 0) {
+            int from = Long.numberOfTrailingZeros(sliders);
+            sliders &= sliders - 1;
+            int type = pos.squares[from] % 6;
+
+            long targets = 0L;
+            if (type != position.ROOK) {
+                targets |= bitboards.bishopAttacks(from, occupied);
+            }
+            if (type != position.BISHOP) {
+                targets |= bitboards.rookAttacks(from, occupied);
+            }
+            targets &= targetMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= LINE[king][from];
+            }
+            if (targets != 0) {
+                return true;
+            }
+        }
+
+        // Castling is not needed here: if castling is legal, so is the king's step towards the rook.
+        // Without an output array the pawn generator stops at the first move, allocating nothing.
+        return generatePawnMoves(pos, null, 0, us, king, pinned, checkMask) > 0;
+    }
+
+    /**
+     * Pieces of the given color pinned against their own king
+     */
+    static long pinnedPieces(position pos, int us, int king) {
+        int them = us ^ 1;
+        long enemy = pos.colorBitboards[them];
+        long enemyQueens = pos.pieceBitboards[them * 6 + position.QUEEN];
+
+        // Enemy sliders that would attack the king if our pieces were not in the way
+        long snipers = (bitboards.rookAttacks(king, enemy)
+                        & (pos.pieceBitboards[them * 6 + position.ROOK] | enemyQueens))
+                     | (bitboards.bishopAttacks(king, enemy)
+                        & (pos.pieceBitboards[them * 6 + position.BISHOP] | enemyQueens));
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = BETWEEN[king][sniper] & pos.occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & pos.colorBitboards[us];
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Appends the legal pawn moves. With a null moves array nothing is written: the method
+     * returns 1 as soon as it finds any legal pawn move, and 0 if there is none.
+     */
+    private static int generatePawnMoves(position pos, int[] moves, int count, int us, int king,
+                                         long pinned, long checkMask) {
+        int them = us ^ 1;
+        long pawns = pos.pieceBitboards[us * 6 + position.PAWN];
+        long enemy = pos.colorBitboards[them];
+        long empty = ~pos.occupied;
+        int forward = us == position.WHITE ? -8 : 8;
+        long doublePushStops = us == position.WHITE ? bitboards.RANK_3 : bitboards.RANK_6;
+
+        long remaining = pawns;
+        while (remaining != 0) {
+            int from = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+
+            long targets = 0L;
+            long single = (1L << (from + forward)) & empty;
+            targets |= single;
+            if ((single & doublePushStops) != 0) {
+                targets |= (1L << (from + 2 * forward)) & empty;
+            }
+            targets |= PAWN_ATTACKS[us][from] & enemy;
+            targets &= checkMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= LINE[king][from];
+            }
+
+            if (moves == null && targets != 0) {
+                return 1;
+            }
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+
+                if (to < 8 || to >= 56) {
+                    for (int type = position.QUEEN; type >= position.KNIGHT; type--) {
+                        moves[count++] = moveEncoding.encode(from, to, moveEncoding.FLAG_PROMOTION, type);
+                    }
+                } else if (Math.abs(to - from) == 16) {
+                    moves[count++] = moveEncoding.encode(from, to, moveEncoding.FLAG_DOUBLE_PUSH, 0);
+                } else {
+                    moves[count++] = moveEncoding.encode(from, to);
+                }
+            }
+        }
+
+        // En passant removes two pawns from the same rank at once, so a pin check alone
+        // is not enough: verify directly that no slider sees the king afterwards
+        int ep = pos.enPassantSquare;
+        if (ep >= 0) {
+            int capturedSquare = ep - forward;
+            if ((checkMask & ((1L << ep) | (1L << capturedSquare))) != 0) {
+                long enemyQueens = pos.pieceBitboards[them * 6 + position.QUEEN];
+                long enemyStraight = pos.pieceBitboards[them * 6 + position.ROOK] | enemyQueens;
+                long enemyDiagonal = pos.pieceBitboards[them * 6 + position.BISHOP] | enemyQueens;
+
+                long capturers = PAWN_ATTACKS[them][ep] & pawns;
+                while (capturers != 0) {
+                    int from = Long.numberOfTrailingZeros(capturers);
+                    capturers &= capturers - 1;
+
+                    long after = (pos.occupied ^ (1L << from) ^ (1L << capturedSquare)) | (1L << ep);
+                    if ((bitboards.rookAttacks(king, after) & enemyStraight) == 0
+                            && (bitboards.bishopAttacks(king, after) & enemyDiagonal) == 0) {
+                        if (moves == null) {
+                            return 1;
+                        }
+                        moves[count++] = moveEncoding.encode(from, ep, moveEncoding.FLAG_EN_PASSANT, 0);
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private static int generateCastling(position pos, int[] moves, int count, int us) {
+        int them = us ^ 1;
+        long occupied = pos.occupied;
+        int rights = pos.castlingRights;
+        int rank = us == position.WHITE ? 56 : 0;
+        int kingside = us == position.WHITE ? position.WHITE_KINGSIDE : position.BLACK_KINGSIDE;
+        int queenside = us == position.WHITE ? position.WHITE_QUEENSIDE : position.BLACK_QUEENSIDE;
+
+        // The king may not pass through or land on an attacked square
+        if ((rights & kingside) != 0
+                && (occupied & ((1L << (rank + 5)) | (1L << (rank + 6)))) == 0
+                && !pos.isSquareAttacked(rank + 5, them, occupied)
+                && !pos.isSquareAttacked(rank + 6, them, occupied)) {
+            moves[count++] = moveEncoding.encode(rank + 4, rank + 6, moveEncoding.FLAG_CASTLING, 0);
+        }
+
+        if ((rights & queenside) != 0
+                && (occupied & ((1L << (rank + 1)) | (1L << (rank + 2)) | (1L << (rank + 3)))) == 0
+                && !pos.isSquareAttacked(rank + 3, them, occupied)
+                && !pos.isSquareAttacked(rank + 2, them, occupied)) {
+            moves[count++] = moveEncoding.encode(rank + 4, rank + 2, moveEncoding.FLAG_CASTLING, 0);
+        }
+
+        return count;
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = moveEncoding.encode(from, to);
+        }
+        return count;
+    }
+}
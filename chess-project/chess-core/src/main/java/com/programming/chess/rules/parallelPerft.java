@@ -0,0 +1,141 @@
+package com.programming.chess.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join perft. The tree is split at the root and at the second ply; every subtask
+ * works on its own copy of the position, so no state is shared between worker threads.
+ */
+public class parallelPerft {
+
+    // Below this depth a subtree is too small to be worth a task of its own
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    /**
+     * Counts leaf nodes at the given depth on the common fork-join pool
+     */
+    public static long perft(position pos, int depth) {
+        return perft(pos, depth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts leaf nodes at the given depth on the supplied pool
+     */
+    public static long perft(position pos, int depth, ForkJoinPool pool) {
+        if (depth < MIN_SPLIT_DEPTH) {
+            return perft.perft(pos.copy(), depth);
+        }
+        return pool.invoke(new PerftTask(pos.copy(), depth, 2));
+    }
+
+    /**
+     * Counts the subtree below a position, forking one subtask per move while splitLevels remain
+     */
+    private static class PerftTask extends RecursiveTask<Long> {
+        private final position pos;
+        private final int depth;
+        private final int splitLevels;
+
+        PerftTask(position pos, int depth, int splitLevels) {
+            this.pos = pos;
+            this.depth = depth;
+            this.splitLevels = splitLevels;
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitLevels == 0 || depth < MIN_SPLIT_DEPTH) {
+                return perft.perft(pos, depth);
+            }
+
+            int[] moves = new int[moveGenerator.MAX_MOVES];
+            int count = moveGenerator.generateLegalMoves(pos, moves);
+
+            List<PerftTask> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                position child = pos.copy();
+                child.makeMove(moves[i]);
+                tasks.add(new PerftTask(child, depth - 1, splitLevels - 1));
+            }
+
+            long nodes = 0;
+            for (PerftTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Thread counts to benchmark: powers of two up to the maximum, plus the maximum itself
+     */
+    static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+
+    /**
+     * Runs the perft reference suite on pools of increasing size and reports the speedup
+     * over a single thread. Every pool size first runs one untimed pass to warm up the JIT;
+     * the timed rounds then alternate the order of the pool sizes and the best round counts,
+     * so neither warmup nor position in the sequence favours one size.
+     * Usage: parallelPerft [maxThreads] [rounds]
+     */
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        List<Integer> counts = threadCounts(maxThreads);
+
+        long totalNodes = 0;
+        for (long nodes : perft.REFERENCE_COUNTS) {
+            totalNodes += nodes;
+        }
+        for (int threads : counts) {
+            runSuite(threads);
+        }
+
+        long[] bestNanos = new long[counts.size()];
+        Arrays.fill(bestNanos, Long.MAX_VALUE);
+        for (int round = 0; round < rounds; round++) {
+            for (int k = 0; k < counts.size(); k++) {
+                int index = round % 2 == 0 ? k : counts.size() - 1 - k;
+                bestNanos[index] = Math.min(bestNanos[index], runSuite(counts.get(index)));
+            }
+        }
+
+        for (int index = 0; index < counts.size(); index++) {
+            long elapsed = bestNanos[index];
+            System.out.printf("%2d threads: %d nodes in %d ms, %.1f Mnps, speedup %.2fx (best of %d)%n",
+                    counts.get(index), totalNodes, elapsed / 1_000_000, totalNodes * 1000.0 / elapsed,
+                    (double) bestNanos[0] / elapsed, rounds);
+        }
+    }
+
+    /**
+     * Runs the whole reference suite on a new pool, exiting on a wrong count
+     * @return Elapsed nanoseconds
+     */
+    private static long runSuite(int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < perft.REFERENCE_FENS.length; i++) {
+            long nodes = perft(position.fromFen(perft.REFERENCE_FENS[i]), perft.REFERENCE_DEPTHS[i], pool);
+            if (nodes != perft.REFERENCE_COUNTS[i]) {
+                System.out.println("MISMATCH: " + perft.REFERENCE_FENS[i] + " got " + nodes
+                                   + " expected " + perft.REFERENCE_COUNTS[i]);
+                System.exit(1);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return elapsed;
+    }
+}
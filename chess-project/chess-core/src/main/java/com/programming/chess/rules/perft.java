@@ -0,0 +1,96 @@
+package com.programming.chess.rules;
+
+/**
+ * Performance test (perft): counts the leaf nodes of the legal move tree to a fixed depth.
+ * The counts for well-known positions are published, so perft doubles as a correctness
+ * check for the move generator and make/unmake.
+ */
+public class perft {
+
+    // Reference positions with their published node counts
+    static final String[] REFERENCE_FENS = {
+        position.START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+    static final int[] REFERENCE_DEPTHS = {5, 4, 6, 5, 4};
+    static final long[] REFERENCE_COUNTS = {4865609L, 4085603L, 11030083L, 15833292L, 2103487L};
+
+    /**
+     * Counts leaf nodes at the given depth
+     */
+    public static long perft(position pos, int depth) {
+        int[] moves = new int[moveGenerator.MAX_MOVES];
+        int count = moveGenerator.generateLegalMoves(pos, moves);
+
+        // With a strictly legal generator the last ply can be bulk-counted
+        if (depth <= 1) {
+            return depth == 1 ? count : 1;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            pos.makeMove(moves[i]);
+            nodes += perft(pos, depth - 1);
+            pos.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Prints the node count below each root move, useful for tracking down generator bugs
+     */
+    public static long divide(position pos, int depth) {
+        int[] moves = new int[moveGenerator.MAX_MOVES];
+        int count = moveGenerator.generateLegalMoves(pos, moves);
+
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            pos.makeMove(moves[i]);
+            long nodes = depth > 1 ? perft(pos, depth - 1) : 1;
+            pos.unmakeMove();
+            System.out.println(moveEncoding.toUci(moves[i]) + ": " + nodes);
+            total += nodes;
+        }
+        System.out.println("Total: " + total);
+        return total;
+    }
+
+    /**
+     * Usage: perft [fen depth]
+     * Without arguments runs the reference suite and reports nodes per second.
+     */
+    public static void main(String[] args) {
+        if (args.length >= 2) {
+            divide(position.fromFen(args[0]), Integer.parseInt(args[1]));
+            return;
+        }
+
+        boolean allPassed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+
+        for (int i = 0; i < REFERENCE_FENS.length; i++) {
+            position pos = position.fromFen(REFERENCE_FENS[i]);
+            long start = System.nanoTime();
+            long nodes = perft(pos, REFERENCE_DEPTHS[i]);
+            long elapsed = System.nanoTime() - start;
+
+            boolean passed = nodes == REFERENCE_COUNTS[i];
+            allPassed &= passed;
+            totalNodes += nodes;
+            totalNanos += elapsed;
+
+            System.out.printf("%s depth %d: %d nodes in %d ms (%s)%n",
+                    REFERENCE_FENS[i], REFERENCE_DEPTHS[i], nodes, elapsed / 1_000_000,
+                    passed ? "OK" : "expected " + REFERENCE_COUNTS[i]);
+        }
+
+        System.out.printf("Total: %d nodes, %.1f Mnps%n", totalNodes, totalNodes * 1000.0 / totalNanos);
+        if (!allPassed) {
+            System.exit(1);
+        }
+    }
+}
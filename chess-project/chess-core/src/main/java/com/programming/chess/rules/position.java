@@ -0,0 +1,642 @@
+package com.programming.chess.rules;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position with make/unmake support.
+ *
+ * Unlike the GUI's String[][] board and the gameState singleton, a position is self-contained:
+ * it carries side to move, castling rights, en passant square, move clocks and a Zobrist hash,
+ * so any number of independent positions can be searched or analysed at the same time.
+ */
+public class position {
+
+    // Colors
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Piece types
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    // Piece codes are color * 6 + type
+    public static final int EMPTY = -1;
+
+    // Castling right bits
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+    private static final String[] PIECE_NAMES = {"pawn", "knight", "bishop", "rook", "queen", "king"};
+
+    // a8 is a light square; light squares have an even row + col
+    private static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;
+
+    // Castling rights that survive a move touching each square
+    private static final int[] CASTLING_MASK = new int[64];
+
+    // Zobrist keys, generated from a fixed seed so hashes are stable between runs
+    static final long[][] PIECE_KEYS = new long[12][64];
+    static final long[] CASTLING_KEYS = new long[16];
+    static final long[] EN_PASSANT_KEYS = new long[8];
+    static final long SIDE_KEY;
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[60] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE); // e1
+        CASTLING_MASK[63] &= ~WHITE_KINGSIDE;                     // h1
+        CASTLING_MASK[56] &= ~WHITE_QUEENSIDE;                    // a1
+        CASTLING_MASK[4] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);  // e8
+        CASTLING_MASK[7] &= ~BLACK_KINGSIDE;                      // h8
+        CASTLING_MASK[0] &= ~BLACK_QUEENSIDE;                     // a8
+
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                seed = nextRandom(seed);
+                PIECE_KEYS[piece][sq] = mix(seed);
+            }
+        }
+        for (int i = 0; i < 16; i++) {
+            seed = nextRandom(seed);
+            CASTLING_KEYS[i] = mix(seed);
+        }
+        for (int i = 0; i < 8; i++) {
+            seed = nextRandom(seed);
+            EN_PASSANT_KEYS[i] = mix(seed);
+        }
+        seed = nextRandom(seed);
+        SIDE_KEY = mix(seed);
+    }
+
+    private static long nextRandom(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    final long[] pieceBitboards = new long[12];
+    final long[] colorBitboards = new long[2];
+    long occupied;
+    final int[] squares = new int[64];
+    final int[] pieceCounts = new int[12];
+
+    int sideToMove = WHITE;
+    int castlingRights;
+    int enPassantSquare = -1;
+    int halfmoveClock;
+    int fullmoveNumber = 1;
+    long hash;
+
+    // Undo stack, one entry per move played on this position
+    private int historyLength;
+    private int[] undoMove = new int[256];
+    private int[] undoCaptured = new int[256];
+    private int[] undoCastling = new int[256];
+    private int[] undoEnPassant = new int[256];
+    private int[] undoHalfmove = new int[256];
+    private long[] undoHash = new long[256];
+
+    public position() {
+        Arrays.fill(squares, EMPTY);
+    }
+
+    /**
+     * Creates the standard starting position
+     */
+    public static position startPosition() {
+        return fromFen(START_FEN);
+    }
+
+    /**
+     * Parses a position from Forsyth-Edwards Notation.
+     * The move clocks are optional so EPD lines can be parsed as well.
+     * @throws IllegalArgumentException if the FEN is malformed, a side has no king or more
+     *         than one, or the side that just moved has left its king in check
+     */
+    public static position fromFen(String fen) {
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        position pos = new position();
+
+        int row = 0;
+        int col = 0;
+        for (char c : parts[0].toCharArray()) {
+            if (c == '/') {
+                row++;
+                col = 0;
+            } else if (Character.isDigit(c)) {
+                col += c - '0';
+            } else {
+                int piece = PIECE_CHARS.indexOf(c);
+                if (piece < 0 || row > 7 || col > 7) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                pos.addPiece(row * 8 + col, piece);
+                col++;
+            }
+        }
+
+        pos.sideToMove = parts[1].equals("b") ? BLACK : WHITE;
+
+        pos.castlingRights = 0;
+        if (parts[2].indexOf('K') >= 0) pos.castlingRights |= WHITE_KINGSIDE;
+        if (parts[2].indexOf('Q') >= 0) pos.castlingRights |= WHITE_QUEENSIDE;
+        if (parts[2].indexOf('k') >= 0) pos.castlingRights |= BLACK_KINGSIDE;
+        if (parts[2].indexOf('q') >= 0) pos.castlingRights |= BLACK_QUEENSIDE;
+
+        // Keep the en passant square only if it can be captured, matching makeMove
+        int epSquare = bitboards.parseSquare(parts[3]);
+        if (epSquare >= 0 && (bitboards.PAWN_ATTACKS[pos.sideToMove ^ 1][epSquare]
+                              & pos.pieceBitboards[pos.sideToMove * 6 + PAWN]) != 0) {
+            pos.enPassantSquare = epSquare;
+        }
+
+        if (parts.length > 4 && parts[4].matches("\\d+")) {
+            pos.halfmoveClock = Integer.parseInt(parts[4]);
+        }
+        if (parts.length > 5 && parts[5].matches("\\d+")) {
+            pos.fullmoveNumber = Integer.parseInt(parts[5]);
+        }
+
+        // Move generation and check detection rely on exactly one king per side
+        if (Long.bitCount(pos.pieceBitboards[WHITE * 6 + KING]) != 1
+                || Long.bitCount(pos.pieceBitboards[BLACK * 6 + KING]) != 1) {
+            throw new IllegalArgumentException("FEN needs exactly one king per side: " + fen);
+        }
+        if (pos.isSquareAttacked(pos.kingSquare(pos.sideToMove ^ 1), pos.sideToMove, pos.occupied)) {
+            throw new IllegalArgumentException("Side not to move is in check: " + fen);
+        }
+
+        pos.hash = pos.computeHash();
+        return pos;
+    }
+
+    /**
+     * Writes the position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = squares[row * 8 + col];
+                if (piece == EMPTY) {
+                    empty++;
+                } else {
+                    if (empty > 0) {
+                        fen.append(empty);
+                        empty = 0;
+                    }
+                    fen.append(PIECE_CHARS.charAt(piece));
+                }
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row < 7) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(sideToMove == WHITE ? " w " : " b ");
+
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) fen.append('K');
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) fen.append('Q');
+            if ((castlingRights & BLACK_KINGSIDE) != 0) fen.append('k');
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) fen.append('q');
+        }
+
+        fen.append(' ').append(enPassantSquare >= 0 ? bitboards.squareName(enPassantSquare) : "-");
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    /**
+     * Creates an independent copy of this position, including its move history
+     */
+    public position copy() {
+        position copy = new position();
+        System.arraycopy(pieceBitboards, 0, copy.pieceBitboards, 0, 12);
+        System.arraycopy(colorBitboards, 0, copy.colorBitboards, 0, 2);
+        System.arraycopy(squares, 0, copy.squares, 0, 64);
+        System.arraycopy(pieceCounts, 0, copy.pieceCounts, 0, 12);
+        copy.occupied = occupied;
+        copy.sideToMove = sideToMove;
+        copy.castlingRights = castlingRights;
+        copy.enPassantSquare = enPassantSquare;
+        copy.halfmoveClock = halfmoveClock;
+        copy.fullmoveNumber = fullmoveNumber;
+        copy.hash = hash;
+
+        copy.historyLength = historyLength;
+        copy.undoMove = Arrays.copyOf(undoMove, undoMove.length);
+        copy.undoCaptured = Arrays.copyOf(undoCaptured, undoCaptured.length);
+        copy.undoCastling = Arrays.copyOf(undoCastling, undoCastling.length);
+        copy.undoEnPassant = Arrays.copyOf(undoEnPassant, undoEnPassant.length);
+        copy.undoHalfmove = Arrays.copyOf(undoHalfmove, undoHalfmove.length);
+        copy.undoHash = Arrays.copyOf(undoHash, undoHash.length);
+        return copy;
+    }
+
+    // PIECE PLACEMENT
+
+    void addPiece(int sq, int piece) {
+        long b = 1L << sq;
+        pieceBitboards[piece] |= b;
+        colorBitboards[piece / 6] |= b;
+        occupied |= b;
+        squares[sq] = piece;
+        pieceCounts[piece]++;
+        hash ^= PIECE_KEYS[piece][sq];
+    }
+
+    private void removePiece(int sq) {
+        int piece = squares[sq];
+        long b = 1L << sq;
+        pieceBitboards[piece] &= ~b;
+        colorBitboards[piece / 6] &= ~b;
+        occupied &= ~b;
+        squares[sq] = EMPTY;
+        pieceCounts[piece]--;
+        hash ^= PIECE_KEYS[piece][sq];
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = squares[from];
+        long fromTo = (1L << from) | (1L << to);
+        pieceBitboards[piece] ^= fromTo;
+        colorBitboards[piece / 6] ^= fromTo;
+        occupied ^= fromTo;
+        squares[from] = EMPTY;
+        squares[to] = piece;
+        hash ^= PIECE_KEYS[piece][from] ^ PIECE_KEYS[piece][to];
+    }
+
+    // MAKE / UNMAKE
+
+    /**
+     * Plays a move produced by the move generator. The move is assumed to be legal.
+     */
+    public void makeMove(int move) {
+        int from = moveEncoding.from(move);
+        int to = moveEncoding.to(move);
+        int flag = moveEncoding.flag(move);
+        int us = sideToMove;
+        int piece = squares[from];
+
+        int capturedSquare = flag == moveEncoding.FLAG_EN_PASSANT ? to + (us == WHITE ? 8 : -8) : to;
+        int captured = squares[capturedSquare];
+
+        ensureHistoryCapacity();
+        undoMove[historyLength] = move;
+        undoCaptured[historyLength] = captured;
+        undoCastling[historyLength] = castlingRights;
+        undoEnPassant[historyLength] = enPassantSquare;
+        undoHalfmove[historyLength] = halfmoveClock;
+        undoHash[historyLength] = hash;
+        historyLength++;
+
+        if (enPassantSquare >= 0) {
+            hash ^= EN_PASSANT_KEYS[enPassantSquare & 7];
+            enPassantSquare = -1;
+        }
+
+        if (captured != EMPTY) {
+            removePiece(capturedSquare);
+        }
+        movePiece(from, to);
+
+        if (flag == moveEncoding.FLAG_PROMOTION) {
+            removePiece(to);
+            addPiece(to, us * 6 + moveEncoding.promotionType(move));
+        } else if (flag == moveEncoding.FLAG_CASTLING) {
+            // Move the rook: kingside rook to the f-file, queenside rook to the d-file
+            int rank = to & ~7;
+            if ((to & 7) == 6) {
+                movePiece(rank + 7, rank + 5);
+            } else {
+                movePiece(rank, rank + 3);
+            }
+        } else if (flag == moveEncoding.FLAG_DOUBLE_PUSH) {
+            // Only record the en passant square when an enemy pawn can actually capture,
+            // so that otherwise identical positions hash the same for repetition detection
+            int target = (from + to) >> 1;
+            if ((bitboards.PAWN_ATTACKS[us][target] & pieceBitboards[(us ^ 1) * 6 + PAWN]) != 0) {
+                enPassantSquare = target;
+                hash ^= EN_PASSANT_KEYS[target & 7];
+            }
+        }
+
+        int newRights = castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+        if (newRights != castlingRights) {
+            hash ^= CASTLING_KEYS[castlingRights] ^ CASTLING_KEYS[newRights];
+            castlingRights = newRights;
+        }
+
+        if (piece % 6 == PAWN || captured != EMPTY) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+
+        if (us == BLACK) {
+            fullmoveNumber++;
+        }
+
+        sideToMove = us ^ 1;
+        hash ^= SIDE_KEY;
+    }
+
+    /**
+     * Takes back the last move played with makeMove
+     */
+    public void unmakeMove() {
+        historyLength--;
+        int move = undoMove[historyLength];
+        int captured = undoCaptured[historyLength];
+
+        int from = moveEncoding.from(move);
+        int to = moveEncoding.to(move);
+        int flag = moveEncoding.flag(move);
+
+        sideToMove ^= 1;
+        int us = sideToMove;
+
+        if (flag == moveEncoding.FLAG_PROMOTION) {
+            removePiece(to);
+            addPiece(to, us * 6 + PAWN);
+        } else if (flag == moveEncoding.FLAG_CASTLING) {
+            int rank = to & ~7;
+            if ((to & 7) == 6) {
+                movePiece(rank + 5, rank + 7);
+            } else {
+                movePiece(rank + 3, rank);
+            }
+        }
+
+        movePiece(to, from);
+
+        if (captured != EMPTY) {
+            int capturedSquare = flag == moveEncoding.FLAG_EN_PASSANT ? to + (us == WHITE ? 8 : -8) : to;
+            addPiece(capturedSquare, captured);
+        }
+
+        if (us == BLACK) {
+            fullmoveNumber--;
+        }
+
+        castlingRights = undoCastling[historyLength];
+        enPassantSquare = undoEnPassant[historyLength];
+        halfmoveClock = undoHalfmove[historyLength];
+        hash = undoHash[historyLength];
+    }
+
+    /**
+     * Passes the turn without moving, for null-move pruning in the search.
+     * Must be taken back with unmakeNullMove.
+     */
+    public void makeNullMove() {
+        ensureHistoryCapacity();
+        undoMove[historyLength] = 0;
+        undoCaptured[historyLength] = EMPTY;
+        undoCastling[historyLength] = castlingRights;
+        undoEnPassant[historyLength] = enPassantSquare;
+        undoHalfmove[historyLength] = halfmoveClock;
+        undoHash[historyLength] = hash;
+        historyLength++;
+
+        if (enPassantSquare >= 0) {
+            hash ^= EN_PASSANT_KEYS[enPassantSquare & 7];
+            enPassantSquare = -1;
+        }
+        halfmoveClock++;
+        sideToMove ^= 1;
+        hash ^= SIDE_KEY;
+    }
+
+    /**
+     * Takes back a move played with makeNullMove
+     */
+    public void unmakeNullMove() {
+        historyLength--;
+        sideToMove ^= 1;
+        enPassantSquare = undoEnPassant[historyLength];
+        halfmoveClock = undoHalfmove[historyLength];
+        hash = undoHash[historyLength];
+    }
+
+    private void ensureHistoryCapacity() {
+        if (historyLength < undoMove.length) {
+            return;
+        }
+        int size = undoMove.length * 2;
+        undoMove = Arrays.copyOf(undoMove, size);
+        undoCaptured = Arrays.copyOf(undoCaptured, size);
+        undoCastling = Arrays.copyOf(undoCastling, size);
+        undoEnPassant = Arrays.copyOf(undoEnPassant, size);
+        undoHalfmove = Arrays.copyOf(undoHalfmove, size);
+        undoHash = Arrays.copyOf(undoHash, size);
+    }
+
+    // ATTACKS
+
+    /**
+     * All pieces of either color that attack a square, given an occupancy
+     */
+    public long attackersTo(int sq, long occupancy) {
+        return (bitboards.PAWN_ATTACKS[BLACK][sq] & pieceBitboards[PAWN])
+             | (bitboards.PAWN_ATTACKS[WHITE][sq] & pieceBitboards[6 + PAWN])
+             | (bitboards.KNIGHT_ATTACKS[sq] & (pieceBitboards[KNIGHT] | pieceBitboards[6 + KNIGHT]))
+             | (bitboards.KING_ATTACKS[sq] & (pieceBitboards[KING] | pieceBitboards[6 + KING]))
+             | (bitboards.rookAttacks(sq, occupancy) & (pieceBitboards[ROOK] | pieceBitboards[6 + ROOK]
+                                                       | pieceBitboards[QUEEN] | pieceBitboards[6 + QUEEN]))
+             | (bitboards.bishopAttacks(sq, occupancy) & (pieceBitboards[BISHOP] | pieceBitboards[6 + BISHOP]
+                                                         | pieceBitboards[QUEEN] | pieceBitboards[6 + QUEEN]));
+    }
+
+    /**
+     * Checks whether a square is attacked by the given color
+     */
+    public boolean isSquareAttacked(int sq, int byColor, long occupancy) {
+        int base = byColor * 6;
+        if ((bitboards.PAWN_ATTACKS[byColor ^ 1][sq] & pieceBitboards[base + PAWN]) != 0) return true;
+        if ((bitboards.KNIGHT_ATTACKS[sq] & pieceBitboards[base + KNIGHT]) != 0) return true;
+        if ((bitboards.KING_ATTACKS[sq] & pieceBitboards[base + KING]) != 0) return true;
+        long queens = pieceBitboards[base + QUEEN];
+        if ((bitboards.rookAttacks(sq, occupancy) & (pieceBitboards[base + ROOK] | queens)) != 0) return true;
+        return (bitboards.bishopAttacks(sq, occupancy) & (pieceBitboards[base + BISHOP] | queens)) != 0;
+    }
+
+    /**
+     * Checks whether the side to move is in check
+     */
+    public boolean inCheck() {
+        return isSquareAttacked(kingSquare(sideToMove), sideToMove ^ 1, occupied);
+    }
+
+    public int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieceBitboards[color * 6 + KING]);
+    }
+
+    // ACCESSORS
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
+    public long getPieces(int color, int type) {
+        return pieceBitboards[color * 6 + type];
+    }
+
+    public long getColorPieces(int color) {
+        return colorBitboards[color];
+    }
+
+    /**
+     * Piece code (color * 6 + type) on a square, or EMPTY
+     */
+    public int pieceAt(int sq) {
+        return squares[sq];
+    }
+
+    /**
+     * Number of pieces of a color and type currently on the board
+     */
+    public int pieceCount(int color, int type) {
+        return pieceCounts[color * 6 + type];
+    }
+
+    /**
+     * Number of moves played on this position since it was created
+     */
+    public int getHistoryLength() {
+        return historyLength;
+    }
+
+    /**
+     * The move played at a given index of this position's history
+     */
+    public int getHistoryMove(int index) {
+        return undoMove[index];
+    }
+
+    /**
+     * Counts how often the current position has occurred, including now.
+     * Only positions since the last capture or pawn move can repeat, so the scan
+     * is bounded by the halfmove clock.
+     */
+    public int repetitionCount() {
+        int repetitions = 1;
+        int oldest = historyLength - Math.min(halfmoveClock, historyLength);
+        for (int i = historyLength - 2; i >= oldest; i -= 2) {
+            if (undoHash[i] == hash) {
+                repetitions++;
+            }
+        }
+        return repetitions;
+    }
+
+    /**
+     * Checks whether neither side can possibly deliver mate: bare kings, a single minor piece,
+     * or only bishops that all stand on squares of the same color.
+     * Uses the incrementally maintained piece counters, so no board scan is needed.
+     */
+    public boolean isInsufficientMaterial() {
+        for (int color = WHITE; color <= BLACK; color++) {
+            if (pieceCounts[color * 6 + PAWN] + pieceCounts[color * 6 + ROOK] + pieceCounts[color * 6 + QUEEN] > 0) {
+                return false;
+            }
+        }
+
+        int knights = pieceCounts[KNIGHT] + pieceCounts[6 + KNIGHT];
+        int bishops = pieceCounts[BISHOP] + pieceCounts[6 + BISHOP];
+        if (knights + bishops <= 1) {
+            return true;
+        }
+        if (knights > 0) {
+            return false;
+        }
+
+        long allBishops = pieceBitboards[BISHOP] | pieceBitboards[6 + BISHOP];
+        return (allBishops & LIGHT_SQUARES) == 0 || (allBishops & ~LIGHT_SQUARES) == 0;
+    }
+
+    /**
+     * Converts a piece code to the GUI's piece name (e.g. WHITE * 6 + KNIGHT -> "knightW")
+     */
+    public static String pieceName(int piece) {
+        if (piece == EMPTY) {
+            return null;
+        }
+        return PIECE_NAMES[piece % 6] + (piece < 6 ? "W" : "B");
+    }
+
+    /**
+     * Recomputes the Zobrist hash from scratch
+     */
+    long computeHash() {
+        long h = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            if (squares[sq] != EMPTY) {
+                h ^= PIECE_KEYS[squares[sq]][sq];
+            }
+        }
+        h ^= CASTLING_KEYS[castlingRights];
+        if (enPassantSquare >= 0) {
+            h ^= EN_PASSANT_KEYS[enPassantSquare & 7];
+        }
+        if (sideToMove == BLACK) {
+            h ^= SIDE_KEY;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
@@ -0,0 +1,149 @@
+package com.programming.chess.rules;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bulk position analysis: legal move counts plus check, checkmate and stalemate flags
+ * for large sets of FEN strings, spread over all cores with a fork-join pool.
+ */
+public class positionAnalyzer {
+
+    /**
+     * Analysis result for a single position
+     */
+    public static class Result {
+        public final String fen;
+        public final int legalMoves;
+        public final boolean isCheck;
+        public final boolean isCheckMate;
+        public final boolean isStaleMate;
+        public final String error;
+
+        Result(String fen, int legalMoves, boolean isCheck, String error) {
+            this.fen = fen;
+            this.legalMoves = legalMoves;
+            this.isCheck = isCheck;
+            this.isCheckMate = error == null && isCheck && legalMoves == 0;
+            this.isStaleMate = error == null && !isCheck && legalMoves == 0;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            if (error != null) {
+                return fen + " ; error " + error;
+            }
+            return fen + " ; moves " + legalMoves
+                   + (isCheckMate ? " checkmate" : isStaleMate ? " stalemate" : isCheck ? " check" : "");
+        }
+    }
+
+    /**
+     * Analyses a single FEN. Malformed input is reported in the result rather than thrown.
+     */
+    public static Result analyze(String fen) {
+        try {
+            position pos = position.fromFen(fen);
+            int count = moveGenerator.generateLegalMoves(pos, new int[moveGenerator.MAX_MOVES]);
+            return new Result(fen, count, pos.inCheck(), null);
+        } catch (RuntimeException e) {
+            return new Result(fen, 0, false, e.getMessage());
+        }
+    }
+
+    /**
+     * Analyses a stream of FENs on the common fork-join pool, preserving input order
+     */
+    public static List<Result> analyzeAll(Stream<String> fens) {
+        return analyzeAll(fens, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Analyses a stream of FENs on the supplied pool, preserving input order
+     */
+    public static List<Result> analyzeAll(Stream<String> fens, ForkJoinPool pool) {
+        // A parallel stream started from inside a pool task runs on that pool
+        try {
+            return pool.submit(() -> fens.parallel()
+                                        .map(positionAnalyzer::analyze)
+                                        .collect(Collectors.toList()))
+                       .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Analysis failed", e.getCause());
+        }
+    }
+
+    /**
+     * Builds a reproducible set of positions by playing random legal games from the start position
+     */
+    static List<String> randomPositions(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> fens = new ArrayList<>(count);
+        int[] moves = new int[moveGenerator.MAX_MOVES];
+
+        while (fens.size() < count) {
+            position pos = position.startPosition();
+            for (int ply = 0; ply < 200 && fens.size() < count; ply++) {
+                int n = moveGenerator.generateLegalMoves(pos, moves);
+                if (n == 0) {
+                    break;
+                }
+                pos.makeMove(moves[random.nextInt(n)]);
+                fens.add(pos.toFen());
+            }
+        }
+        return fens;
+    }
+
+    /**
+     * Usage: positionAnalyzer [fenFile]
+     * With a file, prints one result line per FEN. Without arguments, benchmarks the bulk API
+     * on random positions with increasing thread counts and reports the scaling.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            try (Stream<String> lines = Files.lines(Path.of(args[0]))) {
+                for (Result result : analyzeAll(lines.filter(line -> !line.isBlank()))) {
+                    System.out.println(result);
+                }
+            }
+            return;
+        }
+
+        List<String> fens = randomPositions(200_000, 42);
+        analyzeAll(fens.stream()); // warm up
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        long baselineNanos = 0;
+        for (int threads : parallelPerft.threadCounts(maxThreads)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long start = System.nanoTime();
+            List<Result> results = analyzeAll(fens.stream(), pool);
+            long elapsed = System.nanoTime() - start;
+            pool.shutdown();
+            if (threads == 1) {
+                baselineNanos = elapsed;
+            }
+
+            long mates = results.stream().filter(r -> r.isCheckMate).count();
+            long stalemates = results.stream().filter(r -> r.isStaleMate).count();
+            long checks = results.stream().filter(r -> r.isCheck).count();
+            System.out.printf("%2d threads: %d positions in %d ms (%.0f positions/s), speedup %.2fx"
+                              + " [checks %d, mates %d, stalemates %d]%n",
+                    threads, results.size(), elapsed / 1_000_000, results.size() * 1e9 / elapsed,
+                    (double) baselineNanos / elapsed, checks, mates, stalemates);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.programming.chess.rules;
+
+/**
+ * Immutable, compact copy of a position without its move history.
+ *
+ * The 64 squares are packed four bits each (piece code + 1, 0 = empty) into four longs,
+ * and the side to move, castling rights, en passant square and halfmove clock share one int.
+ * A snapshot takes a few dozen bytes, so many of them can be kept for a long game.
+ */
+public final class positionSnapshot {
+
+    private final long squares0;
+    private final long squares1;
+    private final long squares2;
+    private final long squares3;
+    private final int state;        // bit 0 side, bits 1-4 castling, bits 5-11 en passant + 1, bits 12+ halfmove clock
+    private final int fullmoveNumber;
+    private final long hash;
+
+    private positionSnapshot(long[] packed, int state, int fullmoveNumber, long hash) {
+        this.squares0 = packed[0];
+        this.squares1 = packed[1];
+        this.squares2 = packed[2];
+        this.squares3 = packed[3];
+        this.state = state;
+        this.fullmoveNumber = fullmoveNumber;
+        this.hash = hash;
+    }
+
+    /**
+     * Captures the current state of a position
+     */
+    public static positionSnapshot of(position pos) {
+        long[] packed = new long[4];
+        for (int sq = 0; sq < 64; sq++) {
+            long code = pos.squares[sq] + 1;
+            packed[sq >>> 4] |= code << ((sq & 15) * 4);
+        }
+        int state = pos.sideToMove
+                  | pos.castlingRights << 1
+                  | (pos.enPassantSquare + 1) << 5
+                  | pos.halfmoveClock << 12;
+        return new positionSnapshot(packed, state, pos.fullmoveNumber, pos.hash);
+    }
+
+    /**
+     * Rebuilds a full position from this snapshot. The new position has an empty move history.
+     */
+    public position toPosition() {
+        position pos = new position();
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = pieceAt(sq);
+            if (piece != position.EMPTY) {
+                pos.addPiece(sq, piece);
+            }
+        }
+        pos.sideToMove = getSideToMove();
+        pos.castlingRights = getCastlingRights();
+        pos.enPassantSquare = getEnPassantSquare();
+        pos.halfmoveClock = getHalfmoveClock();
+        pos.fullmoveNumber = fullmoveNumber;
+        pos.hash = hash;
+        return pos;
+    }
+
+    /**
+     * @return The piece code on a square, or position.EMPTY
+     */
+    public int pieceAt(int sq) {
+        long word = switch (sq >>> 4) {
+            case 0 -> squares0;
+            case 1 -> squares1;
+            case 2 -> squares2;
+            default -> squares3;
+        };
+        return (int) ((word >>> ((sq & 15) * 4)) & 0xF) - 1;
+    }
+
+    public int getSideToMove() {
+        return state & 1;
+    }
+
+    public int getCastlingRights() {
+        return (state >>> 1) & 0xF;
+    }
+
+    public int getEnPassantSquare() {
+        return ((state >>> 5) & 0x7F) - 1;
+    }
+
+    public int getHalfmoveClock() {
+        return state >>> 12;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+}
@@ -0,0 +1,281 @@
+package com.programming.chess.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.programming.chess.rules.position;
+
+/**
+ * Static evaluation: material, piece-square tables and the bishop pair, each with a
+ * middlegame and an endgame value blended by the remaining material (tapered eval).
+ *
+ * All weights live in one flat parameter vector so that they can be tuned; evaluation
+ * itself uses combined material + square tables rebuilt whenever the parameters change.
+ * Tables are written from White's point of view with a8 first, the same square order as
+ * the position; black pieces use the vertically mirrored square.
+ *
+ * The shipped weights are the defaults; programs load texelTuner's output at startup with
+ * loadTunedParameters(), from the file named by the chess.evaluator.parameters property or
+ * tuned-parameters.txt in the working directory.
+ */
+public class evaluator {
+
+    public static final int MG = 0;
+    public static final int EG = 1;
+
+    // Parameter layout, per stage: material[6], then a 64-entry table per piece type
+    private static final int STAGE_SIZE = 6 + 6 * 64;
+    public static final int BISHOP_PAIR = 2 * STAGE_SIZE; // MG, then EG
+    public static final int PARAMETER_COUNT = BISHOP_PAIR + 2;
+
+    // Game phase contributed by each piece type; 24 is the full starting material
+    static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+    public static final int MAX_PHASE = 24;
+
+    // Where texelTuner writes its weights and loadTunedParameters() looks for them
+    public static final String PARAMETERS_FILE = "tuned-parameters.txt";
+    public static final String PARAMETERS_PROPERTY = "chess.evaluator.parameters";
+
+    private static final int[] DEFAULT_MATERIAL_MG = {82, 337, 365, 477, 1025, 0};
+    private static final int[] DEFAULT_MATERIAL_EG = {94, 281, 297, 512, 936, 0};
+
+    private static final int[] PAWN_MG = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         10,  10,  20,  30,  30,  20,  10,  10,
+          5,   5,  10,  25,  25,  10,   5,   5,
+          0,   0,   0,  20,  20,   0,   0,   0,
+          5,  -5, -10,   0,   0, -10,  -5,   5,
+          5,  10,  10, -20, -20,  10,  10,   5,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] PAWN_EG = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         80,  80,  80,  80,  80,  80,  80,  80,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         30,  30,  30,  30,  30,  30,  30,  30,
+         15,  15,  15,  15,  15,  15,  15,  15,
+          5,   5,   5,   5,   5,   5,   5,   5,
+          0,   0,   0,   0,   0,   0,   0,   0,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] KNIGHT = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK_MG = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+          5,  10,  10,  10,  10,  10,  10,   5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+          0,   0,   0,   5,   5,   0,   0,   0
+    };
+    private static final int[] QUEEN = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+    private static final int[] KING_MG = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20
+    };
+    private static final int[] KING_EG = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+    private static final int[] FLAT = new int[64];
+
+    private static final int[] parameters = new int[PARAMETER_COUNT];
+
+    // material + square value per stage, piece code and square; negative for black pieces
+    private static final int[][][] pieceSquare = new int[2][12][64];
+    private static int bishopPairMg;
+    private static int bishopPairEg;
+
+    static {
+        int[][] mgTables = {PAWN_MG, KNIGHT, BISHOP, ROOK_MG, QUEEN, KING_MG};
+        int[][] egTables = {PAWN_EG, KNIGHT, BISHOP, FLAT, QUEEN, KING_EG};
+        for (int type = 0; type < 6; type++) {
+            parameters[material(MG, type)] = DEFAULT_MATERIAL_MG[type];
+            parameters[material(EG, type)] = DEFAULT_MATERIAL_EG[type];
+            for (int sq = 0; sq < 64; sq++) {
+                parameters[square(MG, type, sq)] = mgTables[type][sq];
+                parameters[square(EG, type, sq)] = egTables[type][sq];
+            }
+        }
+        parameters[BISHOP_PAIR + MG] = 30;
+        parameters[BISHOP_PAIR + EG] = 50;
+        rebuildTables();
+    }
+
+    /**
+     * Index of a material weight in the parameter vector
+     */
+    public static int material(int stage, int type) {
+        return stage * STAGE_SIZE + type;
+    }
+
+    /**
+     * Index of a piece-square weight in the parameter vector (square seen from White)
+     */
+    public static int square(int stage, int type, int sq) {
+        return stage * STAGE_SIZE + 6 + type * 64 + sq;
+    }
+
+    /**
+     * @return A copy of the current weights
+     */
+    public static int[] getParameters() {
+        return parameters.clone();
+    }
+
+    /**
+     * Replaces all weights. Not safe to call while another thread is evaluating.
+     */
+    public static void setParameters(int[] values) {
+        if (values.length != PARAMETER_COUNT) {
+            throw new IllegalArgumentException("Expected " + PARAMETER_COUNT + " parameters, got " + values.length);
+        }
+        System.arraycopy(values, 0, parameters, 0, PARAMETER_COUNT);
+        rebuildTables();
+    }
+
+    /**
+     * Replaces all weights with those in a file of one integer per line, as texelTuner writes.
+     * Nothing changes if the file cannot be read or does not hold exactly PARAMETER_COUNT values.
+     * Not safe to call while another thread is evaluating.
+     */
+    public static void loadParameters(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        int[] values = new int[PARAMETER_COUNT];
+        int count = 0;
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (count == PARAMETER_COUNT) {
+                throw new IOException(file + " has more than " + PARAMETER_COUNT + " parameters");
+            }
+            try {
+                values[count++] = Integer.parseInt(line.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException(file + " entry " + count + " is not a number: " + line);
+            }
+        }
+        if (count != PARAMETER_COUNT) {
+            throw new IOException(file + " has " + count + " parameters, expected " + PARAMETER_COUNT);
+        }
+        setParameters(values);
+    }
+
+    /**
+     * Loads tuned weights if there are any: from the file named by the chess.evaluator.parameters
+     * property, else from tuned-parameters.txt if it exists. A missing or bad file leaves the
+     * shipped defaults in place and is reported on standard error.
+     * @return True if tuned weights were loaded
+     */
+    public static boolean loadTunedParameters() {
+        String property = System.getProperty(PARAMETERS_PROPERTY);
+        Path file = Path.of(property != null ? property : PARAMETERS_FILE);
+        if (property == null && !Files.exists(file)) {
+            return false;
+        }
+        try {
+            loadParameters(file);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Using the default evaluation weights: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void rebuildTables() {
+        for (int stage = MG; stage <= EG; stage++) {
+            for (int type = 0; type < 6; type++) {
+                for (int sq = 0; sq < 64; sq++) {
+                    int value = parameters[material(stage, type)] + parameters[square(stage, type, sq)];
+                    pieceSquare[stage][position.WHITE * 6 + type][sq] = value;
+                    pieceSquare[stage][position.BLACK * 6 + type][sq ^ 56] = -value;
+                }
+            }
+        }
+        bishopPairMg = parameters[BISHOP_PAIR + MG];
+        bishopPairEg = parameters[BISHOP_PAIR + EG];
+    }
+
+    /**
+     * Evaluates a position in centipawns from the point of view of the side to move
+     */
+    public static int evaluate(position pos) {
+        int mg = 0;
+        int eg = 0;
+        int phase = 0;
+
+        for (int color = position.WHITE; color <= position.BLACK; color++) {
+            for (int type = position.PAWN; type <= position.KING; type++) {
+                int piece = color * 6 + type;
+                int[] mgTable = pieceSquare[MG][piece];
+                int[] egTable = pieceSquare[EG][piece];
+                long pieces = pos.getPieces(color, type);
+                while (pieces != 0) {
+                    int sq = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    mg += mgTable[sq];
+                    eg += egTable[sq];
+                }
+                phase += PHASE_WEIGHTS[type] * pos.pieceCount(color, type);
+            }
+        }
+
+        if (pos.pieceCount(position.WHITE, position.BISHOP) >= 2) {
+            mg += bishopPairMg;
+            eg += bishopPairEg;
+        }
+        if (pos.pieceCount(position.BLACK, position.BISHOP) >= 2) {
+            mg -= bishopPairMg;
+            eg -= bishopPairEg;
+        }
+
+        phase = Math.min(phase, MAX_PHASE);
+        int score = (mg * phase + eg * (MAX_PHASE - phase)) / MAX_PHASE;
+        return pos.getSideToMove() == position.WHITE ? score : -score;
+    }
+}
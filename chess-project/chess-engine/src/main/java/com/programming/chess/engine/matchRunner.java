@@ -0,0 +1,576 @@
+package com.programming.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.programming.chess.rules.convertToSAN;
+import com.programming.chess.rules.detectCheck;
+import com.programming.chess.rules.position;
+
+/**
+ * Plays a match between two engine configurations on a pool of worker threads.
+ *
+ * Every opening of an EPD suite is played twice with colors reversed, so a lopsided opening
+ * cancels out. Each worker owns one searchEngine per configuration, so nothing but the
+ * score and the PGN file is shared. Both sides have a clock (base time plus increment) and
+ * lose on time if it runs out. Games end by the rules (detectCheck.evaluateStatus, claiming
+ * every draw that can be claimed) or by adjudication: a tablebase result, both engines
+ * agreeing on a decisive score, a long dead level stretch, or the ply limit.
+ *
+ * Finished games are appended to the PGN file as they complete and the running score is
+ * printed after each one: Elo difference with a 95% interval and the SPRT log-likelihood
+ * ratio. Once the SPRT accepts either hypothesis no new games are started.
+ *
+ * The evaluator's weights are global, so the two configurations differ in search settings:
+ * hash size, node or depth limits, and time odds.
+ */
+public class matchRunner {
+
+    // Adjudication thresholds, scores from the side to move
+    private static final int RESIGN_SCORE = 1000;
+    private static final int RESIGN_PLIES = 8;
+    private static final int DRAW_SCORE = 10;
+    private static final int DRAW_PLIES = 12;
+    private static final int DRAW_MIN_PLY = 80;
+    private static final int MAX_PLIES = 400;
+
+    // Moves the remaining time is spread over, and time kept back for overhead
+    private static final int MOVES_TO_GO = 25;
+    private static final long SAFETY_MILLIS = 5;
+
+    static final String[] DEFAULT_OPENINGS = {
+        "rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2",
+        "rnbqkb1r/pppppppp/5n2/8/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - 1 2",
+        "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+        "rnbqkbnr/pppp1ppp/4p3/8/3PP3/8/PPP2PPP/RNBQKBNR b KQkq - 0 2",
+        "rnbqkbnr/pp1ppppp/2p5/8/3PP3/8/PPP2PPP/RNBQKBNR b KQkq - 0 2",
+        "rnbqkbnr/ppp1pppp/8/3p4/2PP4/8/PP2PPPP/RNBQKBNR b KQkq - 0 2",
+        "rnbqkb1r/pppppp1p/5np1/8/2PP4/8/PP2PPPP/RNBQKBNR w KQkq - 0 3",
+        "rnbqkbnr/pppppppp/8/8/2P5/8/PP1PPPPP/RNBQKBNR b KQkq - 0 1",
+        "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+        "rnbqkbnr/ppp1pppp/8/3p4/3P4/5N2/PPP1PPPP/RNBQKB1R b KQkq - 1 2"
+    };
+
+    /**
+     * One engine configuration, written as "name:key=value,..." with the keys hash (MB),
+     * nodes, depth and odds (a factor on the clock). Without a clock it needs nodes or depth.
+     */
+    public static class Player {
+        public final String name;
+        public int hashMegabytes = 16;
+        public long nodes = Long.MAX_VALUE;
+        public int depth = searchEngine.MAX_PLY - 1;
+        public double timeOdds = 1.0;
+
+        public Player(String name) {
+            this.name = name;
+        }
+
+        public static Player parse(String spec) {
+            String[] parts = spec.split(":", 2);
+            Player player = new Player(parts[0]);
+            if (parts.length > 1) {
+                for (String option : parts[1].split(",")) {
+                    String[] pair = option.split("=", 2);
+                    if (pair.length != 2) {
+                        throw new IllegalArgumentException("Bad player option " + option);
+                    }
+                    switch (pair[0]) {
+                        case "hash" -> player.hashMegabytes = Integer.parseInt(pair[1]);
+                        case "nodes" -> player.nodes = Long.parseLong(pair[1]);
+                        case "depth" -> player.depth = Integer.parseInt(pair[1]);
+                        case "odds" -> player.timeOdds = Double.parseDouble(pair[1]);
+                        default -> throw new IllegalArgumentException("Unknown player option " + pair[0]);
+                    }
+                }
+            }
+            return player;
+        }
+
+        /**
+         * @return True if the player's searches end without a clock
+         */
+        public boolean hasSearchLimit() {
+            return nodes != Long.MAX_VALUE || depth < searchEngine.MAX_PLY - 1;
+        }
+    }
+
+    /**
+     * Base time plus increment per move, written as "10+0.1" in seconds; "0" plays without a clock
+     */
+    public static class TimeControl {
+        public final long baseMillis;
+        public final long incrementMillis;
+
+        public TimeControl(long baseMillis, long incrementMillis) {
+            this.baseMillis = baseMillis;
+            this.incrementMillis = incrementMillis;
+        }
+
+        public static TimeControl parse(String text) {
+            String[] parts = text.split("\\+", 2);
+            long base = Math.round(Double.parseDouble(parts[0]) * 1000);
+            long increment = parts.length > 1 ? Math.round(Double.parseDouble(parts[1]) * 1000) : 0;
+            return new TimeControl(base, increment);
+        }
+
+        public boolean isTimed() {
+            return baseMillis > 0;
+        }
+
+        @Override
+        public String toString() {
+            return isTimed() ? baseMillis / 1000.0 + "+" + incrementMillis / 1000.0 : "-";
+        }
+    }
+
+    /**
+     * Sequential probability ratio test of H0: elo = elo0 against H1: elo = elo1, using the
+     * normal approximation of the game scores
+     */
+    public static class Sprt {
+        public final double elo0;
+        public final double elo1;
+        public final double lowerBound;
+        public final double upperBound;
+
+        public Sprt(double elo0, double elo1, double alpha, double beta) {
+            this.elo0 = elo0;
+            this.elo1 = elo1;
+            this.lowerBound = Math.log(beta / (1 - alpha));
+            this.upperBound = Math.log((1 - beta) / alpha);
+        }
+
+        public double llr(Score score) {
+            int games = score.games();
+            double variance = score.variance();
+            if (games == 0 || variance == 0) {
+                return 0;
+            }
+            double s0 = expectedScore(elo0);
+            double s1 = expectedScore(elo1);
+            return games * (s1 - s0) * (2 * score.score() - s0 - s1) / (2 * variance);
+        }
+    }
+
+    /**
+     * Wins, losses and draws from the first player's point of view
+     */
+    public static class Score {
+        public final int wins;
+        public final int losses;
+        public final int draws;
+
+        Score(int wins, int losses, int draws) {
+            this.wins = wins;
+            this.losses = losses;
+            this.draws = draws;
+        }
+
+        public int games() {
+            return wins + losses + draws;
+        }
+
+        /**
+         * @return Points per game, 0 to 1
+         */
+        public double score() {
+            return games() == 0 ? 0.5 : (wins + draws * 0.5) / games();
+        }
+
+        /**
+         * Variance of a single game's score
+         */
+        double variance() {
+            double s = score();
+            return games() == 0 ? 0
+                 : (wins * (1 - s) * (1 - s) + losses * s * s + draws * (0.5 - s) * (0.5 - s)) / games();
+        }
+
+        public double elo() {
+            return eloFromScore(score());
+        }
+
+        /**
+         * @return Half the width of the 95% confidence interval of elo()
+         */
+        public double eloError() {
+            if (games() == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double margin = 1.96 * Math.sqrt(variance() / games());
+            return (eloFromScore(score() + margin) - eloFromScore(score() - margin)) / 2;
+        }
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static double eloFromScore(double score) {
+        double clamped = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+
+    /**
+     * A finished game
+     */
+    static class Game {
+        final int round;
+        final String openingFen;
+        final Player white;
+        final Player black;
+        final List<String> sanMoves = new ArrayList<>();
+        String result = "*";
+        String termination = "";
+
+        Game(int round, String openingFen, Player white, Player black) {
+            this.round = round;
+            this.openingFen = openingFen;
+            this.white = white;
+            this.black = black;
+        }
+    }
+
+    private final Player first;
+    private final Player second;
+    private final TimeControl timeControl;
+    private final List<String> openings;
+    private final tablebase tables;
+    private final Sprt sprt;
+    private final BufferedWriter pgn;
+    private final String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"));
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private volatile boolean decided;
+    private int wins;
+    private int losses;
+    private int draws;
+
+    /**
+     * @param tables Used to adjudicate endings it covers; may be null
+     * @param sprt Stops the match once it accepts a hypothesis; may be null
+     * @param pgn Receives every finished game; may be null
+     */
+    public matchRunner(Player first, Player second, TimeControl timeControl, List<String> openings,
+                       tablebase tables, Sprt sprt, BufferedWriter pgn) {
+        checkLimits(first, second, timeControl);
+        this.first = first;
+        this.second = second;
+        this.timeControl = timeControl;
+        this.openings = openings;
+        this.tables = tables;
+        this.sprt = sprt;
+        this.pgn = pgn;
+    }
+
+    /**
+     * Rejects a player whose searches would never return a move: untimed with no node or depth limit
+     */
+    static void checkLimits(Player first, Player second, TimeControl timeControl) {
+        for (Player player : new Player[] {first, second}) {
+            if (!timeControl.isTimed() && !player.hasSearchLimit()) {
+                throw new IllegalArgumentException("Player " + player.name
+                                                   + " needs a nodes or depth limit when playing without a clock");
+            }
+        }
+    }
+
+    /**
+     * Plays up to the given number of games (rounded up to whole opening pairs) and returns the final score
+     */
+    public Score run(int games, int threads) throws InterruptedException {
+        int total = (games + 1) / 2 * 2;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(() -> work(total)));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A match worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return score();
+    }
+
+    public synchronized Score score() {
+        return new Score(wins, losses, draws);
+    }
+
+    private void work(int total) {
+        searchEngine firstEngine = new searchEngine(first.hashMegabytes);
+        searchEngine secondEngine = new searchEngine(second.hashMegabytes);
+        int index;
+        while (!decided && (index = nextGame.getAndIncrement()) < total) {
+            String opening = openings.get(index / 2 % openings.size());
+            boolean firstIsWhite = index % 2 == 0;
+            firstEngine.getTable().clear();
+            secondEngine.getTable().clear();
+            Game game = firstIsWhite
+                    ? play(index + 1, opening, first, second, firstEngine, secondEngine)
+                    : play(index + 1, opening, second, first, secondEngine, firstEngine);
+            record(game, firstIsWhite);
+        }
+    }
+
+    // PLAYING
+
+    /**
+     * Plays one game from the opening position to the end
+     */
+    Game play(int round, String openingFen, Player white, Player black,
+              searchEngine whiteEngine, searchEngine blackEngine) {
+        Game game = new Game(round, openingFen, white, black);
+        position pos = position.fromFen(openingFen);
+        Player[] players = {white, black};
+        searchEngine[] engines = {whiteEngine, blackEngine};
+        long[] clocks = {
+            Math.round(timeControl.baseMillis * white.timeOdds),
+            Math.round(timeControl.baseMillis * black.timeOdds)
+        };
+        int resignPlies = 0;
+        int resignWinner = -1;
+        int drawPlies = 0;
+
+        while (true) {
+            int side = pos.getSideToMove();
+            detectCheck.GameStatus status = detectCheck.evaluateStatus(pos, true);
+            if (status.isGameOver()) {
+                end(game, status == detectCheck.GameStatus.CHECKMATE ? winner(side ^ 1) : "1/2-1/2",
+                    status.name().toLowerCase().replace('_', ' '));
+                return game;
+            }
+            if (tables != null) {
+                tablebase.Result known = tables.probe(pos);
+                if (known != null) {
+                    end(game, known.wdl == tablebase.DRAW ? "1/2-1/2" : winner(known.wdl == tablebase.WIN ? side : side ^ 1),
+                        "adjudication: tablebase");
+                    return game;
+                }
+            }
+            if (game.sanMoves.size() >= MAX_PLIES) {
+                end(game, "1/2-1/2", "adjudication: move limit");
+                return game;
+            }
+
+            Player player = players[side];
+            searchEngine.Limits limits = new searchEngine.Limits();
+            limits.nodes = player.nodes;
+            limits.depth = player.depth;
+            long increment = Math.round(timeControl.incrementMillis * player.timeOdds);
+            if (timeControl.isTimed()) {
+                limits.timeMillis = Math.max(1, Math.min(clocks[side] - SAFETY_MILLIS,
+                                                         clocks[side] / MOVES_TO_GO + increment * 3 / 4));
+            }
+            long start = System.nanoTime();
+            searchEngine.Info info = engines[side].search(pos, limits, null);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            if (timeControl.isTimed()) {
+                clocks[side] -= elapsed;
+                if (clocks[side] < 0) {
+                    end(game, winner(side ^ 1), "time forfeit");
+                    return game;
+                }
+                clocks[side] += increment;
+            }
+
+            int move = info.bestMove();
+            game.sanMoves.add(convertToSAN.toSAN(pos, move));
+            pos.makeMove(move);
+
+            // Both engines must see the same side winning, move after move
+            int winnerColor = info.score > 0 ? side : side ^ 1;
+            if (Math.abs(info.score) >= RESIGN_SCORE && (resignPlies == 0 || winnerColor == resignWinner)) {
+                resignPlies++;
+                resignWinner = winnerColor;
+            } else {
+                resignPlies = 0;
+            }
+            drawPlies = Math.abs(info.score) <= DRAW_SCORE ? drawPlies + 1 : 0;
+            if (resignPlies >= RESIGN_PLIES) {
+                end(game, winner(resignWinner), "adjudication: score");
+                return game;
+            }
+            if (drawPlies >= DRAW_PLIES && game.sanMoves.size() >= DRAW_MIN_PLY) {
+                end(game, "1/2-1/2", "adjudication: draw score");
+                return game;
+            }
+        }
+    }
+
+    private static String winner(int color) {
+        return color == position.WHITE ? "1-0" : "0-1";
+    }
+
+    private static void end(Game game, String result, String termination) {
+        game.result = result;
+        game.termination = termination;
+    }
+
+    // RESULTS
+
+    /**
+     * Adds a finished game to the score, appends it to the PGN and prints the running totals
+     */
+    private synchronized void record(Game game, boolean firstIsWhite) {
+        if (game.result.equals("1/2-1/2")) {
+            draws++;
+        } else if (game.result.equals("1-0") == firstIsWhite) {
+            wins++;
+        } else {
+            losses++;
+        }
+        if (pgn != null) {
+            try {
+                pgn.write(toPgn(game));
+                pgn.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        Score score = score();
+        StringBuilder line = new StringBuilder();
+        line.append(String.format("Game %d (%s vs %s): %s {%s}  Score %d-%d-%d  Elo %.1f +/- %.1f",
+                                  game.round, game.white.name, game.black.name, game.result, game.termination,
+                                  wins, losses, draws, score.elo(), score.eloError()));
+        if (sprt != null) {
+            double llr = sprt.llr(score);
+            line.append(String.format("  LLR %.2f [%.2f, %.2f]", llr, sprt.lowerBound, sprt.upperBound));
+            if (!decided && (llr >= sprt.upperBound || llr <= sprt.lowerBound)) {
+                decided = true;
+                line.append(llr >= sprt.upperBound ? "  H1 accepted" : "  H0 accepted");
+            }
+        }
+        System.out.println(line);
+    }
+
+    String toPgn(Game game) {
+        StringBuilder text = new StringBuilder();
+        tag(text, "Event", first.name + " vs " + second.name);
+        tag(text, "Site", "matchRunner");
+        tag(text, "Date", date);
+        tag(text, "Round", Integer.toString(game.round));
+        tag(text, "White", game.white.name);
+        tag(text, "Black", game.black.name);
+        tag(text, "Result", game.result);
+        if (!game.openingFen.equals(position.START_FEN)) {
+            tag(text, "SetUp", "1");
+            tag(text, "FEN", game.openingFen);
+        }
+        tag(text, "TimeControl", timeControl.toString());
+        tag(text, "PlyCount", Integer.toString(game.sanMoves.size()));
+        tag(text, "Termination", game.termination);
+        text.append('\n');
+
+        position start = position.fromFen(game.openingFen);
+        int moveNumber = start.getFullmoveNumber();
+        boolean whiteToMove = start.getSideToMove() == position.WHITE;
+        StringBuilder movetext = new StringBuilder();
+        int lineStart = 0;
+        for (int i = 0; i < game.sanMoves.size(); i++) {
+            String token = whiteToMove ? moveNumber + ". " + game.sanMoves.get(i)
+                         : i == 0 ? moveNumber + "... " + game.sanMoves.get(i) : game.sanMoves.get(i);
+            lineStart = appendWrapped(movetext, token, lineStart);
+            if (!whiteToMove) {
+                moveNumber++;
+            }
+            whiteToMove = !whiteToMove;
+        }
+        appendWrapped(movetext, game.result, lineStart);
+        return text.append(movetext).append("\n\n").toString();
+    }
+
+    private static void tag(StringBuilder text, String name, String value) {
+        text.append('[').append(name).append(" \"").append(value.replace("\\", "\\\\").replace("\"", "\\\""))
+            .append("\"]\n");
+    }
+
+    /**
+     * Appends a token, breaking lines before 80 characters
+     * @return Where the current line starts
+     */
+    private static int appendWrapped(StringBuilder movetext, String token, int lineStart) {
+        if (movetext.length() > lineStart) {
+            if (movetext.length() - lineStart + 1 + token.length() > 79) {
+                movetext.append('\n');
+                lineStart = movetext.length();
+            } else {
+                movetext.append(' ');
+            }
+        }
+        movetext.append(token);
+        return lineStart;
+    }
+
+    // COMMAND LINE
+
+    static List<String> readOpenings(Path file) throws IOException {
+        List<String> openings = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                // EPD has four FEN fields followed by operations
+                String[] fields = line.trim().split("\\s+");
+                openings.add(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3] + " 0 1");
+            }
+        }
+        return openings;
+    }
+
+    /**
+     * Plays a match and reports Elo and an SPRT of elo0 = 0 against elo1 = 10 (alpha = beta = 0.05).
+     * Usage: matchRunner [first spec] [second spec] [games] [time control] [threads] [openings.epd]
+     *                    [out.pgn] [tablebase directory]
+     * e.g. matchRunner new:hash=32 old:hash=32,odds=0.5 1000 10+0.1
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Player first = Player.parse(args.length > 0 ? args[0] : "full");
+        Player second = Player.parse(args.length > 1 ? args[1] : "half:odds=0.5");
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        TimeControl timeControl = TimeControl.parse(args.length > 3 ? args[3] : "2+0.02");
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        List<String> openings = args.length > 5 && !args[5].equals("-")
+                ? readOpenings(Path.of(args[5])) : List.of(DEFAULT_OPENINGS);
+        Path pgnFile = Path.of(args.length > 6 ? args[6] : "match.pgn");
+        tablebase tables = args.length > 7 ? new tablebase(Path.of(args[7])) : null;
+        checkLimits(first, second, timeControl);
+
+        System.out.printf("%s vs %s: %d games at %s, %d threads, %d openings, PGN to %s%n",
+                          first.name, second.name, games, timeControl, threads, openings.size(), pgnFile);
+        long start = System.nanoTime();
+        Score score;
+        try (BufferedWriter pgn = Files.newBufferedWriter(pgnFile, StandardOpenOption.CREATE,
+                                                          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            matchRunner runner = new matchRunner(first, second, timeControl, openings, tables,
+                                                 new Sprt(0, 10, 0.05, 0.05), pgn);
+            score = runner.run(games, threads);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Final: %d-%d-%d (%.1f%%), Elo %.1f +/- %.1f, %d games in %.1f s, %.1f games/min%n",
+                          score.wins, score.losses, score.draws, score.score() * 100, score.elo(), score.eloError(),
+                          score.games(), seconds, score.games() / seconds * 60);
+    }
+}
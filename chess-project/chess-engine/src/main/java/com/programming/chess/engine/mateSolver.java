@@ -0,0 +1,525 @@
+package com.programming.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.programming.chess.rules.convertToSAN;
+import com.programming.chess.rules.moveEncoding;
+import com.programming.chess.rules.moveGenerator;
+import com.programming.chess.rules.position;
+
+/**
+ * Proves forced mates with depth-first proof-number search (df-pn).
+ *
+ * The side to move is the attacker. Attacker nodes are OR nodes (one mating move suffices),
+ * defender nodes are AND nodes (every reply must lose). Each node carries a proof number
+ * (how many leaves still need proving) and a disproof number; df-pn always expands the most
+ * proving child and only backs up when the child's numbers cross their thresholds.
+ *
+ * The search is limited to a number of moves, so every table entry is keyed by the position
+ * hash combined with the plies remaining; this keeps proofs exact and avoids cycles. New
+ * defender nodes start with a proof number equal to their number of replies, which steers the
+ * search towards forcing lines. Attacker moves are tried checks first; defender evasions are
+ * ordered captures, then interpositions, then king moves. On the attacker's last move only
+ * checks are considered.
+ */
+public class mateSolver {
+
+    public static final int MAX_MATE_MOVES = 16;
+    private static final int MAX_PLIES = 2 * MAX_MATE_MOVES;
+    private static final int INFINITE = 1 << 28;
+
+    // Keys for the remaining depth, mixed into the position hash
+    private static final long[] DEPTH_KEYS = new long[MAX_PLIES + 1];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i <= MAX_PLIES; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = (seed ^ (seed >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            DEPTH_KEYS[i] = z ^ (z >>> 31);
+        }
+    }
+
+    /**
+     * Outcome of one solve
+     */
+    public static class Result {
+        public final int mateIn;      // moves to mate, 0 if no mate was proven
+        public final int[] pv;
+        public final long nodes;
+        public final long elapsedNanos;
+        public final boolean aborted;  // the node limit was hit before the search finished
+
+        Result(int mateIn, int[] pv, long nodes, long elapsedNanos, boolean aborted) {
+            this.mateIn = mateIn;
+            this.pv = pv;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+            this.aborted = aborted;
+        }
+
+        public boolean solved() {
+            return mateIn > 0;
+        }
+
+        public int bestMove() {
+            return pv.length > 0 ? pv[0] : moveEncoding.NONE;
+        }
+    }
+
+    // Proof table: two-way buckets keyed by position hash ^ depth key
+    private final long[] keys;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final int mask;
+
+    private final int[][] moveLists = new int[MAX_PLIES + 1][moveGenerator.MAX_MOVES];
+    private final long[][] childKeys = new long[MAX_PLIES + 1][moveGenerator.MAX_MOVES];
+    private final int[][] orderScores = new int[MAX_PLIES + 1][moveGenerator.MAX_MOVES];
+    private final int[] probeScratch = new int[moveGenerator.MAX_MOVES];
+
+    private position pos;
+    private long nodes;
+    private long nodeLimit;
+    private boolean aborted;
+    private int foundProof;
+    private int foundDisproof;
+
+    /**
+     * @param tableBits log2 of the number of proof table entries (16 bytes each)
+     */
+    public mateSolver(int tableBits) {
+        keys = new long[1 << tableBits];
+        proofs = new int[1 << tableBits];
+        disproofs = new int[1 << tableBits];
+        mask = (1 << tableBits) - 1;
+    }
+
+    /**
+     * Looks for the shortest mate of at most maxMoves moves for the side to move
+     * @param nodeLimit Gives up after expanding this many nodes
+     */
+    public Result solve(position root, int maxMoves, long nodeLimit) {
+        long start = System.nanoTime();
+        pos = root.copy();
+        nodes = 0;
+        this.nodeLimit = nodeLimit;
+        aborted = false;
+
+        // Shorter mates are proven far faster, so look for them first
+        for (int moves = 1; moves <= Math.min(maxMoves, MAX_MATE_MOVES) && !aborted; moves++) {
+            int plies = 2 * moves - 1;
+            search(plies, true, INFINITE, INFINITE, 0);
+            if (!aborted && lookup(pos.getHash() ^ DEPTH_KEYS[plies]) && foundProof == 0) {
+                return new Result(moves, principalVariation(plies), nodes, System.nanoTime() - start, false);
+            }
+        }
+        return new Result(0, new int[0], nodes, System.nanoTime() - start, aborted);
+    }
+
+    /**
+     * Empties the proof table, e.g. between unrelated batches
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+    }
+
+    // DF-PN
+
+    /**
+     * Expands a node until its proof or disproof number reaches the given threshold
+     * @param remaining Plies left in which the attacker must mate
+     */
+    private void search(int remaining, boolean attacker, int proofThreshold, int disproofThreshold, int ply) {
+        long key = pos.getHash() ^ DEPTH_KEYS[remaining];
+        int count = expand(remaining, attacker, ply);
+        if (count == 0) {
+            // expand() already stored the terminal result
+            return;
+        }
+        int[] moves = moveLists[ply];
+        long[] children = childKeys[ply];
+
+        while (true) {
+            // Back up the children's numbers: OR takes min proof / sum disproof, AND the reverse
+            int best = 0;
+            int bestMin = INFINITE + 1;
+            int secondMin = INFINITE + 1;
+            int sum = 0;
+            int bestOther = 0;
+            for (int i = 0; i < count; i++) {
+                int childProof;
+                int childDisproof;
+                if (lookup(children[i])) {
+                    childProof = foundProof;
+                    childDisproof = foundDisproof;
+                } else {
+                    childProof = 1;
+                    childDisproof = 1;
+                }
+                int minimised = attacker ? childProof : childDisproof;
+                int summed = attacker ? childDisproof : childProof;
+                sum = Math.min(INFINITE, sum + summed);
+                if (minimised < bestMin) {
+                    secondMin = bestMin;
+                    bestMin = minimised;
+                    best = i;
+                    bestOther = summed;
+                } else if (minimised < secondMin) {
+                    secondMin = minimised;
+                }
+            }
+            int proof = attacker ? bestMin : sum;
+            int disproof = attacker ? sum : bestMin;
+
+            if (proof >= proofThreshold || disproof >= disproofThreshold || aborted) {
+                store(key, proof, disproof);
+                return;
+            }
+            if (++nodes >= nodeLimit) {
+                aborted = true;
+                store(key, proof, disproof);
+                return;
+            }
+
+            int childProofThreshold;
+            int childDisproofThreshold;
+            if (attacker) {
+                childProofThreshold = Math.min(proofThreshold, secondMin == INFINITE + 1 ? INFINITE : secondMin + 1);
+                childDisproofThreshold = Math.min(INFINITE, disproofThreshold - disproof + bestOther);
+            } else {
+                childDisproofThreshold = Math.min(disproofThreshold, secondMin == INFINITE + 1 ? INFINITE : secondMin + 1);
+                childProofThreshold = Math.min(INFINITE, proofThreshold - proof + bestOther);
+            }
+
+            pos.makeMove(moves[best]);
+            search(remaining - 1, !attacker, childProofThreshold, childDisproofThreshold, ply + 1);
+            pos.unmakeMove();
+            // The child's moves overwrote deeper buffers only, so ours are still valid
+        }
+    }
+
+    /**
+     * Generates and orders a node's moves, initialising every child that has no table entry.
+     * @return The number of children, or 0 if the node is terminal (its result is then stored)
+     */
+    private int expand(int remaining, boolean attacker, int ply) {
+        long key = pos.getHash() ^ DEPTH_KEYS[remaining];
+        int[] moves = moveLists[ply];
+        int count = moveGenerator.generateLegalMoves(pos, moves);
+        if (count == 0) {
+            boolean mated = pos.inCheck();
+            // The attacker being mated or stalemated, or a stalemated defender, is a failure
+            store(key, !attacker && mated ? 0 : INFINITE, !attacker && mated ? INFINITE : 0);
+            return 0;
+        }
+        if (!attacker && remaining == 0) {
+            store(key, INFINITE, 0); // Out of moves without mate
+            return 0;
+        }
+
+        long[] children = childKeys[ply];
+        int[] scores = orderScores[ply];
+        boolean evading = pos.inCheck();
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            boolean capture = pos.pieceAt(moveEncoding.to(move)) != position.EMPTY
+                              || moveEncoding.flag(move) == moveEncoding.FLAG_EN_PASSANT;
+            boolean kingMove = pos.pieceAt(moveEncoding.from(move)) % 6 == position.KING;
+
+            pos.makeMove(move);
+            boolean check = pos.inCheck();
+            if (attacker && remaining == 1 && !check) {
+                pos.unmakeMove();
+                continue; // Only a check can mate on the last move
+            }
+            long childKey = pos.getHash() ^ DEPTH_KEYS[remaining - 1];
+            if (!lookup(childKey)) {
+                initialise(childKey, remaining - 1, !attacker);
+            }
+            pos.unmakeMove();
+
+            int score;
+            if (attacker) {
+                score = (check ? 4 : 0) + (capture ? 2 : 0);
+            } else if (evading) {
+                score = capture ? 4 : kingMove ? 0 : 2;
+            } else {
+                score = capture ? 2 : 0;
+            }
+            // Insertion keeps the list sorted by descending score, stable for equal scores
+            int at = kept++;
+            while (at > 0 && scores[at - 1] < score) {
+                moves[at] = moves[at - 1];
+                children[at] = children[at - 1];
+                scores[at] = scores[at - 1];
+                at--;
+            }
+            moves[at] = move;
+            children[at] = childKey;
+            scores[at] = score;
+        }
+
+        if (kept == 0) {
+            store(key, INFINITE, 0); // No checking move on the attacker's last turn
+        }
+        return kept;
+    }
+
+    /**
+     * Gives a new child its starting numbers from its mobility; mates and stalemates are
+     * recognised here, one ply before the child is ever expanded.
+     */
+    private void initialise(long key, int remaining, boolean attacker) {
+        int replies = moveGenerator.generateLegalMoves(pos, probeScratch);
+        if (replies == 0) {
+            boolean mated = pos.inCheck();
+            store(key, !attacker && mated ? 0 : INFINITE, !attacker && mated ? INFINITE : 0);
+        } else if (!attacker && remaining == 0) {
+            store(key, INFINITE, 0);
+        } else if (attacker) {
+            store(key, 1, replies);
+        } else {
+            store(key, replies, 1);
+        }
+    }
+
+    /**
+     * Follows proven attacker moves and, for the defender, a reply that is not refuted
+     * any faster than the full distance
+     */
+    private int[] principalVariation(int plies) {
+        List<Integer> line = new ArrayList<>();
+        position walk = pos.copy();
+        int[] buffer = new int[moveGenerator.MAX_MOVES];
+        for (int remaining = plies; remaining > 0; remaining--) {
+            boolean attacker = (plies - remaining) % 2 == 0;
+            int count = moveGenerator.generateLegalMoves(walk, buffer);
+            int chosen = moveEncoding.NONE;
+            for (int i = 0; i < count && chosen == moveEncoding.NONE; i++) {
+                walk.makeMove(buffer[i]);
+                if (attacker) {
+                    if (proven(walk.getHash() ^ DEPTH_KEYS[remaining - 1])) {
+                        chosen = buffer[i];
+                    }
+                } else if (remaining < 3 || !proven(walk.getHash() ^ DEPTH_KEYS[remaining - 3])) {
+                    chosen = buffer[i];
+                }
+                walk.unmakeMove();
+            }
+            if (chosen == moveEncoding.NONE && !attacker && count > 0) {
+                chosen = buffer[0];
+            }
+            if (chosen == moveEncoding.NONE) {
+                break;
+            }
+            line.add(chosen);
+            walk.makeMove(chosen);
+        }
+        return line.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private boolean proven(long key) {
+        return lookup(key) && foundProof == 0;
+    }
+
+    // PROOF TABLE
+
+    private boolean lookup(long key) {
+        int slot = (int) (key ^ key >>> 32) & mask & ~1;
+        if (keys[slot] != key && keys[++slot] != key) {
+            return false;
+        }
+        foundProof = proofs[slot];
+        foundDisproof = disproofs[slot];
+        return true;
+    }
+
+    /**
+     * Two-way buckets: an update overwrites its own entry, otherwise an unfinished entry is
+     * evicted before a finished proof or disproof
+     */
+    private void store(long key, int proof, int disproof) {
+        int slot = (int) (key ^ key >>> 32) & mask & ~1;
+        if (keys[slot] != key && keys[slot + 1] != key) {
+            boolean firstFinished = keys[slot] != 0 && (proofs[slot] == 0 || disproofs[slot] == 0);
+            boolean secondFinished = keys[slot + 1] != 0 && (proofs[slot + 1] == 0 || disproofs[slot + 1] == 0);
+            if (firstFinished && !secondFinished || firstFinished == secondFinished && keys[slot] != 0) {
+                slot++;
+            }
+        } else if (keys[slot] != key) {
+            slot++;
+        }
+        keys[slot] = key;
+        proofs[slot] = proof;
+        disproofs[slot] = disproof;
+    }
+
+    // BATCH MODE
+
+    /**
+     * One EPD puzzle: the position plus the optional "dm" (direct mate) and "bm" operations
+     */
+    static class puzzle {
+        final String line;
+        final position pos;
+        final int mateIn;       // 0 if the EPD does not say
+        final String bestMove;  // SAN without check marks, or null
+
+        puzzle(String line, position pos, int mateIn, String bestMove) {
+            this.line = line;
+            this.pos = pos;
+            this.mateIn = mateIn;
+            this.bestMove = bestMove;
+        }
+    }
+
+    static puzzle parseEpd(String line) {
+        String[] fields = line.trim().split("\\s+", 5);
+        position pos = position.fromFen(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3]);
+        int mateIn = 0;
+        String bestMove = null;
+        if (fields.length > 4) {
+            for (String operation : fields[4].split(";")) {
+                String[] parts = operation.trim().split("\\s+", 2);
+                if (parts.length == 2 && parts[0].equals("dm")) {
+                    mateIn = Integer.parseInt(parts[1].trim());
+                } else if (parts.length == 2 && parts[0].equals("bm")) {
+                    bestMove = stripMarks(parts[1].trim().split("\\s+")[0]);
+                }
+            }
+        }
+        return new puzzle(line, pos, mateIn, bestMove);
+    }
+
+    private static String stripMarks(String san) {
+        return san.replaceAll("[+#!?]", "");
+    }
+
+    /**
+     * Solves every puzzle and prints one line each plus a summary
+     * @param defaultMoves Mate length to search when a puzzle has no "dm" operation
+     */
+    public static void runBatch(List<puzzle> puzzles, int defaultMoves, long nodeLimit, int tableBits) {
+        mateSolver solver = new mateSolver(tableBits);
+        int solved = 0;
+        int wrong = 0;
+        long totalNanos = 0;
+        long totalNodes = 0;
+        long slowest = 0;
+        for (puzzle puzzle : puzzles) {
+            int moves = puzzle.mateIn > 0 ? puzzle.mateIn : defaultMoves;
+            solver.clear();
+            Result result = solver.solve(puzzle.pos, moves, nodeLimit);
+            totalNanos += result.elapsedNanos;
+            totalNodes += result.nodes;
+            slowest = Math.max(slowest, result.elapsedNanos);
+
+            String san = result.solved() ? convertToSAN.toSAN(puzzle.pos, result.bestMove()) : "-";
+            boolean ok = result.solved() && (puzzle.mateIn == 0 || result.mateIn == puzzle.mateIn)
+                         && (puzzle.bestMove == null || puzzle.bestMove.equals(stripMarks(san)));
+            if (ok) {
+                solved++;
+            } else {
+                wrong++;
+            }
+            System.out.printf("%-8s mate %-2d %-7s %,9d nodes %8.2f ms  %s%n",
+                              ok ? "ok" : result.aborted ? "ABORTED" : "FAILED", result.mateIn, san,
+                              result.nodes, result.elapsedNanos / 1e6, puzzle.line);
+        }
+        double seconds = totalNanos / 1e9;
+        System.out.printf("%d/%d solved, %d failed; %.1f ms average, %.1f ms slowest, %,.0f nodes/s, %,.0f puzzles per minute%n",
+                          solved, puzzles.size(), wrong, totalNanos / 1e6 / Math.max(1, puzzles.size()),
+                          slowest / 1e6, totalNodes / Math.max(seconds, 1e-9),
+                          puzzles.size() / Math.max(seconds, 1e-9) * 60);
+    }
+
+    /**
+     * Solves the puzzles of an EPD file, or mates sampled from generated tablebases when no file is given.
+     * Usage: mateSolver [puzzles.epd] [default mate length] [node limit]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int defaultMoves = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long nodeLimit = args.length > 2 ? Long.parseLong(args[2]) : 5_000_000;
+        List<puzzle> puzzles = new ArrayList<>();
+
+        if (args.length > 0) {
+            try (BufferedReader reader = Files.newBufferedReader(Path.of(args[0]))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        puzzles.add(parseEpd(line));
+                    }
+                }
+            }
+        } else {
+            // Endgame mates whose exact length comes from retrograde analysis, not from this solver
+            Path directory = Files.createTempDirectory("tablebases");
+            tablebaseGenerator generator = new tablebaseGenerator(directory, Runtime.getRuntime().availableProcessors());
+            String[] signatures = {"KQvK", "KRvK"};
+            for (String signature : signatures) {
+                generator.generate(signature);
+            }
+            tablebase tables = new tablebase(directory);
+            Random random = new Random(17);
+            String[] pieces = {"Q", "R"};
+            while (puzzles.size() < 200) {
+                String fen = randomEnding(random, pieces[puzzles.size() % pieces.length]);
+                position pos = position.fromFen(fen);
+                if (pos.isSquareAttacked(pos.kingSquare(position.BLACK), position.WHITE, pos.getOccupied())) {
+                    continue;
+                }
+                tablebase.Result result = tables.probe(pos);
+                if (result != null && result.wdl == tablebase.WIN && result.mateIn() >= 2
+                        && result.mateIn() <= defaultMoves) {
+                    puzzles.add(parseEpd(fen + " dm " + result.mateIn() + ";"));
+                }
+            }
+        }
+        runBatch(puzzles, defaultMoves, nodeLimit, 20);
+    }
+
+    private static String randomEnding(Random random, String piece) {
+        char[] board = new char[64];
+        Arrays.fill(board, '.');
+        for (char p : ("K" + piece + "k").toCharArray()) {
+            int sq;
+            do {
+                sq = random.nextInt(64);
+            } while (board[sq] != '.');
+            board[sq] = p;
+        }
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                char c = board[row * 8 + col];
+                if (c == '.') {
+                    empty++;
+                } else {
+                    if (empty > 0) {
+                        fen.append(empty);
+                    }
+                    empty = 0;
+                    fen.append(c);
+                }
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row < 7) {
+                fen.append('/');
+            }
+        }
+        return fen + " w - -";
+    }
+}
@@ -0,0 +1,239 @@
+package com.programming.chess.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.programming.chess.rules.moveEncoding;
+import com.programming.chess.rules.moveGenerator;
+import com.programming.chess.rules.position;
+
+/**
+ * Evaluates positions with an nnueNetwork, keeping the first layer's sums (the accumulator)
+ * up to date move by move.
+ *
+ * The accumulator holds both perspectives and lives on a stack: push() before making a move
+ * copies the top entry and adds or subtracts the weight rows of the few pieces the move
+ * changes (mover, capture, promotion, castling rook), pop() after unmaking it simply drops
+ * the entry. Only a full refresh() walks every piece. One evaluator per searching thread.
+ */
+public class nnueEvaluator {
+
+    public static final int MAX_DEPTH = searchEngine.MAX_PLY + 2;
+
+    private final nnueNetwork network;
+    private final nnueKernels kernels;
+    private final int hidden;
+    private final short[][] stack;
+    private int top;
+
+    private final byte[] input;
+    private final byte[] layer;
+
+    public nnueEvaluator(nnueNetwork network) {
+        this.network = network;
+        this.kernels = nnueKernels.create();
+        this.hidden = network.hidden;
+        this.stack = new short[MAX_DEPTH][2 * hidden];
+        this.input = new byte[2 * hidden];
+        this.layer = new byte[network.l1];
+    }
+
+    /**
+     * Name of the loops in use, "scalar" or the vector width
+     */
+    public String kernelName() {
+        return kernels.name();
+    }
+
+    /**
+     * Rebuilds the accumulator from scratch and empties the stack
+     */
+    public void refresh(position pos) {
+        top = 0;
+        short[] acc = stack[0];
+        for (int perspective = position.WHITE; perspective <= position.BLACK; perspective++) {
+            int offset = perspective * hidden;
+            System.arraycopy(network.featureBiases, 0, acc, offset, hidden);
+            for (long occupied = pos.getOccupied(); occupied != 0; occupied &= occupied - 1) {
+                int sq = Long.numberOfTrailingZeros(occupied);
+                int row = nnueNetwork.feature(perspective, pos.pieceAt(sq), sq) * hidden;
+                kernels.add(acc, offset, network.featureWeights, row, hidden);
+            }
+        }
+    }
+
+    /**
+     * Updates the accumulator for a move; call before pos.makeMove(move)
+     */
+    public void push(position pos, int move) {
+        int from = moveEncoding.from(move);
+        int to = moveEncoding.to(move);
+        int flag = moveEncoding.flag(move);
+        int moving = pos.pieceAt(from);
+        int us = moving / 6;
+
+        short[] acc = stack[top + 1];
+        System.arraycopy(stack[top], 0, acc, 0, 2 * hidden);
+        top++;
+
+        update(acc, moving, from, false);
+        update(acc, moveEncoding.isPromotion(move) ? us * 6 + moveEncoding.promotionType(move) : moving, to, true);
+        if (flag == moveEncoding.FLAG_EN_PASSANT) {
+            int captured = to + (us == position.WHITE ? 8 : -8);
+            update(acc, pos.pieceAt(captured), captured, false);
+        } else if (pos.pieceAt(to) != position.EMPTY) {
+            update(acc, pos.pieceAt(to), to, false);
+        } else if (flag == moveEncoding.FLAG_CASTLING) {
+            int row = to & 56;
+            boolean kingside = (to & 7) == 6;
+            int rook = us * 6 + position.ROOK;
+            update(acc, rook, row + (kingside ? 7 : 0), false);
+            update(acc, rook, row + (kingside ? 5 : 3), true);
+        }
+    }
+
+    /**
+     * For a null move: nothing changes on the board
+     */
+    public void pushNull() {
+        System.arraycopy(stack[top], 0, stack[top + 1], 0, 2 * hidden);
+        top++;
+    }
+
+    /**
+     * Undoes push() or pushNull(); call after pos.unmakeMove()
+     */
+    public void pop() {
+        top--;
+    }
+
+    private void update(short[] acc, int piece, int sq, boolean add) {
+        for (int perspective = position.WHITE; perspective <= position.BLACK; perspective++) {
+            int row = nnueNetwork.feature(perspective, piece, sq) * hidden;
+            if (add) {
+                kernels.add(acc, perspective * hidden, network.featureWeights, row, hidden);
+            } else {
+                kernels.sub(acc, perspective * hidden, network.featureWeights, row, hidden);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the position the top of the stack describes, in centipawns for the side to move
+     */
+    public int evaluate(int sideToMove) {
+        short[] acc = stack[top];
+        kernels.clippedRelu(acc, sideToMove * hidden, input, 0, hidden);
+        kernels.clippedRelu(acc, (sideToMove ^ 1) * hidden, input, hidden, hidden);
+
+        int inputs = 2 * hidden;
+        for (int i = 0; i < network.l1; i++) {
+            int sum = network.layerBiases[i] + kernels.dot(input, 0, network.layerWeights, i * inputs, inputs);
+            layer[i] = (byte) Math.max(0, Math.min(127, sum >> nnueNetwork.LAYER_SHIFT));
+        }
+        int output = network.outputBias + kernels.dot(layer, 0, network.outputWeights, 0, network.l1);
+        return output / network.outputDivisor;
+    }
+
+    // BENCHMARK
+
+    private static long walkNodes;
+    private static long walkChecksum;  // keeps the evaluations observable
+
+    /**
+     * Evaluates every node of a fixed-depth tree, updating the accumulator on make and unmake
+     */
+    private static void walk(position pos, nnueEvaluator nnue, int depth, int[][] moves) {
+        walkNodes++;
+        walkChecksum += nnue == null ? evaluator.evaluate(pos) : nnue.evaluate(pos.getSideToMove());
+        if (depth == 0) {
+            return;
+        }
+        int count = moveGenerator.generateLegalMoves(pos, moves[depth]);
+        for (int i = 0; i < count; i++) {
+            int move = moves[depth][i];
+            if (nnue != null) {
+                nnue.push(pos, move);
+            }
+            pos.makeMove(move);
+            walk(pos, nnue, depth - 1, moves);
+            pos.unmakeMove();
+            if (nnue != null) {
+                nnue.pop();
+            }
+        }
+    }
+
+    /**
+     * Checks incremental updates against full refreshes, then compares evaluations per second
+     * with the hand-written evaluator over the same trees. Without a network file a random one
+     * is written first. Usage: nnueEvaluator [network file] [depth]
+     * Run with --add-modules jdk.incubator.vector for the SIMD loops.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file;
+        if (args.length > 0) {
+            file = Path.of(args[0]);
+        } else {
+            file = Files.createTempFile("network", ".nnue");
+            nnueNetwork.writeRandom(file, 256, 32, 42);
+        }
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        nnueNetwork network = nnueNetwork.load(file);
+        nnueEvaluator nnue = new nnueEvaluator(network);
+        nnueEvaluator fresh = new nnueEvaluator(network);
+        System.out.printf("Network %s: %dx2 -> %d -> 1, %s loops%n", file, network.hidden, network.l1, nnue.kernelName());
+
+        // Incremental and refreshed accumulators must agree along random games
+        SplittableRandom random = new SplittableRandom(1);
+        int[] buffer = new int[moveGenerator.MAX_MOVES];
+        int checked = 0;
+        for (String fen : BENCH_FENS) {
+            position pos = position.fromFen(fen);
+            nnue.refresh(pos);
+            for (int ply = 0; ply < 100 && nnue.top < MAX_DEPTH - 1; ply++) {
+                int count = moveGenerator.generateLegalMoves(pos, buffer);
+                if (count == 0) {
+                    break;
+                }
+                int move = buffer[random.nextInt(count)];
+                nnue.push(pos, move);
+                pos.makeMove(move);
+                fresh.refresh(pos);
+                if (!Arrays.equals(nnue.stack[nnue.top], fresh.stack[0])) {
+                    throw new IllegalStateException("Incremental update diverged after " + ply + " plies from " + fen);
+                }
+                checked++;
+            }
+        }
+        System.out.println("Incremental updates match full refreshes in " + checked + " positions");
+
+        for (int round = 0; round < 3; round++) {
+            for (nnueEvaluator candidate : new nnueEvaluator[] {null, nnue}) {
+                walkNodes = 0;
+                long start = System.nanoTime();
+                for (String fen : BENCH_FENS) {
+                    position pos = position.fromFen(fen);
+                    if (candidate != null) {
+                        candidate.refresh(pos);
+                    }
+                    walk(pos, candidate, depth, new int[depth + 1][moveGenerator.MAX_MOVES]);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%-12s %,d evaluations in %.2f s, %,.0f evals/s (including make/unmake)%n",
+                                  candidate == null ? "hand-written" : "nnue", walkNodes, seconds, walkNodes / seconds);
+            }
+        }
+    }
+
+    private static final String[] BENCH_FENS = {
+        position.START_FEN,
+        "r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5Q2/PPPP1PPP/RNB1K1NR w KQkq - 4 4",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+}
@@ -0,0 +1,84 @@
+package com.programming.chess.engine;
+
+/**
+ * The integer loops of the neural evaluator. The SIMD version (nnueVectorKernels) needs the
+ * jdk.incubator.vector module at run time, so it is loaded by name and the plain loops below
+ * are used when the module is absent or -Dchess.nnue.scalar=true is set.
+ */
+interface nnueKernels {
+
+    /**
+     * acc[accOffset + i] += weights[rowOffset + i] for i < n
+     */
+    void add(short[] acc, int accOffset, short[] weights, int rowOffset, int n);
+
+    /**
+     * acc[accOffset + i] -= weights[rowOffset + i] for i < n
+     */
+    void sub(short[] acc, int accOffset, short[] weights, int rowOffset, int n);
+
+    /**
+     * out[outOffset + i] = clamp(acc[accOffset + i], 0, 127) for i < n
+     */
+    void clippedRelu(short[] acc, int accOffset, byte[] out, int outOffset, int n);
+
+    /**
+     * @return The sum of a[aOffset + i] * b[bOffset + i] for i < n
+     */
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int n);
+
+    /**
+     * Name for reports, e.g. "vector 512-bit" or "scalar"
+     */
+    String name();
+
+    static nnueKernels create() {
+        if (!Boolean.getBoolean("chess.nnue.scalar")
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (nnueKernels) Class.forName("com.programming.chess.engine.nnueVectorKernels")
+                                          .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar loops
+            }
+        }
+        return new scalar();
+    }
+
+    final class scalar implements nnueKernels {
+        @Override
+        public void add(short[] acc, int accOffset, short[] weights, int rowOffset, int n) {
+            for (int i = 0; i < n; i++) {
+                acc[accOffset + i] += weights[rowOffset + i];
+            }
+        }
+
+        @Override
+        public void sub(short[] acc, int accOffset, short[] weights, int rowOffset, int n) {
+            for (int i = 0; i < n; i++) {
+                acc[accOffset + i] -= weights[rowOffset + i];
+            }
+        }
+
+        @Override
+        public void clippedRelu(short[] acc, int accOffset, byte[] out, int outOffset, int n) {
+            for (int i = 0; i < n; i++) {
+                out[outOffset + i] = (byte) Math.max(0, Math.min(127, acc[accOffset + i]));
+            }
+        }
+
+        @Override
+        public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int n) {
+            int sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += a[aOffset + i] * b[bOffset + i];
+            }
+            return sum;
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.programming.chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+import com.programming.chess.rules.position;
+
+/**
+ * Quantized weights of an efficiently updatable neural network (NNUE), shared read-only by
+ * every nnueEvaluator.
+ *
+ * Layout: 768 inputs per perspective (own/opponent piece type x square, mirrored for Black)
+ * feed an int16 feature transformer of HIDDEN neurons; the two perspectives' accumulators,
+ * side to move first, are clipped to 0..127 and feed an int8 dense layer of L1 neurons
+ * (clipped to 0..127 after a shift of 6) and an int8 output neuron.
+ *
+ * File format, little-endian: a 32-byte header (magic, version, inputs, hidden, l1, output
+ * divisor), then transformer weights int16[768][hidden], transformer biases int16[hidden],
+ * layer weights int8[l1][2 * hidden], layer biases int32[l1], output weights int8[l1] and
+ * the output bias int32. The file is memory-mapped and copied into arrays once.
+ */
+public final class nnueNetwork {
+
+    static final int MAGIC = 0x4E4E4843;  // "CHNN"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    public static final int INPUTS = 768;
+    static final int LAYER_SHIFT = 6;
+
+    final int hidden;
+    final int l1;
+    final int outputDivisor;
+    final short[] featureWeights;   // row per input feature
+    final short[] featureBiases;
+    final byte[] layerWeights;      // row per layer neuron
+    final int[] layerBiases;
+    final byte[] outputWeights;
+    final int outputBias;
+
+    private nnueNetwork(int hidden, int l1, int outputDivisor, short[] featureWeights, short[] featureBiases,
+                        byte[] layerWeights, int[] layerBiases, byte[] outputWeights, int outputBias) {
+        this.hidden = hidden;
+        this.l1 = l1;
+        this.outputDivisor = outputDivisor;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.layerWeights = layerWeights;
+        this.layerBiases = layerBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Input feature of a piece seen from one side; Black's view is flipped vertically
+     */
+    static int feature(int perspective, int piece, int sq) {
+        int relative = piece / 6 == perspective ? piece % 6 : 6 + piece % 6;
+        return relative * 64 + (perspective == position.WHITE ? sq : sq ^ 56);
+    }
+
+    public int getHidden() {
+        return hidden;
+    }
+
+    public static nnueNetwork load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                    || data.getInt(8) != INPUTS) {
+                throw new IOException(file + " is not a network file");
+            }
+            int hidden = data.getInt(12);
+            int l1 = data.getInt(16);
+            int outputDivisor = data.getInt(20);
+            if (channel.size() != fileSize(hidden, l1)) {
+                throw new IOException(file + " has the wrong size for " + hidden + "x" + l1);
+            }
+
+            data.position(HEADER_BYTES);
+            short[] featureWeights = new short[INPUTS * hidden];
+            data.asShortBuffer().get(featureWeights);
+            data.position(data.position() + 2 * featureWeights.length);
+            short[] featureBiases = new short[hidden];
+            data.asShortBuffer().get(featureBiases);
+            data.position(data.position() + 2 * hidden);
+            byte[] layerWeights = new byte[l1 * 2 * hidden];
+            data.get(layerWeights);
+            int[] layerBiases = new int[l1];
+            data.asIntBuffer().get(layerBiases);
+            data.position(data.position() + 4 * l1);
+            byte[] outputWeights = new byte[l1];
+            data.get(outputWeights);
+            int outputBias = data.getInt();
+            return new nnueNetwork(hidden, l1, outputDivisor, featureWeights, featureBiases,
+                                   layerWeights, layerBiases, outputWeights, outputBias);
+        }
+    }
+
+    static long fileSize(int hidden, int l1) {
+        return HEADER_BYTES + 2L * INPUTS * hidden + 2L * hidden + (long) l1 * 2 * hidden + 4L * l1 + l1 + 4;
+    }
+
+    /**
+     * Writes a network with small random weights, for benchmarks and for checking the
+     * incremental updates; it carries no chess knowledge
+     */
+    public static void writeRandom(Path file, int hidden, int l1, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        ByteBuffer data = ByteBuffer.allocate((int) fileSize(hidden, l1)).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(MAGIC).putInt(VERSION).putInt(INPUTS).putInt(hidden).putInt(l1).putInt(16).putLong(0);
+        for (int i = 0; i < INPUTS * hidden; i++) {
+            data.putShort((short) random.nextInt(-24, 25));
+        }
+        for (int i = 0; i < hidden; i++) {
+            data.putShort((short) random.nextInt(0, 64));
+        }
+        for (int i = 0; i < l1 * 2 * hidden; i++) {
+            data.put((byte) random.nextInt(-16, 17));
+        }
+        for (int i = 0; i < l1; i++) {
+            data.putInt(random.nextInt(-1000, 1001));
+        }
+        for (int i = 0; i < l1; i++) {
+            data.put((byte) random.nextInt(-127, 128));
+        }
+        data.putInt(0);
+        data.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
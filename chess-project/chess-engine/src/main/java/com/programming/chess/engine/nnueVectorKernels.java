@@ -0,0 +1,85 @@
+package com.programming.chess.engine;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the neural evaluator's loops, at the widest vector size the CPU supports.
+ * Only loaded through nnueKernels.create(), so the incubator module stays optional.
+ */
+final class nnueVectorKernels implements nnueKernels {
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Byte species with as many lanes as the wider species they are converted to
+    private static final VectorSpecies<Byte> BYTES_PER_SHORTS =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.length() * 8));
+    private static final VectorSpecies<Byte> BYTES_PER_INTS =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.length() * 8));
+
+    @Override
+    public void add(short[] acc, int accOffset, short[] weights, int rowOffset, int n) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(n); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, acc, accOffset + i)
+                       .add(ShortVector.fromArray(SHORTS, weights, rowOffset + i))
+                       .intoArray(acc, accOffset + i);
+        }
+        for (; i < n; i++) {
+            acc[accOffset + i] += weights[rowOffset + i];
+        }
+    }
+
+    @Override
+    public void sub(short[] acc, int accOffset, short[] weights, int rowOffset, int n) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(n); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, acc, accOffset + i)
+                       .sub(ShortVector.fromArray(SHORTS, weights, rowOffset + i))
+                       .intoArray(acc, accOffset + i);
+        }
+        for (; i < n; i++) {
+            acc[accOffset + i] -= weights[rowOffset + i];
+        }
+    }
+
+    @Override
+    public void clippedRelu(short[] acc, int accOffset, byte[] out, int outOffset, int n) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(n); i < bound; i += SHORTS.length()) {
+            ShortVector clipped = ShortVector.fromArray(SHORTS, acc, accOffset + i).max((short) 0).min((short) 127);
+            ((ByteVector) clipped.convertShape(VectorOperators.S2B, BYTES_PER_SHORTS, 0)).intoArray(out, outOffset + i);
+        }
+        for (; i < n; i++) {
+            out[outOffset + i] = (byte) Math.max(0, Math.min(127, acc[accOffset + i]));
+        }
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int n) {
+        // Widen to int lanes before multiplying: int8 products overflow a byte lane
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = BYTES_PER_INTS.loopBound(n); i < bound; i += INTS.length()) {
+            IntVector x = (IntVector) ByteVector.fromArray(BYTES_PER_INTS, a, aOffset + i)
+                                                .convertShape(VectorOperators.B2I, INTS, 0);
+            IntVector y = (IntVector) ByteVector.fromArray(BYTES_PER_INTS, b, bOffset + i)
+                                                .convertShape(VectorOperators.B2I, INTS, 0);
+            sum = sum.add(x.mul(y));
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    public String name() {
+        return "vector " + SHORTS.vectorBitSize() + "-bit";
+    }
+}
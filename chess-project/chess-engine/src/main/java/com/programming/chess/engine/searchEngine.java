@@ -0,0 +1,587 @@
+package com.programming.chess.engine;
+
+import com.programming.chess.rules.moveEncoding;
+import com.programming.chess.rules.moveGenerator;
+import com.programming.chess.rules.position;
+
+/**
+ * Iterative deepening alpha-beta search (principal variation search) with a
+ * transposition table, null-move pruning, late move reductions, quiescence search,
+ * and move ordering by hash move, MVV-LVA, killers and history.
+ *
+ * One engine searches one position at a time. The transposition table is kept
+ * between searches, so analysing a position that follows the previous one starts
+ * with most of its work already done. {@link #stop()} may be called from any thread.
+ */
+public class searchEngine {
+
+    public static final int MAX_PLY = 128;
+    public static final int MATE = 32000;
+    public static final int INFINITE = 32001;
+    // Scores beyond this are mates found within the search horizon
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    private static final int CHECK_INTERVAL = 2048;
+
+    /**
+     * When to stop searching. Unset limits are unbounded.
+     */
+    public static class Limits {
+        public int depth = MAX_PLY - 1;
+        public long nodes = Long.MAX_VALUE;
+        public long timeMillis = Long.MAX_VALUE;
+
+        public static Limits infinite() {
+            return new Limits();
+        }
+
+        public static Limits depth(int depth) {
+            Limits limits = new Limits();
+            limits.depth = Math.min(depth, MAX_PLY - 1);
+            return limits;
+        }
+
+        public static Limits nodes(long nodes) {
+            Limits limits = new Limits();
+            limits.nodes = nodes;
+            return limits;
+        }
+
+        public static Limits time(long millis) {
+            Limits limits = new Limits();
+            limits.timeMillis = millis;
+            return limits;
+        }
+    }
+
+    /**
+     * Result of one completed iteration
+     */
+    public static class Info {
+        public final int depth;
+        public final int score;          // Centipawns from the side to move, or a mate score
+        public final long nodes;
+        public final long elapsedMillis;
+        public final int[] pv;
+        public final int hashfull;
+
+        Info(int depth, int score, long nodes, long elapsedMillis, int[] pv, int hashfull) {
+            this.depth = depth;
+            this.score = score;
+            this.nodes = nodes;
+            this.elapsedMillis = elapsedMillis;
+            this.pv = pv;
+            this.hashfull = hashfull;
+        }
+
+        public long nodesPerSecond() {
+            return nodes * 1000 / Math.max(1, elapsedMillis);
+        }
+
+        public boolean isMate() {
+            return Math.abs(score) >= MATE_BOUND;
+        }
+
+        /**
+         * @return Moves to mate, negative if the side to move is getting mated (only meaningful if isMate)
+         */
+        public int mateIn() {
+            return score > 0 ? (MATE - score + 1) / 2 : -(MATE + score) / 2;
+        }
+
+        public int bestMove() {
+            return pv.length > 0 ? pv[0] : moveEncoding.NONE;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            line.append("depth ").append(depth)
+                .append(isMate() ? " mate " + mateIn() : " cp " + score)
+                .append(" nodes ").append(nodes)
+                .append(" nps ").append(nodesPerSecond())
+                .append(" time ").append(elapsedMillis)
+                .append(" pv");
+            for (int move : pv) {
+                line.append(' ').append(moveEncoding.toUci(move));
+            }
+            return line.toString();
+        }
+    }
+
+    /**
+     * Receives each completed iteration, on the searching thread
+     */
+    public interface Listener {
+        void onIteration(Info info);
+    }
+
+    private final transpositionTable table;
+    private volatile boolean stopRequested;
+
+    private nnueEvaluator nnue;  // null: hand-written evaluator
+    private Limits limits;
+    private long startNanos;
+    private long nodes;
+
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][moveGenerator.MAX_MOVES];
+    private final int[][] orderBuffers = new int[MAX_PLY + 1][moveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    public searchEngine(int hashMegabytes) {
+        this(new transpositionTable(hashMegabytes));
+    }
+
+    public searchEngine(transpositionTable table) {
+        this.table = table;
+    }
+
+    public transpositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Evaluates with a neural network instead of the hand-written evaluator; null switches back
+     */
+    public void setNetwork(nnueNetwork network) {
+        nnue = network == null ? null : new nnueEvaluator(network);
+    }
+
+    /**
+     * Asks a running search to return as soon as possible
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Number of nodes searched so far by the current or last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches a position until a limit is reached or stop() is called.
+     * The position is copied, so the caller's instance is not touched.
+     *
+     * @param listener Called after every completed iteration; may be null
+     * @return The last completed iteration, or null if the position has no legal moves
+     */
+    public Info search(position root, Limits limits, Listener listener) {
+        position pos = root.copy();
+        if (nnue != null) {
+            nnue.refresh(pos);
+        }
+        this.limits = limits;
+        stopRequested = false;
+        startNanos = System.nanoTime();
+        nodes = 0;
+        table.newSearch();
+        for (int[] pair : killers) {
+            pair[0] = moveEncoding.NONE;
+            pair[1] = moveEncoding.NONE;
+        }
+        for (int[] row : history) {
+            for (int sq = 0; sq < 64; sq++) {
+                row[sq] >>= 2; // Keep a little of the previous search's ordering
+            }
+        }
+
+        if (!moveGenerator.hasLegalMove(pos)) {
+            return null;
+        }
+
+        Info best = null;
+        for (int depth = 1; depth <= limits.depth; depth++) {
+            int score = negamax(pos, depth, -INFINITE, INFINITE, 0, true);
+            if (stopRequested && best != null) {
+                break; // The interrupted iteration is incomplete
+            }
+
+            int[] pv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, pv, 0, pv.length);
+            if (score == -INFINITE) {
+                // Stopped before the first root move finished: there is no search result to
+                // report, so return that move with the static evaluation as a depth-0 answer
+                return new Info(0, evaluate(pos), nodes, elapsedMillis(), pv, table.hashfull());
+            }
+            best = new Info(depth, score, nodes, elapsedMillis(), pv, table.hashfull());
+            if (listener != null) {
+                listener.onIteration(best);
+            }
+            if (stopRequested) {
+                break;
+            }
+            // Another iteration would take several times as long as this one
+            if (limits.timeMillis != Long.MAX_VALUE && elapsedMillis() * 2 > limits.timeMillis) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private int negamax(position pos, int depth, int alpha, int beta, int ply, boolean pvNode) {
+        pvLength[ply] = ply;
+
+        if (ply > 0) {
+            if (pos.getHalfmoveClock() >= 100 || pos.repetitionCount() >= 2 || pos.isInsufficientMaterial()) {
+                return 0;
+            }
+            // No line through here can beat a mate already found closer to the root
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) {
+                return alpha;
+            }
+        }
+
+        boolean inCheck = pos.inCheck();
+        if (inCheck) {
+            depth++; // Check extension
+        }
+        if (depth <= 0) {
+            return quiescence(pos, alpha, beta, ply);
+        }
+
+        countNode();
+        if (stopRequested && ply > 0) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluate(pos);
+        }
+
+        long hash = pos.getHash();
+        long entry = table.probe(hash);
+        int hashMove = moveEncoding.NONE;
+        if (entry != 0) {
+            hashMove = transpositionTable.move(entry);
+            if (!pvNode && transpositionTable.depth(entry) >= depth) {
+                int score = fromTable(transpositionTable.score(entry), ply);
+                int bound = transpositionTable.bound(entry);
+                if (bound == transpositionTable.BOUND_EXACT
+                    || (bound == transpositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == transpositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // Null move: if passing still fails high, a real move surely would
+        int us = pos.getSideToMove();
+        if (!pvNode && !inCheck && depth >= 3 && hasPieces(pos, us) && evaluate(pos) >= beta) {
+            pos.makeNullMove();
+            if (nnue != null) {
+                nnue.pushNull();
+            }
+            int score = -negamax(pos, depth - 3, -beta, -beta + 1, ply + 1, false);
+            pos.unmakeNullMove();
+            if (nnue != null) {
+                nnue.pop();
+            }
+            if (stopRequested) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score >= MATE_BOUND ? beta : score;
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = moveGenerator.generateLegalMoves(pos, moves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(pos, moves, count, ply, hashMove, false);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITE;
+        int bestMove = moveEncoding.NONE;
+
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(moves, orderBuffers[ply], i, count);
+            boolean quiet = isQuiet(pos, move);
+
+            make(pos, move);
+            int score;
+            if (i == 0) {
+                score = -negamax(pos, depth - 1, -beta, -alpha, ply + 1, pvNode);
+            } else {
+                // Late quiet moves are searched shallower first, all with a null window
+                int reduction = 0;
+                if (depth >= 3 && i >= 3 && quiet && !inCheck && !pos.inCheck()) {
+                    reduction = i >= 8 ? 2 : 1;
+                }
+                score = -negamax(pos, depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, false);
+                if (score > alpha && reduction > 0) {
+                    score = -negamax(pos, depth - 1, -alpha - 1, -alpha, ply + 1, false);
+                }
+                if (score > alpha && score < beta) {
+                    score = -negamax(pos, depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            unmake(pos);
+
+            if (stopRequested) {
+                // The last score is unreliable; at the root keep the moves completed so far
+                if (ply > 0) {
+                    return 0;
+                }
+                if (bestMove == moveEncoding.NONE) {
+                    // Stopped inside the first move of the first iteration: still offer a move,
+                    // but no score, and nothing for the table
+                    pvTable[0][0] = move;
+                    pvLength[0] = 1;
+                    return -INFINITE;
+                }
+                break;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            if (killers[ply][0] != move) {
+                                killers[ply][1] = killers[ply][0];
+                                killers[ply][0] = move;
+                            }
+                            history[pos.pieceAt(moveEncoding.from(move))][moveEncoding.to(move)] += depth * depth;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        // A root search cut short has only seen some of its moves; its score is no bound
+        if (!stopRequested) {
+            int bound = bestScore >= beta ? transpositionTable.BOUND_LOWER
+                      : bestScore > originalAlpha ? transpositionTable.BOUND_EXACT
+                      : transpositionTable.BOUND_UPPER;
+            table.store(hash, bestMove, toTable(bestScore, ply), depth, bound);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Searches captures and promotions (all evasions when in check) until the position is quiet
+     */
+    private int quiescence(position pos, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        countNode();
+        if (stopRequested) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluate(pos);
+        }
+
+        boolean inCheck = pos.inCheck();
+        int bestScore;
+        if (inCheck) {
+            bestScore = -MATE + ply;
+        } else {
+            // Stand pat: the side to move can usually do at least as well as doing nothing
+            bestScore = evaluate(pos);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = moveGenerator.generateLegalMoves(pos, moves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : bestScore;
+        }
+        scoreMoves(pos, moves, count, ply, moveEncoding.NONE, !inCheck);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(moves, orderBuffers[ply], i, count);
+            if (orderBuffers[ply][i] < 0) {
+                break; // Only quiet moves are left
+            }
+
+            make(pos, move);
+            int score = -quiescence(pos, -beta, -alpha, ply + 1);
+            unmake(pos);
+
+            if (stopRequested) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    private static final int[] ORDER_VALUES = {1, 3, 3, 5, 9, 20};
+
+    /**
+     * Gives each move an ordering score. With tacticalOnly, quiet moves get a negative score.
+     */
+    private void scoreMoves(position pos, int[] moves, int count, int ply, int hashMove, boolean tacticalOnly) {
+        int[] order = orderBuffers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = moveEncoding.from(move);
+            int to = moveEncoding.to(move);
+            int victim = pos.pieceAt(to);
+
+            if (move == hashMove) {
+                order[i] = 2_000_000;
+            } else if (victim != position.EMPTY || moveEncoding.flag(move) == moveEncoding.FLAG_EN_PASSANT) {
+                // MVV-LVA: most valuable victim first, cheapest attacker first
+                int victimValue = victim == position.EMPTY ? 1 : ORDER_VALUES[victim % 6];
+                order[i] = 1_000_000 + victimValue * 100 - ORDER_VALUES[pos.pieceAt(from) % 6];
+            } else if (moveEncoding.isPromotion(move)) {
+                order[i] = 900_000 + moveEncoding.promotionType(move);
+            } else if (tacticalOnly) {
+                order[i] = -1;
+            } else if (move == killers[ply][0]) {
+                order[i] = 800_000;
+            } else if (move == killers[ply][1]) {
+                order[i] = 700_000;
+            } else {
+                order[i] = Math.min(history[pos.pieceAt(from)][to], 600_000);
+            }
+        }
+    }
+
+    /**
+     * Selection sort step: swaps the best remaining move into slot i and returns it
+     */
+    private static int pickMove(int[] moves, int[] order, int i, int count) {
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (order[j] > order[best]) {
+                best = j;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[i];
+        moves[i] = move;
+        int score = order[best];
+        order[best] = order[i];
+        order[i] = score;
+        return move;
+    }
+
+    private int evaluate(position pos) {
+        return nnue != null ? nnue.evaluate(pos.getSideToMove()) : evaluator.evaluate(pos);
+    }
+
+    private void make(position pos, int move) {
+        if (nnue != null) {
+            nnue.push(pos, move);
+        }
+        pos.makeMove(move);
+    }
+
+    private void unmake(position pos) {
+        pos.unmakeMove();
+        if (nnue != null) {
+            nnue.pop();
+        }
+    }
+
+    private static boolean isQuiet(position pos, int move) {
+        return pos.pieceAt(moveEncoding.to(move)) == position.EMPTY
+            && moveEncoding.flag(move) != moveEncoding.FLAG_EN_PASSANT
+            && !moveEncoding.isPromotion(move);
+    }
+
+    private static boolean hasPieces(position pos, int color) {
+        return pos.pieceCount(color, position.KNIGHT) + pos.pieceCount(color, position.BISHOP)
+             + pos.pieceCount(color, position.ROOK) + pos.pieceCount(color, position.QUEEN) > 0;
+    }
+
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, childLength - ply - 1);
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    private void countNode() {
+        nodes++;
+        if (nodes >= limits.nodes) {
+            stopRequested = true;
+        } else if ((nodes & (CHECK_INTERVAL - 1)) == 0 && elapsedMillis() >= limits.timeMillis) {
+            stopRequested = true;
+        }
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Searches each given FEN (or a small built-in set) to a fixed depth and reports the node rate.
+     * Usage: searchEngine [depth] [fen ...]
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        String[] fens = args.length > 1 ? java.util.Arrays.copyOfRange(args, 1, args.length) : BENCH_FENS;
+
+        evaluator.loadTunedParameters();
+        searchEngine engine = new searchEngine(64);
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        for (String fen : fens) {
+            System.out.println(fen);
+            Info info = engine.search(position.fromFen(fen), Limits.depth(depth), System.out::println);
+            if (info != null) {
+                totalNodes += info.nodes;
+            }
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf("%d nodes in %d ms, %d nps%n", totalNodes, millis, totalNodes * 1000 / millis);
+    }
+
+    private static final String[] BENCH_FENS = {
+        position.START_FEN,
+        "r1bqkbnr/pppp1ppp/2n5/4p3/2B1P3/5Q2/PPPP1PPP/RNB1K1NR w KQkq - 4 4",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"
+    };
+
+    // Mate scores are stored relative to the node so they stay valid at other distances from the root
+
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+}
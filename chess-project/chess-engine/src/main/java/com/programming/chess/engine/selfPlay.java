@@ -0,0 +1,350 @@
+package com.programming.chess.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.programming.chess.rules.detectCheck;
+import com.programming.chess.rules.moveEncoding;
+import com.programming.chess.rules.moveGenerator;
+import com.programming.chess.rules.position;
+
+/**
+ * Generates training data from the engine's own games.
+ *
+ * Worker threads each play complete games with a fixed node budget per move, starting from
+ * a few random plies so that games differ. Every quiet position (not in check, best move
+ * neither a capture nor a promotion, no mate score) is kept with its search score; when the
+ * game ends the samples are labelled with the result and appended to a trainingSamples file.
+ * Positions whose hash was already written can be skipped.
+ *
+ * Whole games are written and flushed at once, so stopping (Ctrl-C, a kill, or reaching the
+ * target) loses at most the games in progress. Running again with the same file resumes: the existing
+ * records are kept, their hashes reseed deduplication, and new games use fresh seeds.
+ */
+public class selfPlay {
+
+    private static final int RANDOM_PLIES = 8;
+    private static final int RESIGN_SCORE = 1500;
+    private static final int RESIGN_PLIES = 6;
+    private static final int DRAW_SCORE = 5;
+    private static final int DRAW_PLIES = 16;
+    private static final int DRAW_MIN_PLY = 60;
+    private static final int MAX_PLIES = 300;
+    private static final long REPORT_MILLIS = 5000;
+
+    /**
+     * Totals of one run
+     */
+    public static class Stats {
+        public final long games;
+        public final long positions;      // written in this run
+        public final long duplicates;     // skipped because their hash was already written
+        public final long fileRecords;
+        public final long fileBytes;
+        public final long elapsedNanos;
+
+        Stats(long games, long positions, long duplicates, long fileRecords, long fileBytes, long elapsedNanos) {
+            this.games = games;
+            this.positions = positions;
+            this.duplicates = duplicates;
+            this.fileRecords = fileRecords;
+            this.fileBytes = fileBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double positionsPerSecond() {
+            return positions / Math.max(elapsedNanos / 1e9, 1e-9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d games, %,d positions (%,d duplicates skipped), %,.0f positions/s, file %,d records, %.1f MB",
+                                 games, positions, duplicates, positionsPerSecond(), fileRecords, fileBytes / 1e6);
+        }
+    }
+
+    private final Path file;
+    private final int threads;
+    private final long nodesPerMove;
+    private final boolean deduplicate;
+
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private volatile boolean stopRequested;
+    private hashSet seen;
+    private trainingSamples.Writer writer;
+
+    /**
+     * @param deduplicate Skip positions whose hash is already in the file
+     */
+    public selfPlay(Path file, int threads, long nodesPerMove, boolean deduplicate) {
+        this.file = file;
+        this.threads = threads;
+        this.nodesPerMove = nodesPerMove;
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * Asks the workers to stop; games in progress are dropped
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Plays games until the file holds targetRecords samples or stop() is called
+     */
+    public Stats run(long targetRecords) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        boolean resume = Files.exists(file);
+        writer = trainingSamples.Writer.open(file, resume);
+        seen = new hashSet(1 << 20);
+        if (resume && deduplicate && writer.getCount() > 0) {
+            try (trainingSamples.Reader reader = trainingSamples.Reader.open(file)) {
+                for (long i = 0; i < reader.count(); i++) {
+                    seen.add(reader.position(i).getHash());
+                }
+            }
+        }
+        long resumedFrom = writer.getCount();
+
+        // A different seed per run, so resuming does not replay the same games
+        long seed = resumedFrom * 0x9E3779B97F4A7C15L + System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            SplittableRandom random = new SplittableRandom(seed + i);
+            Thread worker = new Thread(() -> {
+                try {
+                    work(random, targetRecords);
+                } finally {
+                    finished.countDown();
+                }
+            }, "selfplay-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        long lastReport = System.nanoTime();
+        while (!finished.await(200, TimeUnit.MILLISECONDS)) {
+            if ((System.nanoTime() - lastReport) / 1_000_000 >= REPORT_MILLIS) {
+                lastReport = System.nanoTime();
+                System.out.println(stats(start));
+            }
+        }
+        synchronized (this) {
+            writer.close();
+        }
+        if (resumedFrom > 0) {
+            System.out.printf("Resumed after %,d existing records%n", resumedFrom);
+        }
+        return stats(start);
+    }
+
+    private synchronized Stats stats(long start) {
+        return new Stats(games.get(), positions.get(), duplicates.get(), writer.getCount(), writer.sizeBytes(),
+                         System.nanoTime() - start);
+    }
+
+    private void work(SplittableRandom random, long targetRecords) {
+        searchEngine engine = new searchEngine(16);
+        searchEngine.Limits limits = searchEngine.Limits.nodes(nodesPerMove);
+        List<position> samples = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        int[] moves = new int[moveGenerator.MAX_MOVES];
+
+        while (!stopRequested) {
+            engine.getTable().clear();
+            samples.clear();
+            scores.clear();
+            int result = playGame(engine, limits, random, moves, samples, scores);
+            if (result < 0) {
+                return; // stopped mid-game
+            }
+            if (!write(samples, scores, result, targetRecords)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Plays one game, collecting quiet positions and their White-relative scores
+     * @return The result from White's point of view, or -1 if stopped
+     */
+    private int playGame(searchEngine engine, searchEngine.Limits limits, SplittableRandom random, int[] moves,
+                         List<position> samples, List<Integer> scores) {
+        position pos = position.startPosition();
+        for (int ply = 0; ply < RANDOM_PLIES; ply++) {
+            int count = moveGenerator.generateLegalMoves(pos, moves);
+            if (count == 0) {
+                break;
+            }
+            pos.makeMove(moves[random.nextInt(count)]);
+        }
+
+        int resignPlies = 0;
+        int resignWinner = -1;
+        int drawPlies = 0;
+        for (int ply = RANDOM_PLIES; ; ply++) {
+            if (stopRequested) {
+                return -1;
+            }
+            int side = pos.getSideToMove();
+            detectCheck.GameStatus status = detectCheck.evaluateStatus(pos, true);
+            if (status.isGameOver()) {
+                if (status != detectCheck.GameStatus.CHECKMATE) {
+                    return trainingSamples.RESULT_DRAW;
+                }
+                return side == position.WHITE ? trainingSamples.RESULT_LOSS : trainingSamples.RESULT_WIN;
+            }
+            if (ply >= MAX_PLIES) {
+                return trainingSamples.RESULT_DRAW;
+            }
+
+            searchEngine.Info info = engine.search(pos, limits, null);
+            int move = info.bestMove();
+            int whiteScore = side == position.WHITE ? info.score : -info.score;
+            boolean quiet = pos.pieceAt(moveEncoding.to(move)) == position.EMPTY
+                            && moveEncoding.flag(move) != moveEncoding.FLAG_EN_PASSANT
+                            && !moveEncoding.isPromotion(move);
+            if (quiet && !info.isMate() && !pos.inCheck()) {
+                samples.add(pos.copy());
+                scores.add(whiteScore);
+            }
+
+            // Adjudicate once the score has been decisive or level for a while
+            int winner = whiteScore > 0 ? position.WHITE : position.BLACK;
+            if (Math.abs(whiteScore) >= RESIGN_SCORE && (resignPlies == 0 || winner == resignWinner)) {
+                resignPlies++;
+                resignWinner = winner;
+            } else {
+                resignPlies = 0;
+            }
+            drawPlies = Math.abs(whiteScore) <= DRAW_SCORE ? drawPlies + 1 : 0;
+            if (resignPlies >= RESIGN_PLIES) {
+                return resignWinner == position.WHITE ? trainingSamples.RESULT_WIN : trainingSamples.RESULT_LOSS;
+            }
+            if (drawPlies >= DRAW_PLIES && ply >= DRAW_MIN_PLY) {
+                return trainingSamples.RESULT_DRAW;
+            }
+            pos.makeMove(move);
+        }
+    }
+
+    /**
+     * Appends a finished game's samples
+     * @return False once the target is reached
+     */
+    private synchronized boolean write(List<position> samples, List<Integer> scores, int result, long targetRecords) {
+        if (stopRequested) {
+            return false;
+        }
+        try {
+            for (int i = 0; i < samples.size() && writer.getCount() < targetRecords; i++) {
+                position sample = samples.get(i);
+                if (deduplicate && !seen.add(sample.getHash())) {
+                    duplicates.incrementAndGet();
+                    continue;
+                }
+                writer.add(sample, scores.get(i), result);
+                positions.incrementAndGet();
+            }
+            // Hand the game to the OS, so a killed process only loses the games still being played
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        games.incrementAndGet();
+        if (writer.getCount() >= targetRecords) {
+            stopRequested = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Open-addressing set of position hashes; 0 marks an empty slot, so hash 0 is never stored
+     */
+    static final class hashSet {
+        private long[] slots;
+        private int size;
+
+        hashSet(int capacity) {
+            slots = new long[capacity];
+        }
+
+        /**
+         * @return False if the hash was already present
+         */
+        boolean add(long hash) {
+            if (hash == 0) {
+                return true;
+            }
+            if (size * 2 >= slots.length) {
+                long[] old = slots;
+                slots = new long[old.length * 2];
+                size = 0;
+                for (long h : old) {
+                    if (h != 0) {
+                        add(h);
+                    }
+                }
+            }
+            int mask = slots.length - 1;
+            int slot = (int) (hash ^ hash >>> 32) & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == hash) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = hash;
+            size++;
+            return true;
+        }
+    }
+
+    /**
+     * Generates samples until the file holds the target count; Ctrl-C stops cleanly and the
+     * same command resumes. Usage: selfPlay [out.bin] [target records] [nodes per move] [threads] [dedup]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path file = Path.of(args.length > 0 ? args[0] : "selfplay.bin");
+        long target = args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+        long nodes = args.length > 2 ? Long.parseLong(args[2]) : 5_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        boolean dedup = args.length <= 4 || Boolean.parseBoolean(args[4]);
+
+        selfPlay generator = new selfPlay(file, threads, nodes, dedup);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread hook = new Thread(() -> {
+            generator.stop();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(hook);
+
+        System.out.printf("Self-play to %s: %,d records, %,d nodes per move, %d threads, dedup %s%n",
+                          file, target, nodes, threads, dedup);
+        try {
+            Stats stats = generator.run(target);
+            System.out.println(stats);
+        } finally {
+            // Also on failure, or the shutdown hook would wait forever
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.programming.chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.programming.chess.rules.position;
+
+/**
+ * Probes endgame tables written by tablebaseGenerator.
+ *
+ * Each material signature has one file, "KQvKR.tb", memory-mapped on first use:
+ *   header (64 bytes): magic, version, signature, entry count, DTM bit width, longest mate,
+ *   win/draw/loss: 2 bits per index (0 unused, 1 loss, 2 draw, 3 win for the side to move),
+ *   distance to mate: dtmBits per index, the number of plies until mate.
+ * A probe computes one index and reads two packed fields, so it takes constant time.
+ * Positions with the stronger side as black are probed with colors swapped. The table for a
+ * set of pieces is found through an integer material key, so probing builds no strings and,
+ * once a table is mapped, allocates nothing.
+ */
+public class tablebase {
+
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+
+    static final int MAGIC = 0x43485442;  // "CHTB"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int SIGNATURE_BYTES = 16;
+    static final String SUFFIX = ".tb";
+
+    // Packed probe results used by the generator: wdl code << 8 | dtm
+    static final int CODE_UNUSED = 0;
+    static final int CODE_LOSS = 1;
+    static final int CODE_DRAW = 2;
+    static final int CODE_WIN = 3;
+    static final int MISSING = -1;
+
+    // Material key: per color and non-king piece type a base-3 digit counting those pieces,
+    // enough for the at most two non-king pieces of a table
+    private static final int[] MATERIAL_WEIGHT = new int[12];
+    private static final int MATERIAL_KEYS;
+
+    static {
+        int weight = 1;
+        for (int color = 0; color < 2; color++) {
+            for (int type = position.PAWN; type < position.KING; type++) {
+                MATERIAL_WEIGHT[color * 6 + type] = weight;
+                weight *= 3;
+            }
+        }
+        MATERIAL_KEYS = weight;
+    }
+
+    // Every result a table can hold, indexed by its probe code
+    private static final Result[] RESULTS = new Result[(CODE_WIN + 1) << 8];
+
+    static {
+        for (int dtm = 0; dtm < 256; dtm++) {
+            RESULTS[CODE_LOSS << 8 | dtm] = new Result(LOSS, dtm);
+            RESULTS[CODE_DRAW << 8 | dtm] = new Result(DRAW, dtm);
+            RESULTS[CODE_WIN << 8 | dtm] = new Result(WIN, dtm);
+        }
+    }
+
+    /**
+     * The exact result of a position with perfect play
+     */
+    public static class Result {
+        public final int wdl;  // WIN, DRAW or LOSS for the side to move
+        public final int dtm;  // plies until mate, 0 for draws
+
+        Result(int wdl, int dtm) {
+            this.wdl = wdl;
+            this.dtm = dtm;
+        }
+
+        /**
+         * @return Moves until mate counted the usual way: positive if the side to move mates
+         */
+        public int mateIn() {
+            return wdl == WIN ? (dtm + 1) / 2 : wdl == LOSS ? -(dtm / 2) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return wdl == DRAW ? "draw" : (wdl == WIN ? "win" : "loss") + " in " + dtm + " plies";
+        }
+    }
+
+    /**
+     * One mapped table
+     */
+    static final class table {
+        final tablebaseIndex index;
+        final MappedByteBuffer data;
+        final int dtmBits;
+        final int maxDtm;
+        final int wdlOffset;
+        final int dtmOffset;
+
+        table(tablebaseIndex index, MappedByteBuffer data, int dtmBits, int maxDtm) {
+            this.index = index;
+            this.data = data;
+            this.dtmBits = dtmBits;
+            this.maxDtm = maxDtm;
+            this.wdlOffset = HEADER_BYTES;
+            this.dtmOffset = HEADER_BYTES + (index.size + 3) / 4;
+        }
+
+        int code(int i) {
+            int wdl = data.get(wdlOffset + (i >>> 2)) >>> ((i & 3) * 2) & 3;
+            if (wdl != CODE_WIN && wdl != CODE_LOSS) {
+                return wdl << 8;
+            }
+            long bit = (long) i * dtmBits;
+            long word = data.getLong(dtmOffset + (int) (bit >>> 3));
+            int dtm = (int) (word >>> (bit & 7)) & ((1 << dtmBits) - 1);
+            return wdl << 8 | dtm;
+        }
+    }
+
+    /**
+     * The table a material key resolves to, and whether the pieces are probed with colors swapped
+     */
+    private static final class material {
+        final table table;  // null if no table covers the material
+        final boolean flipped;
+
+        material(table table, boolean flipped) {
+            this.table = table;
+            this.flipped = flipped;
+        }
+    }
+
+    /**
+     * Per-thread arrays for one probe
+     */
+    private static final class scratch {
+        final int[] colors = new int[tablebaseIndex.MAX_PIECES];
+        final int[] types = new int[tablebaseIndex.MAX_PIECES];
+        final int[] squares = new int[tablebaseIndex.MAX_PIECES];
+        final int[] placed = new int[tablebaseIndex.MAX_PIECES];
+    }
+
+    private final Path directory;
+    private final ConcurrentHashMap<String, table> tables = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Boolean> missing = new ConcurrentHashMap<>();
+    // Resolved on first probe; entries are immutable, so a racing reader at worst resolves again
+    private final material[] materials = new material[MATERIAL_KEYS];
+    private final ThreadLocal<scratch> scratches = ThreadLocal.withInitial(scratch::new);
+
+    public tablebase(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return True if a table exists for the signature (in either color orientation)
+     */
+    public boolean has(String signature) {
+        String stored = tablebaseIndex.blackStronger(signature) ? tablebaseIndex.flip(signature) : signature;
+        return table(stored) != null;
+    }
+
+    /**
+     * Looks a position up
+     * @return The exact result, or null if no table covers it. Positions with castling rights
+     *         or an en passant square are never covered.
+     */
+    public Result probe(position pos) {
+        if (pos.getCastlingRights() != 0 || pos.getEnPassantSquare() >= 0
+                || Long.bitCount(pos.getOccupied()) > tablebaseIndex.MAX_PIECES) {
+            return null;
+        }
+        scratch s = scratches.get();
+        int[] colors = s.colors;
+        int[] types = s.types;
+        int[] squares = s.squares;
+        int count = 0;
+        for (long occupied = pos.getOccupied(); occupied != 0; occupied &= occupied - 1) {
+            int sq = Long.numberOfTrailingZeros(occupied);
+            int piece = pos.pieceAt(sq);
+            colors[count] = piece / 6;
+            types[count] = piece % 6;
+            squares[count++] = sq;
+        }
+
+        int code = probeCode(colors, types, squares, count, pos.getSideToMove());
+        if (code == MISSING || code >> 8 == CODE_UNUSED) {
+            return null;
+        }
+        return RESULTS[code];
+    }
+
+    /**
+     * Probes a set of pieces given in any order
+     * @return wdl code << 8 | dtm for the side to move, or MISSING if no table covers the material
+     */
+    int probeCode(int[] colors, int[] types, int[] squares, int count, int sideToMove) {
+        int key = 0;
+        for (int i = 0; i < count; i++) {
+            key += MATERIAL_WEIGHT[colors[i] * 6 + types[i]];
+        }
+        material material = materials[key];
+        if (material == null) {
+            material = resolve(colors, types, count);
+            materials[key] = material;
+        }
+        table table = material.table;
+        if (table == null) {
+            return MISSING;
+        }
+
+        // Place the pieces into the table's slots, swapping colors and ranks if flipped
+        boolean flipped = material.flipped;
+        tablebaseIndex index = table.index;
+        int[] placed = scratches.get().placed;
+        int used = 0;
+        for (int slot = 0; slot < index.pieceCount; slot++) {
+            for (int i = 0; i < count; i++) {
+                int color = flipped ? colors[i] ^ 1 : colors[i];
+                if ((used & 1 << i) == 0 && color == index.colors[slot] && types[i] == index.types[slot]) {
+                    used |= 1 << i;
+                    placed[slot] = flipped ? squares[i] ^ 56 : squares[i];
+                    break;
+                }
+            }
+        }
+        int side = flipped ? sideToMove ^ 1 : sideToMove;
+        return table.code(index.index(side, placed));
+    }
+
+    private material resolve(int[] colors, int[] types, int count) {
+        String signature = tablebaseIndex.signature(colors, types, count);
+        boolean flipped = tablebaseIndex.blackStronger(signature);
+        return new material(table(flipped ? tablebaseIndex.flip(signature) : signature), flipped);
+    }
+
+    private table table(String signature) {
+        table table = tables.get(signature);
+        if (table != null || missing.containsKey(signature)) {
+            return table;
+        }
+        Path file = directory.resolve(signature + SUFFIX);
+        if (!Files.exists(file)) {
+            missing.put(signature, Boolean.TRUE);
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a tablebase file");
+            }
+            table = new table(new tablebaseIndex(signature), data, data.getInt(8 + SIGNATURE_BYTES + 8),
+                              data.getInt(8 + SIGNATURE_BYTES + 12));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open tablebase " + file, e);
+        }
+        tables.put(signature, table);
+        return table;
+    }
+
+    /**
+     * Forgets a cached absence, after the generator has written a new table
+     */
+    void refresh(String signature) {
+        missing.remove(signature);
+        Arrays.fill(materials, null);
+    }
+}
@@ -0,0 +1,595 @@
+package com.programming.chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.programming.chess.rules.position;
+
+/**
+ * Builds endgame tables of up to four pieces by retrograde analysis.
+ *
+ * 1. Every index is classified once by generating its moves. Captures and promotions leave
+ *    the table and are looked up in smaller tables (generated first, recursively), so a
+ *    position can already be known as won through a conversion, drawn, or lost.
+ *    Checkmates are losses in 0, stalemates draws.
+ * 2. Positions are then resolved in order of distance to mate. At level n every position
+ *    lost in n plies makes its predecessors (found by un-moving pieces) won in n + 1, and
+ *    every position won in n plies makes each predecessor a candidate loss, confirmed only
+ *    if all of its moves lead to positions already won for the opponent.
+ * 3. Whatever is still unresolved is a draw.
+ * Both passes split the index range across threads. Positions are stored without en
+ * passant rights, which only matters for tables with a pawn on each side.
+ */
+public class tablebaseGenerator {
+
+    // Generation state per index: state << 8 | plies to mate
+    private static final short UNKNOWN = 0;
+    private static final int WIN = 1;
+    private static final int LOSS = 2;
+    private static final int DRAW = 3;
+    private static final int INVALID = 4;
+    private static final int MAX_DTM = 255;
+
+    // exitInfo values: the loss distance forced by captures/promotions, or a drawing exit
+    private static final byte EXIT_DRAW = (byte) 0xFF;
+
+    private static final int CHUNKS_PER_THREAD = 8;
+    private static final int[] PROMOTIONS = {position.QUEEN, position.ROOK, position.BISHOP, position.KNIGHT};
+
+    private final Path directory;
+    private final int threads;
+    private final tablebase probes;
+
+    public tablebaseGenerator(Path directory, int threads) {
+        this.directory = directory;
+        this.threads = threads;
+        this.probes = new tablebase(directory);
+    }
+
+    /**
+     * Figures from generating one table
+     */
+    public static class Stats {
+        public String signature;
+        public int entries;
+        public int wins;
+        public int draws;
+        public int losses;
+        public int maxDtm;
+        public long bytes;
+        public long millis;
+    }
+
+    /**
+     * Generates a table and every smaller table it converts into, skipping tables that already exist
+     * @return Stats for each table generated, smallest first
+     */
+    public List<Stats> generate(String signature) throws IOException, InterruptedException {
+        List<Stats> generated = new ArrayList<>();
+        generate(signature, generated);
+        return generated;
+    }
+
+    private void generate(String signature, List<Stats> generated) throws IOException, InterruptedException {
+        String stored = tablebaseIndex.blackStronger(signature) ? tablebaseIndex.flip(signature) : signature;
+        if (probes.has(stored)) {
+            return;
+        }
+        for (String sub : subSignatures(new tablebaseIndex(stored))) {
+            generate(sub, generated);
+        }
+        generated.add(new job(new tablebaseIndex(stored)).run());
+        probes.refresh(stored);
+    }
+
+    /**
+     * Material reachable by one capture or promotion
+     */
+    private static List<String> subSignatures(tablebaseIndex index) {
+        List<String> subs = new ArrayList<>();
+        int n = index.pieceCount;
+        for (int removed = 2; removed < n; removed++) {
+            subs.add(subSignature(index, removed, -1, 0));
+        }
+        for (int slot = 2; slot < n; slot++) {
+            if (index.types[slot] == position.PAWN) {
+                for (int promotion : PROMOTIONS) {
+                    subs.add(subSignature(index, -1, slot, promotion));
+                }
+            }
+        }
+        return subs;
+    }
+
+    private static String subSignature(tablebaseIndex index, int removed, int promoted, int promotion) {
+        int[] colors = new int[index.pieceCount];
+        int[] types = new int[index.pieceCount];
+        int count = 0;
+        for (int i = 0; i < index.pieceCount; i++) {
+            if (i != removed) {
+                colors[count] = index.colors[i];
+                types[count++] = i == promoted ? promotion : index.types[i];
+            }
+        }
+        return tablebaseIndex.signature(colors, types, count);
+    }
+
+    /**
+     * The working state for generating one table
+     */
+    private class job {
+        final tablebaseIndex index;
+        final short[] values;
+        final byte[] exitInfo;
+        final AtomicInteger maxDtm = new AtomicInteger();
+
+        job(tablebaseIndex index) {
+            this.index = index;
+            this.values = new short[index.size];
+            this.exitInfo = new byte[index.size];
+        }
+
+        Stats run() throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                parallel(pool, (from, to) -> {
+                    scratch s = new scratch();
+                    for (int i = from; i < to; i++) {
+                        classify(i, s);
+                    }
+                });
+                for (int level = 0; level <= maxDtm.get(); level++) {
+                    int n = level;
+                    parallel(pool, (from, to) -> {
+                        scratch s = new scratch();
+                        for (int i = from; i < to; i++) {
+                            int value = values[i];
+                            if ((value & 0xFF) == n && (value >> 8 == WIN || value >> 8 == LOSS)) {
+                                propagate(i, value >> 8, n, s);
+                            }
+                        }
+                    });
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+
+            Stats stats = new Stats();
+            stats.signature = index.signature;
+            stats.entries = index.size;
+            stats.maxDtm = maxDtm.get();
+            stats.bytes = write(stats);
+            stats.millis = (System.nanoTime() - start) / 1_000_000;
+            return stats;
+        }
+
+        // CLASSIFICATION
+
+        private void classify(int i, scratch s) {
+            int[] sq = s.squares;
+            int side = index.decode(i, sq);
+            if (!valid(i, side, sq, s)) {
+                values[i] = INVALID << 8;
+                return;
+            }
+
+            int exitWin = Integer.MAX_VALUE;
+            int exitLoss = 0;
+            boolean exitDraw = false;
+            boolean anyMove = false;
+            int internal = 0;
+
+            int count = moves(side, sq, s);
+            for (int m = 0; m < count; m++) {
+                anyMove = true;
+                int code = s.exitCodes[m];
+                if (code == Integer.MIN_VALUE) {
+                    internal++;
+                    continue;
+                }
+                // The code is from the opponent's point of view
+                int wdl = code >> 8;
+                int dtm = code & 0xFF;
+                if (wdl == tablebase.CODE_LOSS) {
+                    exitWin = Math.min(exitWin, dtm + 1);
+                } else if (wdl == tablebase.CODE_WIN) {
+                    exitLoss = Math.max(exitLoss, dtm + 1);
+                } else {
+                    exitDraw = true;
+                }
+            }
+
+            if (!anyMove) {
+                values[i] = (short) (inCheck(side, sq, s) ? LOSS << 8 : DRAW << 8);
+            } else if (exitWin != Integer.MAX_VALUE) {
+                set(i, WIN, exitWin);
+            } else if (internal == 0) {
+                if (exitDraw) {
+                    values[i] = DRAW << 8;
+                } else {
+                    set(i, LOSS, exitLoss);
+                }
+            } else {
+                exitInfo[i] = exitDraw ? EXIT_DRAW : (byte) exitLoss;
+            }
+        }
+
+        /**
+         * A placement is usable if no squares overlap, no pawn stands on a back rank, it is
+         * the canonical orientation of itself, and the side not to move is not in check.
+         */
+        private boolean valid(int i, int side, int[] sq, scratch s) {
+            long occupied = 0;
+            for (int p = 0; p < index.pieceCount; p++) {
+                long bit = 1L << sq[p];
+                if ((occupied & bit) != 0) {
+                    return false;
+                }
+                occupied |= bit;
+                if (index.types[p] == position.PAWN && (sq[p] < 8 || sq[p] >= 56)) {
+                    return false;
+                }
+            }
+            if (index.index(side, sq) != i) {
+                return false;
+            }
+            s.occupied = occupied;
+            return !index.attacked(sq[side ^ 1], side, sq, occupied, -1);
+        }
+
+        private boolean inCheck(int side, int[] sq, scratch s) {
+            return index.attacked(sq[side], side ^ 1, sq, s.occupied, -1);
+        }
+
+        /**
+         * Generates the legal moves of the side to move. Moves that stay in this table get
+         * their successor index in s.targets; captures and promotions get the probed result
+         * of the smaller table in s.exitCodes (Integer.MIN_VALUE for moves that stay).
+         */
+        private int moves(int side, int[] sq, scratch s) {
+            long occupied = 0;
+            long own = 0;
+            for (int p = 0; p < index.pieceCount; p++) {
+                occupied |= 1L << sq[p];
+                if (index.colors[p] == side) {
+                    own |= 1L << sq[p];
+                }
+            }
+            s.occupied = occupied;
+
+            int count = 0;
+            for (int p = 0; p < index.pieceCount; p++) {
+                if (index.colors[p] != side) {
+                    continue;
+                }
+                int from = sq[p];
+                long targets;
+                if (index.types[p] == position.PAWN) {
+                    int step = side == position.WHITE ? -8 : 8;
+                    targets = index.attacks(p, from, occupied) & occupied & ~own;
+                    int push = from + step;
+                    if ((occupied & 1L << push) == 0) {
+                        targets |= 1L << push;
+                        int startRow = side == position.WHITE ? 6 : 1;
+                        if (from >> 3 == startRow && (occupied & 1L << (push + step)) == 0) {
+                            targets |= 1L << (push + step);
+                        }
+                    }
+                } else {
+                    targets = index.attacks(p, from, occupied) & ~own;
+                }
+
+                for (; targets != 0; targets &= targets - 1) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    int captured = -1;
+                    for (int q = 0; q < index.pieceCount; q++) {
+                        if (q != p && sq[q] == to) {
+                            captured = q;
+                        }
+                    }
+
+                    // Legality: our king must not be attacked after the move
+                    sq[p] = to;
+                    long after = occupied & ~(1L << from) | 1L << to;
+                    boolean legal = !index.attacked(sq[side], side ^ 1, sq, after, captured);
+                    if (legal) {
+                        boolean promotes = index.types[p] == position.PAWN && (to < 8 || to >= 56);
+                        if (captured < 0 && !promotes) {
+                            s.targets[count] = index.index(side ^ 1, sq);
+                            s.exitCodes[count++] = Integer.MIN_VALUE;
+                        } else if (promotes) {
+                            // Every promotion piece is a separate move; keep the best for us
+                            int best = Integer.MIN_VALUE;
+                            int bestCode = 0;
+                            for (int promotion : PROMOTIONS) {
+                                int code = exitProbe(side ^ 1, sq, captured, p, promotion, s);
+                                int rank = rankForMover(code);
+                                if (rank > best) {
+                                    best = rank;
+                                    bestCode = code;
+                                }
+                            }
+                            s.targets[count] = -1;
+                            s.exitCodes[count++] = bestCode;
+                        } else {
+                            s.targets[count] = -1;
+                            s.exitCodes[count++] = exitProbe(side ^ 1, sq, captured, -1, 0, s);
+                        }
+                    }
+                    sq[p] = from;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Orders opponent-perspective results by how good they are for the moving side
+         */
+        private int rankForMover(int code) {
+            int wdl = code >> 8;
+            int dtm = code & 0xFF;
+            if (wdl == tablebase.CODE_LOSS) {
+                return 1000 - dtm;   // opponent mated soonest is best
+            }
+            if (wdl == tablebase.CODE_WIN) {
+                return -1000 + dtm;  // being mated latest is least bad
+            }
+            return 0;
+        }
+
+        private int exitProbe(int sideToMove, int[] sq, int captured, int promoted, int promotion, scratch s) {
+            int n = 0;
+            for (int p = 0; p < index.pieceCount; p++) {
+                if (p != captured) {
+                    s.exitColors[n] = index.colors[p];
+                    s.exitTypes[n] = p == promoted ? promotion : index.types[p];
+                    s.exitSquares[n++] = sq[p];
+                }
+            }
+            int code = probes.probeCode(s.exitColors, s.exitTypes, s.exitSquares, n, sideToMove);
+            if (code == tablebase.MISSING) {
+                throw new IllegalStateException("Missing table for a conversion from " + index.signature);
+            }
+            return code;
+        }
+
+        // RETROGRADE PROPAGATION
+
+        /**
+         * Resolves the predecessors of a position that is won or lost in exactly n plies
+         */
+        private void propagate(int i, int state, int n, scratch s) {
+            int[] sq = s.squares;
+            int side = index.decode(i, sq);
+            int mover = side ^ 1;
+            long occupied = 0;
+            for (int p = 0; p < index.pieceCount; p++) {
+                occupied |= 1L << sq[p];
+            }
+
+            for (int p = 0; p < index.pieceCount; p++) {
+                if (index.colors[p] != mover) {
+                    continue;
+                }
+                int to = sq[p];
+                long sources;
+                if (index.types[p] == position.PAWN) {
+                    // Un-push: a pawn came from behind, never from its own back rank
+                    int back = mover == position.WHITE ? 8 : -8;
+                    sources = 0;
+                    int from = to + back;
+                    boolean onBoard = mover == position.WHITE ? from < 56 : from >= 8;
+                    if (onBoard && (occupied & 1L << from) == 0) {
+                        sources |= 1L << from;
+                        int doubleRow = mover == position.WHITE ? 4 : 3;
+                        int origin = from + back;
+                        if (to >> 3 == doubleRow && (occupied & 1L << origin) == 0) {
+                            sources |= 1L << origin;
+                        }
+                    }
+                } else {
+                    sources = index.attacks(p, to, occupied) & ~occupied;
+                }
+
+                for (; sources != 0; sources &= sources - 1) {
+                    sq[p] = Long.numberOfTrailingZeros(sources);
+                    int q = index.index(mover, sq);
+                    sq[p] = to;
+                    int qValue = values[q];
+                    int qState = qValue >> 8;
+
+                    if (state == LOSS) {
+                        if (qState == UNKNOWN || qState == WIN && (qValue & 0xFF) > n + 1) {
+                            set(q, WIN, n + 1);
+                        }
+                    } else if (qState == UNKNOWN && exitInfo[q] != EXIT_DRAW) {
+                        confirmLoss(q, n, s);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Marks q lost if every one of its moves reaches a position already won (within n plies)
+         * for the opponent
+         */
+        private void confirmLoss(int q, int n, scratch s) {
+            int[] sq = s.predecessor;
+            int side = index.decode(q, sq);
+            int count = moves(side, sq, s);
+            int longest = exitInfo[q] & 0xFF;
+            for (int m = 0; m < count; m++) {
+                if (s.exitCodes[m] != Integer.MIN_VALUE) {
+                    continue; // Conversions were all losing, or q would not be unknown
+                }
+                int value = values[s.targets[m]];
+                if (value >> 8 != WIN || (value & 0xFF) > n) {
+                    return;
+                }
+                longest = Math.max(longest, (value & 0xFF) + 1);
+            }
+            set(q, LOSS, longest);
+        }
+
+        private void set(int i, int state, int dtm) {
+            if (dtm > MAX_DTM) {
+                throw new IllegalStateException(index.signature + " has a mate longer than " + MAX_DTM + " plies");
+            }
+            values[i] = (short) (state << 8 | dtm);
+            maxDtm.accumulateAndGet(dtm, Math::max);
+        }
+
+        // OUTPUT
+
+        private long write(Stats stats) throws IOException {
+            int dtmBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDtm.get()));
+            int size = index.size;
+            byte[] wdl = new byte[(size + 3) / 4];
+            byte[] dtm = new byte[(int) (((long) size * dtmBits + 7) / 8) + Long.BYTES];
+
+            for (int i = 0; i < size; i++) {
+                int state = values[i] >> 8;
+                int code;
+                switch (state) {
+                    case WIN -> {
+                        code = tablebase.CODE_WIN;
+                        stats.wins++;
+                    }
+                    case LOSS -> {
+                        code = tablebase.CODE_LOSS;
+                        stats.losses++;
+                    }
+                    case INVALID -> code = tablebase.CODE_UNUSED;
+                    default -> {
+                        code = tablebase.CODE_DRAW;
+                        stats.draws++;
+                    }
+                }
+                wdl[i >>> 2] |= (byte) (code << ((i & 3) * 2));
+                if (code == tablebase.CODE_WIN || code == tablebase.CODE_LOSS) {
+                    long bit = (long) i * dtmBits;
+                    int distance = values[i] & 0xFF;
+                    int at = (int) (bit >>> 3);
+                    int shift = (int) (bit & 7);
+                    dtm[at] |= (byte) (distance << shift);
+                    dtm[at + 1] |= (byte) (distance >>> (8 - shift));
+                }
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(tablebase.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(tablebase.MAGIC).putInt(tablebase.VERSION);
+            header.put(Arrays.copyOf(index.signature.getBytes(StandardCharsets.US_ASCII), tablebase.SIGNATURE_BYTES));
+            header.putLong(size).putInt(dtmBits).putInt(maxDtm.get());
+            header.clear();
+
+            Path file = directory.resolve(index.signature + tablebase.SUFFIX);
+            Path temp = directory.resolve(index.signature + tablebase.SUFFIX + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (ByteBuffer part : new ByteBuffer[] {header, ByteBuffer.wrap(wdl), ByteBuffer.wrap(dtm)}) {
+                    while (part.hasRemaining()) {
+                        out.write(part);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            return Files.size(file);
+        }
+
+        private void parallel(ExecutorService pool, rangeTask task) throws InterruptedException {
+            int chunks = threads * CHUNKS_PER_THREAD;
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) ((long) index.size * c / chunks);
+                int to = (int) ((long) index.size * (c + 1) / chunks);
+                futures.add(pool.submit(() -> task.run(from, to)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Generating " + index.signature + " failed", e.getCause());
+                }
+            }
+        }
+    }
+
+    private interface rangeTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * Per-thread buffers for decoding positions and generating moves
+     */
+    private static final class scratch {
+        final int[] squares = new int[tablebaseIndex.MAX_PIECES];
+        final int[] predecessor = new int[tablebaseIndex.MAX_PIECES];
+        final int[] targets = new int[128];
+        final int[] exitCodes = new int[128];
+        final int[] exitColors = new int[tablebaseIndex.MAX_PIECES];
+        final int[] exitTypes = new int[tablebaseIndex.MAX_PIECES];
+        final int[] exitSquares = new int[tablebaseIndex.MAX_PIECES];
+        long occupied;
+    }
+
+    /**
+     * Generates tables into a directory and prints their statistics.
+     * Usage: tablebaseGenerator [directory] [threads] [signatures...], default KQvK KRvK KPvK KBNvK
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("tablebases");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        String[] signatures = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length)
+                                              : new String[] {"KQvK", "KRvK", "KPvK", "KBNvK"};
+        Files.createDirectories(directory);
+
+        tablebaseGenerator generator = new tablebaseGenerator(directory, threads);
+        for (String signature : signatures) {
+            for (Stats stats : generator.generate(signature)) {
+                System.out.printf("%-7s %,11d entries  %,10d wins %,10d draws %,10d losses  longest mate %3d plies  " +
+                                  "%,10d bytes  %,6d ms%n",
+                                  stats.signature, stats.entries, stats.wins, stats.draws, stats.losses,
+                                  stats.maxDtm, stats.bytes, stats.millis);
+            }
+        }
+
+        // Probe a few textbook positions through the public interface
+        tablebase tables = new tablebase(directory);
+        String[] fens = {
+            "8/8/8/8/8/8/1Q6/K6k w - - 0 1",
+            "8/8/8/4k3/8/8/8/4K2R w - - 0 1",
+            "4k3/8/4K3/4P3/8/8/8/8 w - - 0 1",
+            "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1",
+            "8/8/8/8/8/8/8/KBN4k b - - 0 1",
+        };
+        for (String fen : fens) {
+            position pos = position.fromFen(fen);
+            tablebase.Result result = tables.probe(pos); // maps the table on first use
+            int probes = 100_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < probes; i++) {
+                tables.probe(pos);
+            }
+            long nanos = (System.nanoTime() - start) / probes;
+            System.out.printf("%-36s %-20s mate in %3d, %,d ns per probe%n", fen, result,
+                              result == null ? 0 : result.mateIn(), nanos);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.programming.chess.engine;
+
+import static com.programming.chess.rules.bitboards.KING_ATTACKS;
+import static com.programming.chess.rules.bitboards.KNIGHT_ATTACKS;
+import static com.programming.chess.rules.bitboards.PAWN_ATTACKS;
+
+import java.util.Arrays;
+
+import com.programming.chess.rules.bitboards;
+import com.programming.chess.rules.position;
+
+/**
+ * Maps the positions of one material signature (e.g. "KQvKR") to dense table indices.
+ *
+ * Pieces are kept in a fixed slot order: white king, black king, white pieces, black pieces,
+ * strongest first. Symmetry reduces the white king's squares: without pawns the board can
+ * be rotated and reflected so the white king stands in the a1-d1-d4 triangle (10 squares);
+ * with pawns only the left-right mirror applies, leaving files a-d (32 squares). Every other
+ * piece takes any of the 64 squares, and the side to move selects one of two halves:
+ *   index = side * half + ((king index * 64 + slot 1) * 64 + slot 2) * 64 + slot 3
+ * Placements that overlap or are not in their canonical orientation are simply never used.
+ */
+final class tablebaseIndex {
+
+    static final int MAX_PIECES = 4;
+    private static final String PIECE_LETTERS = "PNBRQK";
+    private static final int[] PIECE_VALUES = {1, 3, 3, 5, 9, 0};
+
+    // SYMMETRY[g][sq]: square after symmetry g (bit 0 mirrors files, bit 1 ranks, bit 2 the diagonal)
+    private static final int[][] SYMMETRY = new int[8][64];
+    private static final int[] TRIANGLE_INDEX = new int[64];
+    private static final int[] HALF_BOARD_INDEX = new int[64];
+
+    static {
+        for (int g = 0; g < 8; g++) {
+            for (int sq = 0; sq < 64; sq++) {
+                int file = sq & 7;
+                int row = sq >> 3;
+                if ((g & 1) != 0) {
+                    file = 7 - file;
+                }
+                if ((g & 2) != 0) {
+                    row = 7 - row;
+                }
+                if ((g & 4) != 0) {
+                    int swap = file;
+                    file = 7 - row;
+                    row = 7 - swap;
+                }
+                SYMMETRY[g][sq] = row * 8 + file;
+            }
+        }
+
+        Arrays.fill(TRIANGLE_INDEX, -1);
+        Arrays.fill(HALF_BOARD_INDEX, -1);
+        int triangle = 0;
+        int half = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int file = sq & 7;
+            int rank = 7 - (sq >> 3);
+            if (file <= 3 && rank <= file) {
+                TRIANGLE_INDEX[sq] = triangle++;
+            }
+            if (file <= 3) {
+                HALF_BOARD_INDEX[sq] = half++;
+            }
+        }
+    }
+
+    final String signature;
+    final int pieceCount;
+    final int[] colors;
+    final int[] types;
+    final boolean pawns;
+    final int half;
+    final int size;
+    private final int[] kingIndex;
+    private final int[] kingSquares;
+    private final int symmetries;
+
+    tablebaseIndex(String signature) {
+        String[] sides = signature.split("v");
+        if (sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K")) {
+            throw new IllegalArgumentException("Bad material signature " + signature);
+        }
+        this.signature = signature;
+        pieceCount = sides[0].length() + sides[1].length();
+        if (pieceCount > MAX_PIECES) {
+            throw new IllegalArgumentException(signature + " has more than " + MAX_PIECES + " pieces");
+        }
+
+        colors = new int[pieceCount];
+        types = new int[pieceCount];
+        colors[1] = position.BLACK;
+        types[0] = position.KING;
+        types[1] = position.KING;
+        int slot = 2;
+        for (int color = 0; color < 2; color++) {
+            for (char letter : sides[color].substring(1).toCharArray()) {
+                colors[slot] = color;
+                types[slot++] = PIECE_LETTERS.indexOf(letter);
+            }
+        }
+
+        pawns = signature.indexOf('P') >= 0;
+        kingIndex = pawns ? HALF_BOARD_INDEX : TRIANGLE_INDEX;
+        symmetries = pawns ? 2 : 8;
+        int kings = pawns ? 32 : 10;
+        kingSquares = new int[kings];
+        for (int sq = 0; sq < 64; sq++) {
+            if (kingIndex[sq] >= 0) {
+                kingSquares[kingIndex[sq]] = sq;
+            }
+        }
+        half = kings << (6 * (pieceCount - 1));
+        size = 2 * half;
+    }
+
+    /**
+     * @return The index of a placement in slot order, after moving it into canonical orientation
+     */
+    int index(int side, int[] squares) {
+        int best = Integer.MAX_VALUE;
+        for (int g = 0; g < symmetries; g++) {
+            int[] map = SYMMETRY[g];
+            int king = kingIndex[map[squares[0]]];
+            if (king < 0) {
+                continue;
+            }
+            int index = king;
+            for (int i = 1; i < pieceCount; i++) {
+                index = index << 6 | map[squares[i]];
+            }
+            best = Math.min(best, index);
+        }
+        return side * half + best;
+    }
+
+    /**
+     * Unpacks an index into squares in slot order
+     * @return The side to move
+     */
+    int decode(int index, int[] squares) {
+        int side = index >= half ? 1 : 0;
+        int rest = index - side * half;
+        for (int i = pieceCount - 1; i > 0; i--) {
+            squares[i] = rest & 63;
+            rest >>>= 6;
+        }
+        squares[0] = kingSquares[rest];
+        return side;
+    }
+
+    /**
+     * @return True if any piece of byColor attacks the square. The piece in slot skip is ignored (captured).
+     */
+    boolean attacked(int sq, int byColor, int[] squares, long occupied, int skip) {
+        for (int i = 0; i < pieceCount; i++) {
+            if (i == skip || colors[i] != byColor) {
+                continue;
+            }
+            if ((attacks(i, squares[i], occupied) & 1L << sq) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Squares the piece in a slot attacks from a square (pawns: capture squares only)
+     */
+    long attacks(int slot, int from, long occupied) {
+        return switch (types[slot]) {
+            case position.PAWN -> PAWN_ATTACKS[colors[slot]][from];
+            case position.KNIGHT -> KNIGHT_ATTACKS[from];
+            case position.BISHOP -> bitboards.bishopAttacks(from, occupied);
+            case position.ROOK -> bitboards.rookAttacks(from, occupied);
+            case position.QUEEN -> bitboards.queenAttacks(from, occupied);
+            default -> KING_ATTACKS[from];
+        };
+    }
+
+    // SIGNATURES
+
+    /**
+     * Builds the signature of a set of pieces, strongest pieces first on each side
+     */
+    static String signature(int[] colors, int[] types, int count) {
+        StringBuilder[] sides = {new StringBuilder("K"), new StringBuilder("K")};
+        for (int type = position.QUEEN; type >= position.PAWN; type--) {
+            for (int i = 0; i < count; i++) {
+                if (types[i] == type) {
+                    sides[colors[i]].append(PIECE_LETTERS.charAt(type));
+                }
+            }
+        }
+        return sides[0] + "v" + sides[1];
+    }
+
+    /**
+     * @return True if black's side of this signature is stronger, so tables store it with colors swapped
+     */
+    static boolean blackStronger(String signature) {
+        String[] sides = signature.split("v");
+        int white = materialValue(sides[0]);
+        int black = materialValue(sides[1]);
+        if (white != black) {
+            return black > white;
+        }
+        if (sides[0].length() != sides[1].length()) {
+            return sides[1].length() > sides[0].length();
+        }
+        return sides[1].compareTo(sides[0]) > 0;
+    }
+
+    /**
+     * Swaps the two sides of a signature ("KvKQ" -> "KQvK")
+     */
+    static String flip(String signature) {
+        String[] sides = signature.split("v");
+        return sides[1] + "v" + sides[0];
+    }
+
+    private static int materialValue(String side) {
+        int value = 0;
+        for (char letter : side.toCharArray()) {
+            value += PIECE_VALUES[PIECE_LETTERS.indexOf(letter)];
+        }
+        return value;
+    }
+}
@@ -0,0 +1,415 @@
+package com.programming.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.programming.chess.rules.position;
+
+/**
+ * Fits the evaluator's weights to game results (Texel's method).
+ *
+ * The evaluation is linear in its weights once the game phase is known, so every position is
+ * reduced up front to a sparse feature list: for each weight it touches, White's count minus
+ * Black's. Middlegame and endgame weights share the same features, scaled by the phase, so
+ * each feature is stored once as (feature << 8 | count & 0xFF) in one flat int array with
+ * per-position offsets. An epoch is then a single pass over primitive arrays.
+ *
+ * The error is the mean squared difference between the result and sigmoid(K * eval), with K
+ * fitted first to the starting weights. Weights are then moved by Adam on full-batch
+ * gradients computed with fork-join over position ranges, each task keeping its own
+ * gradient array.
+ */
+public class texelTuner {
+
+    // Positions per fork-join leaf
+    private static final int LEAF_POSITIONS = 1 << 14;
+    private static final double LN10 = Math.log(10);
+
+    // Features of one stage, plus the bishop pair
+    private static final int STAGE_FEATURES = evaluator.material(evaluator.EG, 0) - evaluator.material(evaluator.MG, 0);
+    private static final int BISHOP_PAIR_FEATURE = STAGE_FEATURES;
+    private static final int FEATURES = STAGE_FEATURES + 1;
+
+    private int count;
+    private int[] offsets = new int[1 << 16];
+    private int[] features = new int[1 << 20];
+    private byte[] phases = new byte[1 << 16];
+    private float[] targets = new float[1 << 16];
+    private int featureCount;
+
+    private final int[] scratchCounts = new int[FEATURES];
+    private final int[] scratchTouched = new int[FEATURES];
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Memory held by the cached features and labels
+     */
+    public long sizeBytes() {
+        return 4L * featureCount + 9L * count;
+    }
+
+    // LOADING
+
+    /**
+     * Adds one labelled position
+     * @param squares Occupied squares; pieces holds the piece code on each
+     * @param target Expected score for White, 0 to 1
+     */
+    public void add(int[] squares, int[] pieces, int pieceCount, double target) {
+        int touched = 0;
+        int phase = 0;
+        int whiteBishops = 0;
+        int blackBishops = 0;
+        for (int i = 0; i < pieceCount; i++) {
+            int color = pieces[i] / 6;
+            int type = pieces[i] % 6;
+            int sign = color == position.WHITE ? 1 : -1;
+            int sq = color == position.WHITE ? squares[i] : squares[i] ^ 56;
+            touched = count(type, sign, touched);
+            touched = count(evaluator.square(evaluator.MG, type, sq), sign, touched);
+            phase += evaluator.PHASE_WEIGHTS[type];
+            if (type == position.BISHOP) {
+                if (color == position.WHITE) {
+                    whiteBishops++;
+                } else {
+                    blackBishops++;
+                }
+            }
+        }
+        touched = count(BISHOP_PAIR_FEATURE, (whiteBishops >= 2 ? 1 : 0) - (blackBishops >= 2 ? 1 : 0), touched);
+
+        if (count + 1 >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            phases = Arrays.copyOf(phases, phases.length * 2);
+            targets = Arrays.copyOf(targets, targets.length * 2);
+        }
+        if (featureCount + touched > features.length) {
+            if (features.length > Integer.MAX_VALUE / 2) {
+                throw new IllegalStateException("Too many features for one tuner");
+            }
+            features = Arrays.copyOf(features, features.length * 2);
+        }
+        offsets[count] = featureCount;
+        for (int i = 0; i < touched; i++) {
+            int feature = scratchTouched[i];
+            if (scratchCounts[feature] != 0) {
+                features[featureCount++] = feature << 8 | scratchCounts[feature] & 0xFF;
+            }
+            scratchCounts[feature] = 0;
+        }
+        phases[count] = (byte) Math.min(phase, evaluator.MAX_PHASE);
+        targets[count] = (float) target;
+        count++;
+        offsets[count] = featureCount;
+    }
+
+    private int count(int feature, int amount, int touched) {
+        if (amount == 0) {
+            return touched;
+        }
+        if (scratchCounts[feature] == 0) {
+            scratchTouched[touched++] = feature;
+        }
+        scratchCounts[feature] += amount;
+        return touched;
+    }
+
+    /**
+     * Loads EPD lines labelled with a result, as [1.0], [0.5], [0], "1-0", "1/2-1/2" or "0-1"
+     * anywhere after the position (e.g. c9 "1-0";)
+     * @return Positions loaded; lines without a label are skipped
+     */
+    public long loadEpd(Path file) throws IOException {
+        int[] squares = new int[64];
+        int[] pieces = new int[64];
+        long loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+", 5);
+                if (fields.length < 5) {
+                    continue;
+                }
+                double target = parseLabel(fields[4]);
+                if (Double.isNaN(target)) {
+                    continue;
+                }
+                position pos = position.fromFen(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3]);
+                int n = 0;
+                for (long occupied = pos.getOccupied(); occupied != 0; occupied &= occupied - 1) {
+                    squares[n] = Long.numberOfTrailingZeros(occupied);
+                    pieces[n] = pos.pieceAt(squares[n]);
+                    n++;
+                }
+                add(squares, pieces, n, target);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    static double parseLabel(String operations) {
+        if (operations.contains("1/2-1/2") || operations.contains("[0.5]")) {
+            return 0.5;
+        }
+        if (operations.contains("1-0") || operations.contains("[1.0]") || operations.contains("[1]")) {
+            return 1;
+        }
+        if (operations.contains("0-1") || operations.contains("[0.0]") || operations.contains("[0]")) {
+            return 0;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Loads a trainingSamples file without building positions
+     * @param resultWeight Share of the game result in the target; the rest comes from the
+     *                     search score through the same sigmoid (1 uses results only)
+     * @param k Sigmoid scale for the search scores
+     */
+    public long loadSamples(Path file, double resultWeight, double k) throws IOException {
+        int[] squares = new int[32];
+        int[] pieces = new int[32];
+        try (trainingSamples.Reader reader = trainingSamples.Reader.open(file)) {
+            for (long i = 0; i < reader.count(); i++) {
+                ByteBuffer buffer = reader.buffer(i);
+                int offset = reader.offset(i);
+                int n = trainingSamples.pieces(buffer, offset, squares, pieces);
+                double result = trainingSamples.result(buffer, offset) * 0.5;
+                double target = resultWeight * result
+                              + (1 - resultWeight) * sigmoid(trainingSamples.score(buffer, offset), k);
+                add(squares, pieces, n, target);
+            }
+            return reader.count();
+        }
+    }
+
+    // ERROR AND GRADIENT
+
+    static double sigmoid(double eval, double k) {
+        return 1 / (1 + Math.pow(10, -k * eval / 400));
+    }
+
+    /**
+     * White's score under the given weights, unrounded
+     */
+    double evaluate(int index, double[] weights) {
+        double mg = 0;
+        double eg = 0;
+        for (int f = offsets[index]; f < offsets[index + 1]; f++) {
+            int feature = features[f] >> 8;
+            int amount = (byte) features[f];
+            mg += amount * weights[mgWeight(feature)];
+            eg += amount * weights[egWeight(feature)];
+        }
+        int phase = phases[index];
+        return (mg * phase + eg * (evaluator.MAX_PHASE - phase)) / evaluator.MAX_PHASE;
+    }
+
+    private static int mgWeight(int feature) {
+        return feature == BISHOP_PAIR_FEATURE ? evaluator.BISHOP_PAIR + evaluator.MG : feature;
+    }
+
+    private static int egWeight(int feature) {
+        return feature == BISHOP_PAIR_FEATURE ? evaluator.BISHOP_PAIR + evaluator.EG : feature + STAGE_FEATURES;
+    }
+
+    /**
+     * Mean squared error over all positions, and its gradient if one is given
+     */
+    double error(double[] weights, double k, double[] gradient, ForkJoinPool pool) {
+        pass result = pool.invoke(new pass(this, weights, k, gradient != null, 0, count));
+        if (gradient != null) {
+            for (int i = 0; i < gradient.length; i++) {
+                gradient[i] = result.gradient[i] / count;
+            }
+        }
+        return result.error / count;
+    }
+
+    /**
+     * Sums the error and gradient over a range of positions, splitting it in half above LEAF_POSITIONS
+     */
+    private static final class pass extends RecursiveTask<pass> {
+        private final texelTuner tuner;
+        private final double[] weights;
+        private final double k;
+        private final boolean withGradient;
+        private final int from;
+        private final int to;
+        double error;
+        double[] gradient;
+
+        pass(texelTuner tuner, double[] weights, double k, boolean withGradient, int from, int to) {
+            this.tuner = tuner;
+            this.weights = weights;
+            this.k = k;
+            this.withGradient = withGradient;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected pass compute() {
+            if (to - from > LEAF_POSITIONS) {
+                int middle = (from + to) >>> 1;
+                pass left = new pass(tuner, weights, k, withGradient, from, middle);
+                pass right = new pass(tuner, weights, k, withGradient, middle, to);
+                left.fork();
+                right.compute();
+                left.join();
+                error = left.error + right.error;
+                if (withGradient) {
+                    gradient = left.gradient;
+                    for (int i = 0; i < gradient.length; i++) {
+                        gradient[i] += right.gradient[i];
+                    }
+                }
+                return this;
+            }
+
+            if (withGradient) {
+                gradient = new double[evaluator.PARAMETER_COUNT];
+            }
+            int[] offsets = tuner.offsets;
+            int[] features = tuner.features;
+            for (int i = from; i < to; i++) {
+                double predicted = sigmoid(tuner.evaluate(i, weights), k);
+                double difference = tuner.targets[i] - predicted;
+                error += difference * difference;
+                if (!withGradient) {
+                    continue;
+                }
+                // d/dw of (t - s)^2 = -2 (t - s) * s (1 - s) * ln(10) k / 400 * d eval / dw
+                double common = -2 * difference * predicted * (1 - predicted) * LN10 * k / 400 / evaluator.MAX_PHASE;
+                int phase = tuner.phases[i];
+                double mgScale = common * phase;
+                double egScale = common * (evaluator.MAX_PHASE - phase);
+                for (int f = offsets[i]; f < offsets[i + 1]; f++) {
+                    int feature = features[f] >> 8;
+                    int amount = (byte) features[f];
+                    gradient[mgWeight(feature)] += mgScale * amount;
+                    gradient[egWeight(feature)] += egScale * amount;
+                }
+            }
+            return this;
+        }
+    }
+
+    // TUNING
+
+    /**
+     * Finds the sigmoid scale that best fits the given weights, by ternary search
+     */
+    public double fitK(double[] weights, ForkJoinPool pool) {
+        double low = 0.1;
+        double high = 3.0;
+        for (int i = 0; i < 25; i++) {
+            double a = low + (high - low) / 3;
+            double b = high - (high - low) / 3;
+            if (error(weights, a, null, pool) < error(weights, b, null, pool)) {
+                high = b;
+            } else {
+                low = a;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * Runs Adam for a number of epochs, printing the error as it goes
+     * @param learningRate Step size in centipawns
+     * @return The tuned weights, not rounded
+     */
+    public double[] tune(double[] start, double k, int epochs, double learningRate, ForkJoinPool pool) {
+        double[] weights = start.clone();
+        double[] gradient = new double[weights.length];
+        double[] momentum = new double[weights.length];
+        double[] velocity = new double[weights.length];
+        double beta1 = 0.9;
+        double beta2 = 0.999;
+
+        long begin = System.nanoTime();
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double error = error(weights, k, gradient, pool);
+            for (int i = 0; i < weights.length; i++) {
+                momentum[i] = beta1 * momentum[i] + (1 - beta1) * gradient[i];
+                velocity[i] = beta2 * velocity[i] + (1 - beta2) * gradient[i] * gradient[i];
+                double m = momentum[i] / (1 - Math.pow(beta1, epoch));
+                double v = velocity[i] / (1 - Math.pow(beta2, epoch));
+                weights[i] -= learningRate * m / (Math.sqrt(v) + 1e-12);
+            }
+            if (epoch == 1 || epoch % 10 == 0 || epoch == epochs) {
+                double seconds = (System.nanoTime() - begin) / 1e9;
+                System.out.printf("epoch %4d  error %.6f  %.2f s/epoch%n", epoch, error, seconds / epoch);
+            }
+        }
+        return weights;
+    }
+
+    static double[] toDoubles(int[] values) {
+        return Arrays.stream(values).asDoubleStream().toArray();
+    }
+
+    static int[] round(double[] weights) {
+        int[] values = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            values[i] = (int) Math.round(weights[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Loads labelled positions, tunes every evaluator weight and writes them one per line.
+     * Usage: texelTuner <data.epd | samples.bin> [epochs] [out.txt] [threads] [result weight]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: texelTuner <data.epd | samples.bin> [epochs] [out.txt] [threads] [result weight]");
+            return;
+        }
+        Path data = Path.of(args[0]);
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Path out = Path.of(args.length > 2 ? args[2] : evaluator.PARAMETERS_FILE);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        double resultWeight = args.length > 4 ? Double.parseDouble(args[4]) : 1.0;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        texelTuner tuner = new texelTuner();
+        long start = System.nanoTime();
+        if (data.toString().endsWith(".epd")) {
+            tuner.loadEpd(data);
+        } else {
+            tuner.loadSamples(data, resultWeight, 1.0);
+        }
+        System.out.printf("Loaded %,d positions in %.1f s, %.1f MB of features%n", tuner.size(),
+                          (System.nanoTime() - start) / 1e9, tuner.sizeBytes() / 1e6);
+
+        double[] weights = toDoubles(evaluator.getParameters());
+        double k = tuner.fitK(weights, pool);
+        System.out.printf("K = %.4f, starting error %.6f%n", k, tuner.error(weights, k, null, pool));
+
+        long tuneStart = System.nanoTime();
+        int[] tuned = round(tuner.tune(weights, k, epochs, 1.0, pool));
+        System.out.printf("Tuned in %.1f s, final error %.6f (rounded)%n", (System.nanoTime() - tuneStart) / 1e9,
+                          tuner.error(toDoubles(tuned), k, null, pool));
+        pool.shutdown();
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            for (int value : tuned) {
+                writer.println(value);
+            }
+        }
+        System.out.println("Wrote " + tuned.length + " parameters to " + out);
+    }
+}
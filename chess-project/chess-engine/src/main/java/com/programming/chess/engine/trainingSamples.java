@@ -0,0 +1,328 @@
+package com.programming.chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.programming.chess.rules.bitboards;
+import com.programming.chess.rules.position;
+
+/**
+ * Training samples in a compact binary format: one position with its search score and the
+ * game's result in a fixed 32-byte record, so files can be counted, split and read by offset.
+ *
+ * Files start with a 16-byte header (magic, version, record size), followed by records:
+ *   0  occupied squares, 8 bytes
+ *   8  piece codes, 4 bits each, in the order of the occupied bits (at most 32 pieces)
+ *  24  search score in centipawns from White's point of view, 2 bytes
+ *  26  game result from White's point of view: RESULT_LOSS, RESULT_DRAW or RESULT_WIN
+ *  27  side to move (bit 0) and castling rights (bits 1-4)
+ *  28  en passant square, or 255
+ *  29  halfmove clock
+ *  30  fullmove number, 2 bytes
+ * All values are little-endian.
+ */
+public final class trainingSamples {
+
+    static final int MAGIC = 0x50534843;  // "CHSP"
+    static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 32;
+
+    public static final int RESULT_LOSS = 0;
+    public static final int RESULT_DRAW = 1;
+    public static final int RESULT_WIN = 2;
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+    private static final int NO_SQUARE = 255;
+
+    private trainingSamples() {
+    }
+
+    /**
+     * Writes one record at the buffer's position
+     * @param whiteScore Centipawns from White's point of view
+     * @param result Game result from White's point of view
+     */
+    public static void pack(position pos, int whiteScore, int result, ByteBuffer out) {
+        long occupied = pos.getOccupied();
+        out.putLong(occupied);
+        long codes = 0;
+        long moreCodes = 0;
+        int i = 0;
+        for (long rest = occupied; rest != 0; rest &= rest - 1, i++) {
+            long code = pos.pieceAt(Long.numberOfTrailingZeros(rest));
+            if (i < 16) {
+                codes |= code << (4 * i);
+            } else {
+                moreCodes |= code << (4 * (i - 16));
+            }
+        }
+        out.putLong(codes);
+        out.putLong(moreCodes);
+        out.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, whiteScore)));
+        out.put((byte) result);
+        out.put((byte) (pos.getSideToMove() | pos.getCastlingRights() << 1));
+        out.put((byte) (pos.getEnPassantSquare() >= 0 ? pos.getEnPassantSquare() : NO_SQUARE));
+        out.put((byte) Math.min(255, pos.getHalfmoveClock()));
+        out.putShort((short) Math.min(Short.MAX_VALUE, pos.getFullmoveNumber()));
+    }
+
+    /**
+     * Unpacks the pieces of the record at an absolute offset
+     * @return The number of pieces written to squares and pieces
+     */
+    public static int pieces(ByteBuffer in, int offset, int[] squares, int[] pieces) {
+        long occupied = in.getLong(offset);
+        int count = 0;
+        for (; occupied != 0; occupied &= occupied - 1, count++) {
+            long codes = in.getLong(offset + (count < 16 ? 8 : 16));
+            squares[count] = Long.numberOfTrailingZeros(occupied);
+            pieces[count] = (int) (codes >>> (4 * (count & 15))) & 15;
+        }
+        return count;
+    }
+
+    public static int score(ByteBuffer in, int offset) {
+        return in.getShort(offset + 24);
+    }
+
+    public static int result(ByteBuffer in, int offset) {
+        return in.get(offset + 26);
+    }
+
+    public static int sideToMove(ByteBuffer in, int offset) {
+        return in.get(offset + 27) & 1;
+    }
+
+    /**
+     * Rebuilds the full position of a record
+     */
+    public static position unpack(ByteBuffer in, int offset) {
+        int[] squares = new int[32];
+        int[] pieces = new int[32];
+        int count = pieces(in, offset, squares, pieces);
+        char[] board = new char[64];
+        for (int i = 0; i < count; i++) {
+            board[squares[i]] = PIECE_CHARS.charAt(pieces[i]);
+        }
+
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                char c = board[row * 8 + col];
+                if (c == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(c);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row < 7) {
+                fen.append('/');
+            }
+        }
+        int flags = in.get(offset + 27);
+        fen.append((flags & 1) == position.WHITE ? " w " : " b ");
+        int castling = flags >> 1 & 15;
+        fen.append(castling == 0 ? "-" : "")
+           .append((castling & position.WHITE_KINGSIDE) != 0 ? "K" : "")
+           .append((castling & position.WHITE_QUEENSIDE) != 0 ? "Q" : "")
+           .append((castling & position.BLACK_KINGSIDE) != 0 ? "k" : "")
+           .append((castling & position.BLACK_QUEENSIDE) != 0 ? "q" : "");
+        int enPassant = in.get(offset + 28) & 0xFF;
+        fen.append(' ').append(enPassant == NO_SQUARE ? "-" : bitboards.squareName(enPassant));
+        fen.append(' ').append(in.get(offset + 29) & 0xFF).append(' ').append(in.getShort(offset + 30));
+        return position.fromFen(fen.toString());
+    }
+
+    // WRITING
+
+    /**
+     * Appends records through a large direct buffer. Not thread-safe.
+     */
+    public static class Writer implements AutoCloseable {
+        private static final int BUFFER_BYTES = 1 << 20;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long count;
+
+        private Writer(FileChannel channel, long count) {
+            this.channel = channel;
+            this.count = count;
+        }
+
+        /**
+         * Opens a sample file for appending. An existing file is kept when resuming, minus any
+         * torn record at its end; otherwise it is replaced. A file too short to hold a header
+         * was cut off before anything useful reached it and is replaced as well.
+         */
+        public static Writer open(Path file, boolean resume) throws IOException {
+            if (resume && Files.exists(file) && Files.size(file) >= HEADER_BYTES) {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    checkHeader(channel, file);
+                    long count = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+                    channel.truncate(HEADER_BYTES + count * RECORD_BYTES);
+                    channel.position(HEADER_BYTES + count * RECORD_BYTES);
+                    return new Writer(channel, count);
+                } catch (IOException | RuntimeException e) {
+                    closeAfterFailure(channel, e);
+                    throw e;
+                }
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Writer writer = new Writer(channel, 0);
+                // The header goes to disk straight away, so a run killed before its first flush
+                // still leaves a file that can be resumed
+                writer.buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES).putInt(0);
+                writer.drain();
+                channel.force(true);
+                return writer;
+            } catch (IOException | RuntimeException e) {
+                closeAfterFailure(channel, e);
+                throw e;
+            }
+        }
+
+        public void add(position pos, int whiteScore, int result) throws IOException {
+            if (buffer.remaining() < RECORD_BYTES) {
+                drain();
+            }
+            pack(pos, whiteScore, result, buffer);
+            count++;
+        }
+
+        /**
+         * @return Records in the file, including those still buffered
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long sizeBytes() {
+            return HEADER_BYTES + count * RECORD_BYTES;
+        }
+
+        /**
+         * Writes buffered records to the file
+         */
+        public void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    // READING
+
+    /**
+     * Memory-maps a sample file for random access by record index
+     */
+    public static class Reader implements AutoCloseable {
+        // Records per mapping, so files beyond 2 GB can be read
+        private static final int WINDOW_RECORDS = 1 << 25;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] windows;
+        private final long count;
+
+        private Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            count = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+            windows = new MappedByteBuffer[(int) ((count + WINDOW_RECORDS - 1) / WINDOW_RECORDS)];
+            for (int w = 0; w < windows.length; w++) {
+                long first = (long) w * WINDOW_RECORDS;
+                long records = Math.min(WINDOW_RECORDS, count - first);
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES,
+                                         records * RECORD_BYTES);
+                windows[w].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        public static Reader open(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                checkHeader(channel, file);
+                return new Reader(channel);
+            } catch (IOException | RuntimeException e) {
+                closeAfterFailure(channel, e);
+                throw e;
+            }
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return The mapping holding a record; use with offset(index)
+         */
+        public ByteBuffer buffer(long index) {
+            return windows[(int) (index / WINDOW_RECORDS)];
+        }
+
+        public int offset(long index) {
+            return (int) (index % WINDOW_RECORDS) * RECORD_BYTES;
+        }
+
+        public position position(long index) {
+            return unpack(buffer(index), offset(index));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static void checkHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // keep reading
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                || header.getInt(8) != RECORD_BYTES) {
+            throw new IOException(file + " is not a training sample file");
+        }
+    }
+
+    /**
+     * Closes a channel that failed while being opened, keeping the original failure
+     */
+    private static void closeAfterFailure(FileChannel channel, Exception failure) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+}
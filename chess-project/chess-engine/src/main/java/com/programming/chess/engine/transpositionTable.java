@@ -0,0 +1,116 @@
+package com.programming.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, indexed by Zobrist key.
+ *
+ * Each slot is two longs in parallel arrays: the full key, and a packed entry holding
+ * the best move (bits 0-17), score (18-33, signed), depth (34-41), bound (42-43) and
+ * the search generation that wrote it (44-49). Entries from earlier searches are kept
+ * and reused, but are the first to be replaced.
+ */
+public class transpositionTable {
+
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private int age;
+
+    /**
+     * @param megabytes Table size; rounded down to a power-of-two number of slots
+     */
+    public transpositionTable(int megabytes) {
+        long slots = Math.max(1024, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(slots, 1 << 30));
+        keys = new long[size];
+        entries = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Marks the start of a new search so that older entries are replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(entries, 0L);
+        age = 0;
+    }
+
+    /**
+     * @return The packed entry for the key, or 0 if the table holds none
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        return keys[index] == key ? entries[index] : 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        long old = entries[index];
+        if (keys[index] == key) {
+            // Same position: keep the old best move if this result has none
+            if (move == 0) {
+                move = move(old);
+            }
+        } else if (old != 0 && entryAge(old) == age && depth(old) > depth && bound != BOUND_EXACT) {
+            // A deeper result from this search is worth more than a shallow bound
+            return;
+        }
+        keys[index] = key;
+        entries[index] = (move & 0x3FFFFL)
+                       | ((score & 0xFFFFL) << 18)
+                       | ((long) (depth & 0xFF) << 34)
+                       | ((long) bound << 42)
+                       | ((long) age << 44);
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0x3FFFF);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> 18);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 34) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 42) & 0x3);
+    }
+
+    private static int entryAge(long entry) {
+        return (int) ((entry >>> 44) & 0x3F);
+    }
+
+    /**
+     * Fill rate in per mille: the share of the first thousand slots written by the current search
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, entries.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (entries[i] != 0 && entryAge(entries[i]) == age) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    /**
+     * @return Size of the table in bytes
+     */
+    public long sizeBytes() {
+        return (long) keys.length * 16;
+    }
+}
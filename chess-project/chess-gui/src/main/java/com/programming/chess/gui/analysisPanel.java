@@ -0,0 +1,209 @@
+package com.programming.chess.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.JToggleButton;
+import javax.swing.Timer;
+import javax.swing.border.TitledBorder;
+
+import com.programming.chess.engine.searchEngine;
+import com.programming.chess.rules.convertToSAN;
+import com.programming.chess.rules.position;
+
+/**
+ * Side panel that analyses the shown position in the background until the board changes.
+ *
+ * The search runs on its own thread and only stores its latest iteration; a Swing timer
+ * picks that up a few times per second, so the event thread sees at most one update per
+ * tick however fast iterations complete. Each board change bumps a generation counter,
+ * stops the running search and starts a new one with the same engine, so the hash table
+ * built for the previous position is reused.
+ */
+class analysisPanel extends JPanel {
+
+    private static final int HASH_MEGABYTES = 64;
+    private static final int REFRESH_MILLIS = 150;
+
+    /**
+     * One iteration, formatted on the search thread
+     */
+    private static class update {
+        final long generation;
+        final String depth;
+        final String score;
+        final String speed;
+        final String pv;
+
+        update(long generation, String depth, String score, String speed, String pv) {
+            this.generation = generation;
+            this.depth = depth;
+            this.score = score;
+            this.speed = speed;
+            this.pv = pv;
+        }
+    }
+
+    private final searchEngine engine = new searchEngine(HASH_MEGABYTES);
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analysis");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1); // Leave the event thread responsive
+        return thread;
+    });
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicReference<update> latest = new AtomicReference<>();
+    private volatile long runningGeneration; // Generation of the search in progress, 0 if idle
+
+    private final JToggleButton toggle = new JToggleButton("Analyze");
+    private final JLabel depthLabel = new JLabel("Depth: -");
+    private final JLabel scoreLabel = new JLabel("Eval: -");
+    private final JLabel speedLabel = new JLabel("Speed: -");
+    private final JTextArea pvArea = new JTextArea(4, 20);
+
+    private position shown = position.startPosition();
+
+    analysisPanel() {
+        setLayout(new BorderLayout());
+        setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createEtchedBorder(),
+                "Analysis",
+                TitledBorder.CENTER,
+                TitledBorder.TOP));
+
+        toggle.setFocusable(false);
+        toggle.addActionListener(e -> {
+            if (toggle.isSelected()) {
+                restart();
+            } else {
+                stopSearch();
+            }
+        });
+
+        JPanel stats = new JPanel(new GridLayout(3, 1));
+        stats.add(depthLabel);
+        stats.add(scoreLabel);
+        stats.add(speedLabel);
+
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(toggle, BorderLayout.NORTH);
+        top.add(stats, BorderLayout.CENTER);
+
+        pvArea.setEditable(false);
+        pvArea.setLineWrap(true);
+        pvArea.setWrapStyleWord(true);
+        pvArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JScrollPane pvScroll = new JScrollPane(pvArea);
+        pvScroll.setPreferredSize(new Dimension(150, 90));
+
+        add(top, BorderLayout.NORTH);
+        add(pvScroll, BorderLayout.CENTER);
+
+        new Timer(REFRESH_MILLIS, e -> refresh()).start();
+    }
+
+    /**
+     * Called on the event thread whenever the board shows a new position
+     */
+    void setPosition(position pos) {
+        shown = pos.copy();
+        if (toggle.isSelected()) {
+            restart();
+        }
+    }
+
+    private void restart() {
+        long searchGeneration = generation.incrementAndGet();
+        engine.stop();
+        clearLabels();
+
+        position root = shown.copy();
+        searcher.submit(() -> {
+            if (generation.get() != searchGeneration) {
+                return; // Superseded before it started
+            }
+            runningGeneration = searchGeneration;
+            searchEngine.Info result = engine.search(root, searchEngine.Limits.infinite(),
+                info -> latest.set(format(searchGeneration, root, info)));
+            if (result == null) {
+                latest.set(new update(searchGeneration, "Depth: -", "Eval: -", "Speed: -", "No legal moves"));
+            }
+            runningGeneration = 0;
+        });
+    }
+
+    private void stopSearch() {
+        generation.incrementAndGet();
+        engine.stop();
+    }
+
+    /**
+     * Timer tick: shows the newest iteration, and stops a search that missed its stop request
+     * because it was just starting when the board changed
+     */
+    private void refresh() {
+        long running = runningGeneration;
+        if (running != 0 && running != generation.get()) {
+            engine.stop();
+        }
+
+        update next = latest.getAndSet(null);
+        if (next == null || next.generation != generation.get()) {
+            return;
+        }
+        depthLabel.setText(next.depth);
+        scoreLabel.setText(next.score);
+        speedLabel.setText(next.speed);
+        pvArea.setText(next.pv);
+        pvArea.setCaretPosition(0);
+    }
+
+    private void clearLabels() {
+        latest.set(null);
+        depthLabel.setText("Depth: -");
+        scoreLabel.setText("Eval: -");
+        speedLabel.setText("Speed: -");
+        pvArea.setText("");
+    }
+
+    /**
+     * Formats an iteration on the search thread: score from White's side, PV in SAN with move numbers
+     */
+    private static update format(long generation, position root, searchEngine.Info info) {
+        int whiteScore = root.getSideToMove() == position.WHITE ? info.score : -info.score;
+        String score;
+        if (info.isMate()) {
+            int whiteMate = root.getSideToMove() == position.WHITE ? info.mateIn() : -info.mateIn();
+            score = "Eval: #" + whiteMate;
+        } else {
+            score = String.format("Eval: %+.2f", whiteScore / 100.0);
+        }
+
+        StringBuilder pv = new StringBuilder();
+        position line = root.copy();
+        for (int i = 0; i < info.pv.length; i++) {
+            int fullmove = line.getFullmoveNumber();
+            if (line.getSideToMove() == position.WHITE) {
+                pv.append(fullmove).append(". ");
+            } else if (i == 0) {
+                pv.append(fullmove).append("... ");
+            }
+            pv.append(convertToSAN.toSAN(line, info.pv[i])).append(' ');
+            line.makeMove(info.pv[i]);
+        }
+
+        String speed = String.format("Speed: %,d kN/s, %,d kN", info.nodesPerSecond() / 1000, info.nodes / 1000);
+        return new update(generation, "Depth: " + info.depth, score, speed, pv.toString().trim());
+    }
+}
@@ -0,0 +1,274 @@
+package com.programming.chess.gui;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Layered renderer for the chess board.
+ *
+ * The board is composed from cached layers:
+ * - background: squares and coordinates, rebuilt only when the square size changes
+ * - highlights: translucent square markers (drag source, legal targets, check, en passant)
+ * - arrows: the saved annotation arrows
+ * - scene: background + highlights + pieces + arrows, rebuilt only when one of them changes
+ *
+ * Piece sprites are pre-scaled once per square size. While a piece is being dragged nothing
+ * changes but the dragged sprite, so a frame is one scene blit plus one sprite blit.
+ * Until the sprite atlas has been decoded, pieces are drawn as Unicode chess glyphs.
+ */
+class boardRenderer {
+
+    /**
+     * Paints one layer. The graphics are translated so that board coordinates
+     * (xOffset + col * squareSize, ...) can be used unchanged.
+     */
+    interface layerPainter {
+        void paint(Graphics2D g);
+    }
+
+    static final Color LIGHT_SQUARE = new Color(204, 219, 255);
+    static final Color DARK_SQUARE = new Color(121, 154, 176);
+
+    private static final String GLYPHS = "\u2659\u2658\u2657\u2656\u2655\u2654"; // White pawn to king
+    private static final String GLYPH_LETTERS = "PNBRQK"; // Used when no font has the chess glyphs
+
+    private final int boardSize;
+    private final Map<String, BufferedImage> sprites = new HashMap<>();
+    private spriteAtlas atlas;
+
+    private int squareSize = -1;
+    private BufferedImage backgroundLayer;
+    private BufferedImage highlightLayer;
+    private BufferedImage arrowLayer;
+    private BufferedImage sceneLayer;
+
+    private boolean highlightsDirty = true;
+    private boolean arrowsDirty = true;
+    private boolean sceneDirty = true;
+
+    boardRenderer(int boardSize) {
+        this.boardSize = boardSize;
+    }
+
+    /**
+     * Switches from placeholder glyphs to the decoded sprite atlas
+     */
+    void setAtlas(spriteAtlas atlas) {
+        this.atlas = atlas;
+        sprites.clear();
+        sceneDirty = true;
+    }
+
+    /**
+     * Updates the square size, dropping every cached layer and sprite if it changed
+     */
+    void resize(int newSquareSize) {
+        if (newSquareSize == squareSize) {
+            return;
+        }
+        squareSize = newSquareSize;
+        sprites.clear();
+        backgroundLayer = null;
+        highlightLayer = null;
+        arrowLayer = null;
+        sceneLayer = null;
+        highlightsDirty = true;
+        arrowsDirty = true;
+        sceneDirty = true;
+    }
+
+    /**
+     * Square markers changed (drag started or ended, check, en passant)
+     */
+    void invalidateHighlights() {
+        highlightsDirty = true;
+        sceneDirty = true;
+    }
+
+    /**
+     * Saved arrows were added or cleared
+     */
+    void invalidateArrows() {
+        arrowsDirty = true;
+        sceneDirty = true;
+    }
+
+    /**
+     * Pieces moved on the board
+     */
+    void invalidatePieces() {
+        sceneDirty = true;
+    }
+
+    void invalidateAll() {
+        highlightsDirty = true;
+        arrowsDirty = true;
+        sceneDirty = true;
+    }
+
+    /**
+     * Blits the cached scene, rebuilding any stale layer first
+     */
+    void paintScene(Graphics g, int xOffset, int yOffset,
+                    layerPainter highlights, layerPainter pieces, layerPainter arrows) {
+        if (squareSize <= 0) {
+            return;
+        }
+
+        if (backgroundLayer == null) {
+            backgroundLayer = createLayer(BufferedImage.TYPE_INT_RGB);
+            paintBackground(backgroundLayer.createGraphics());
+        }
+        if (highlightsDirty || highlightLayer == null) {
+            highlightLayer = clearLayer(highlightLayer);
+            paintLayer(highlightLayer, xOffset, yOffset, highlights);
+            highlightsDirty = false;
+        }
+        if (arrowsDirty || arrowLayer == null) {
+            arrowLayer = clearLayer(arrowLayer);
+            paintLayer(arrowLayer, xOffset, yOffset, arrows);
+            arrowsDirty = false;
+        }
+        if (sceneDirty || sceneLayer == null) {
+            if (sceneLayer == null) {
+                sceneLayer = createLayer(BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D sg = sceneLayer.createGraphics();
+            sg.drawImage(backgroundLayer, 0, 0, null);
+            sg.drawImage(highlightLayer, 0, 0, null);
+            sg.dispose();
+            paintLayer(sceneLayer, xOffset, yOffset, pieces);
+            Graphics2D ag = sceneLayer.createGraphics();
+            ag.drawImage(arrowLayer, 0, 0, null);
+            ag.dispose();
+            sceneDirty = false;
+        }
+
+        g.drawImage(sceneLayer, xOffset, yOffset, null);
+    }
+
+    /**
+     * Returns the piece image pre-scaled to the current square size
+     */
+    BufferedImage getSprite(String piece) {
+        BufferedImage sprite = sprites.get(piece);
+        if (sprite == null && squareSize > 0) {
+            BufferedImage source = atlas != null ? atlas.getPiece(piece) : null;
+            sprite = new BufferedImage(squareSize, squareSize, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = sprite.createGraphics();
+            if (source != null) {
+                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g2d.drawImage(source, 0, 0, squareSize, squareSize, null);
+            } else if (!paintGlyph(g2d, piece)) {
+                g2d.dispose();
+                return null;
+            }
+            g2d.dispose();
+            sprites.put(piece, sprite);
+        }
+        return sprite;
+    }
+
+    /**
+     * Draws a placeholder for a piece: its Unicode chess symbol, or its SAN letter as a fallback
+     */
+    private boolean paintGlyph(Graphics2D g, String piece) {
+        int type = -1;
+        for (int t = 0; t < spriteAtlas.PIECE_TYPES.length; t++) {
+            if (piece.startsWith(spriteAtlas.PIECE_TYPES[t])) {
+                type = t;
+            }
+        }
+        if (type < 0) {
+            return false;
+        }
+        boolean white = piece.endsWith("W");
+
+        Font font = new Font("Serif", Font.PLAIN, squareSize * 3 / 4);
+        String text = String.valueOf(GLYPHS.charAt(type));
+        if (font.canDisplayUpTo(text) != -1) {
+            font = new Font("SansSerif", Font.BOLD, squareSize / 2);
+            text = String.valueOf(white ? GLYPH_LETTERS.charAt(type) : Character.toLowerCase(GLYPH_LETTERS.charAt(type)));
+        }
+
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        int x = (squareSize - metrics.stringWidth(text)) / 2;
+        int y = (squareSize - metrics.getHeight()) / 2 + metrics.getAscent();
+
+        // Outline in the opposite color so both sides read on light and dark squares
+        g.setColor(white ? Color.BLACK : Color.WHITE);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                g.drawString(text, x + dx, y + dy);
+            }
+        }
+        g.setColor(white ? Color.WHITE : Color.BLACK);
+        g.drawString(text, x, y);
+        return true;
+    }
+
+    private void paintBackground(Graphics2D g) {
+        Font coordinateFont = new Font("SansSerif", Font.PLAIN, Math.max(10, squareSize / 8));
+        g.setFont(coordinateFont);
+
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                boolean isLightSquare = (row + col) % 2 == 0;
+                int x = col * squareSize;
+                int y = row * squareSize;
+
+                g.setColor(isLightSquare ? LIGHT_SQUARE : DARK_SQUARE);
+                g.fillRect(x, y, squareSize, squareSize);
+
+                // Coordinates use the opposite square color
+                g.setColor(isLightSquare ? DARK_SQUARE : LIGHT_SQUARE);
+                if (row == boardSize - 1) {
+                    g.drawString(String.valueOf((char) ('a' + col)),
+                                x + squareSize - (squareSize / 5),
+                                y + squareSize - (squareSize / 10));
+                }
+                if (col == 0) {
+                    g.drawString(String.valueOf(8 - row),
+                                x + (squareSize / 10),
+                                y + (squareSize / 5));
+                }
+            }
+        }
+        g.dispose();
+    }
+
+    private void paintLayer(BufferedImage layer, int xOffset, int yOffset, layerPainter painter) {
+        Graphics2D g = layer.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.translate(-xOffset, -yOffset);
+        painter.paint(g);
+        g.dispose();
+    }
+
+    private BufferedImage createLayer(int type) {
+        int size = squareSize * boardSize;
+        return new BufferedImage(size, size, type);
+    }
+
+    private BufferedImage clearLayer(BufferedImage layer) {
+        if (layer == null) {
+            return createLayer(BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D g = layer.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, layer.getWidth(), layer.getHeight());
+        g.dispose();
+        return layer;
+    }
+}
@@ -0,0 +1,1042 @@
+package com.programming.chess.gui;
+
+import java.awt.BasicStroke;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GridLayout;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionAdapter;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.AbstractAction;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.JRootPane;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+import com.programming.chess.engine.evaluator;
+import com.programming.chess.rules.bitboards;
+import com.programming.chess.rules.convertToSAN;
+import com.programming.chess.rules.detectCheck;
+import com.programming.chess.rules.gameEvents;
+import com.programming.chess.rules.gameNavigator;
+import com.programming.chess.rules.gameState;
+import com.programming.chess.rules.moveEncoding;
+import com.programming.chess.rules.moveGenerator;
+import com.programming.chess.rules.position;
+import com.programming.chess.rules.validateMove;
+
+public class chessBoard extends JFrame {
+
+    private final int BOARD_SIZE = 8;
+    private String[][] board = new String[BOARD_SIZE][BOARD_SIZE];
+    private JPanel chessDisplay;
+    private boardRenderer renderer;
+    private dirtyRegionRepainter dragRepainter;
+    private moveDisplay moveHistoryPanel; // Add the move display panel
+    private analysisPanel analysis; // Background engine analysis of the shown position
+    private JButton claimDrawButton; // Enabled while the player to move may claim a draw
+    
+    // Board dimensions
+    private int squareSize;
+    private int xOffset = 0;
+    private int yOffset = 0;
+    
+    // Variables for dragging pieces
+    private boolean isDragging = false;
+    private int dragSourceRow = -1;
+    private int dragSourceCol = -1;
+    private int dragX = -1;
+    private int dragY = -1;
+    private String draggedPiece = null;
+    private long dragTargets = 0L; // Legal destination squares of the dragged piece
+    
+    // Legal destinations of every square, cached for the position with this hash
+    private final long[] legalTargetsBySquare = new long[BOARD_SIZE * BOARD_SIZE];
+    private long legalTargetsHash = 0L;
+    private boolean legalTargetsValid = false;
+    
+    // Background rules work and the game it belongs to (bumped on every reset)
+    private final rulesWorker rules = new rulesWorker();
+    private int gameNumber = 0;
+    
+    // Variables for drawing arrows
+    private List<Arrow> arrows = new ArrayList<>();
+    private boolean isDrawingArrow = false;
+    private int arrowStartRow = -1;
+    private int arrowStartCol = -1;
+    private int arrowEndRow = -1;
+    private int arrowEndCol = -1;
+    private boolean shiftPressed = false;
+    
+    // Game state reference
+    private gameState state;
+    
+    // Track whose turn it is for the move display
+    private boolean isWhiteTurn = true;
+    
+    // Track check status for highlighting
+    private boolean isWhiteKingInCheck = false;
+    private boolean isBlackKingInCheck = false;
+    private int whiteKingRow = 7, whiteKingCol = 4; // Initial positions
+    private int blackKingRow = 0, blackKingCol = 4; // Initial positions
+    
+    // Track pawns that can do en passant captures
+    private List<int[]> enPassantPawns = new ArrayList<>();
+    
+    // Colors and fonts are created once rather than on every repaint
+    private static final Color DRAG_SOURCE_HIGHLIGHT = new Color(255, 165, 0, 120); // Orange with transparency
+    private static final Color CHECK_HIGHLIGHT = new Color(255, 0, 0, 120); // Red with transparency
+    private static final Color EN_PASSANT_HIGHLIGHT = new Color(0, 255, 0, 120); // Green for pawns that can do en passant
+    private static final Color LEGAL_TARGET_HIGHLIGHT = new Color(40, 40, 40, 90); // Dark marker for legal destinations
+    private static final Font STATUS_FONT = new Font("SansSerif", Font.BOLD, 16);
+    
+    // Inner class to represent an arrow
+    private class Arrow {
+        int startRow, startCol, endRow, endCol;
+        Color color;
+        
+        public Arrow(int startRow, int startCol, int endRow, int endCol, Color color) {
+            this.startRow = startRow;
+            this.startCol = startCol;
+            this.endRow = endRow;
+            this.endCol = endCol;
+            this.color = color;
+        }
+    }
+
+    public chessBoard() {
+        this(spriteAtlas.loadAsync());
+    }
+
+    private chessBoard(CompletableFuture<spriteAtlas> atlas) {
+        super("Chess");
+        setDefaultCloseOperation(EXIT_ON_CLOSE);
+        setPreferredSize(new Dimension(950, 800)); // Increased width to accommodate move history
+
+        // Initialize game state
+        state = gameState.getInstance();
+        
+        // Initialize move history panel
+        moveHistoryPanel = new moveDisplay();
+        analysis = new analysisPanel();
+        
+        // Pieces are drawn as glyphs until the sprite atlas has been decoded
+        renderer = new boardRenderer(BOARD_SIZE);
+        initializeBoard();
+        
+        chessDisplay = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                calculateBoardDimensions();
+                renderer.resize(squareSize);
+
+                // Squares, highlights, pieces and saved arrows come from the cached scene
+                renderer.paintScene(g, xOffset, yOffset, 
+                                    g2d -> drawHighlights(g2d), 
+                                    g2d -> drawPieces(g2d), 
+                                    g2d -> drawArrows(g2d));
+                
+                // Draw the arrow currently being created
+                if (isDrawingArrow) {
+                    drawArrow(g, arrowStartRow, arrowStartCol, arrowEndRow, arrowEndCol, Color.RED);
+                }
+                
+                // Draw the dragged piece last so it appears on top
+                if (isDragging && draggedPiece != null) {
+                    BufferedImage sprite = renderer.getSprite(draggedPiece);
+                    if (sprite != null) {
+                        // Center the piece on the cursor
+                        g.drawImage(sprite, dragX - squareSize/2, dragY - squareSize/2, null);
+                    }
+                }
+                
+                // Draw status message
+                g.setColor(Color.WHITE);
+                g.setFont(STATUS_FONT);
+                g.drawString(state.getStatusMessage(), 10, getHeight() - 20);
+            }
+        };
+
+        chessDisplay.setBackground(Color.DARK_GRAY);
+        dragRepainter = new dirtyRegionRepainter(chessDisplay);
+        
+        // Mouse press for starting drag or arrow
+        chessDisplay.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int col = (e.getX() - xOffset) / squareSize;
+                int row = (e.getY() - yOffset) / squareSize;
+                
+                // Make sure the click is within the board
+                if (col >= 0 && col < BOARD_SIZE && row >= 0 && row < BOARD_SIZE) {
+                    if (shiftPressed) {
+                        // Start drawing an arrow
+                        isDrawingArrow = true;
+                        arrowStartRow = row;
+                        arrowStartCol = col;
+                        arrowEndRow = row;
+                        arrowEndCol = col;
+                    } else if (!state.getNavigator().isAtEnd()) {
+                        // Browsing an earlier position: a click returns to the game instead of moving
+                        showPly(state.getNavigator().getMoveCount());
+                    } else if (!state.isActiveGame()) {
+                        // The game is over, leave the final status message in place
+                        chessDisplay.repaint();
+                    } else {
+                        String piece = board[row][col];
+                        
+                        if (piece != null) {
+                            // Only allow dragging pieces of the current player
+                            if (state.isCurrentPlayersPiece(piece)) {
+                                dragSourceRow = row;
+                                dragSourceCol = col;
+                                draggedPiece = piece;
+                                dragTargets = getLegalTargets(row, col);
+                                isDragging = true;
+                                dragX = e.getX();
+                                dragY = e.getY();
+                                
+                                // Temporarily remove the piece from the board during dragging
+                                board[row][col] = null;
+                                
+                                renderer.invalidatePieces();
+                                renderer.invalidateHighlights();
+                                
+                                // Only the source square, the legal targets and the sprite change
+                                Rectangle changed = squaresBounds(dragTargets | (1L << (row * BOARD_SIZE + col)));
+                                changed.add(draggedSpriteBounds());
+                                dragRepainter.addDirtyRegion(changed);
+                            } else {
+                                state.setStatusMessage("It's " + 
+                                    (state.getCurrentPlayer().equals("W") ? "White" : "Black") + 
+                                    "'s turn to move");
+                                chessDisplay.repaint();
+                            }
+                        }
+                    }
+                }
+            }
+            
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (isDrawingArrow) {
+                    int col = (e.getX() - xOffset) / squareSize;
+                    int row = (e.getY() - yOffset) / squareSize;
+                    
+                    // Make sure the release is within the board
+                    if (col >= 0 && col < BOARD_SIZE && row >= 0 && row < BOARD_SIZE) {
+                        // Only add arrow if start and end are different
+                        if (arrowStartRow != row || arrowStartCol != col) {
+                            arrows.add(new Arrow(arrowStartRow, arrowStartCol, row, col, Color.RED));
+                            renderer.invalidateArrows();
+                        }
+                    }
+                    
+                    isDrawingArrow = false;
+                    dragRepainter.repaintAll();
+                } else if (isDragging) {
+                    int col = (e.getX() - xOffset) / squareSize;
+                    int row = (e.getY() - yOffset) / squareSize;
+                    
+                    boolean validMove = false;
+                    
+                    // Make sure the release is within the board
+                    if (col >= 0 && col < BOARD_SIZE && row >= 0 && row < BOARD_SIZE) {
+                        // Check if this is a valid move
+                        validMove = validateBoardMove(dragSourceRow, dragSourceCol, row, col, draggedPiece);
+                        
+                        if (validMove) {
+                            // Capture the piece at destination if any
+                            String capturedPiece = board[row][col];
+                            
+                            // Check if this is a castling move
+                            boolean isCastling = draggedPiece.startsWith("king") && Math.abs(dragSourceCol - col) == 2;
+                            
+                            // Check if this is an en passant capture
+                            boolean isEnPassant = validateMove.isEnPassantCapture(dragSourceRow, dragSourceCol, row, col, draggedPiece);
+                            
+                            if (isEnPassant) {
+                                // Get the position of the captured pawn
+                                int[] capturedPos = validateMove.getEnPassantCapturedPawnPosition(row, col);
+                                if (capturedPos != null) {
+                                    // Set the captured piece
+                                    capturedPiece = board[capturedPos[0]][capturedPos[1]];
+                                    // Remove the captured pawn from the board
+                                    board[capturedPos[0]][capturedPos[1]] = null;
+                                    System.out.println("En passant capture: " + capturedPiece + " at " + 
+                                                     (char)('a' + capturedPos[1]) + (8 - capturedPos[0]));
+                                }
+                            }
+                            
+                            // Update king position tracking for kings
+                            if (draggedPiece.equals("kingW")) {
+                                whiteKingRow = row;
+                                whiteKingCol = col;
+                            } else if (draggedPiece.equals("kingB")) {
+                                blackKingRow = row;
+                                blackKingCol = col;
+                            }
+                            
+                            // Complete the move
+                            board[row][col] = draggedPiece;
+                            
+                            // Pawns reaching the last rank are promoted to a queen
+                            if (draggedPiece.startsWith("pawn") && (row == 0 || row == BOARD_SIZE - 1)) {
+                                board[row][col] = "queen" + draggedPiece.substring(draggedPiece.length() - 1);
+                            }
+                            
+                            // Handle castling if needed
+                            if (isCastling) {
+                                handleCastling(dragSourceRow, dragSourceCol, row, col);
+                            }
+                            
+                            // Record the move in game state; onMoveMade takes it from there
+                            if (!state.makeMove(dragSourceRow, dragSourceCol, row, col, draggedPiece, capturedPiece)) {
+                                // The rules rejected it and changed nothing: undo the edits above
+                                loadBoardFromPosition(state.getPosition());
+                                state.setStatusMessage("Invalid move. " + 
+                                    (state.getCurrentPlayer().equals("W") ? "White" : "Black") + 
+                                    "'s turn to move");
+                            } else {
+                                if (capturedPiece != null) {
+                                    System.out.println("Captured: " + capturedPiece);
+                                }
+                                
+                                System.out.println("Valid move: " + draggedPiece + " from " + 
+                                                  (char)('a' + dragSourceCol) + (8 - dragSourceRow) + " to " + 
+                                                  (char)('a' + col) + (8 - row));
+                                
+                                // Clear arrows after making a move
+                                clearArrows();
+                            }
+                        } else {
+                            // Invalid move, return the piece to its original position
+                            board[dragSourceRow][dragSourceCol] = draggedPiece;
+                            state.setStatusMessage("Invalid move. " + 
+                                (state.getCurrentPlayer().equals("W") ? "White" : "Black") + 
+                                "'s turn to move");
+                            System.out.println("Invalid move attempted");
+                        }
+                    } else {
+                        // Released outside the board, return piece to original position
+                        board[dragSourceRow][dragSourceCol] = draggedPiece;
+                    }
+                    
+                    // Reset drag variables
+                    isDragging = false;
+                    draggedPiece = null;
+                    dragTargets = 0L;
+                    dragSourceRow = -1;
+                    dragSourceCol = -1;
+                    
+                    renderer.invalidateAll();
+                    dragRepainter.repaintAll();
+                }
+            }
+            
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    clearArrows();
+                }
+            }
+        });
+        
+        // Mouse motion for dragging
+        chessDisplay.addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (isDrawingArrow) {
+                    int col = (e.getX() - xOffset) / squareSize;
+                    int row = (e.getY() - yOffset) / squareSize;
+                    
+                    // Make sure it's within the board
+                    if (col >= 0 && col < BOARD_SIZE && row >= 0 && row < BOARD_SIZE &&
+                        (row != arrowEndRow || col != arrowEndCol)) {
+                        // Repaint the area covered by the old and the new arrow
+                        Rectangle changed = arrowBounds(arrowStartRow, arrowStartCol, arrowEndRow, arrowEndCol);
+                        arrowEndRow = row;
+                        arrowEndCol = col;
+                        changed.add(arrowBounds(arrowStartRow, arrowStartCol, arrowEndRow, arrowEndCol));
+                        dragRepainter.addDirtyRegion(changed);
+                    }
+                } else if (isDragging) {
+                    // Repaint only where the sprite was and where it is now, once per frame
+                    Rectangle changed = draggedSpriteBounds();
+                    dragX = e.getX();
+                    dragY = e.getY();
+                    changed.add(draggedSpriteBounds());
+                    dragRepainter.addDirtyRegion(changed);
+                }
+            }
+        });
+        
+        // Key listener for shift key
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_SHIFT) {
+                    shiftPressed = true;
+                }
+            }
+            
+            @Override
+            public void keyReleased(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_SHIFT) {
+                    shiftPressed = false;
+                    
+                    // Cancel any arrow drawing in progress when shift is released
+                    if (isDrawingArrow) {
+                        isDrawingArrow = false;
+                        chessDisplay.repaint();
+                    }
+                }
+            }
+        });
+        
+        // Make sure the frame can receive key events
+        setFocusable(true);
+        requestFocus();
+        
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                chessDisplay.repaint();
+            }
+        });
+        
+        // Clicking a move in the history shows the position after it
+        moveHistoryPanel.addPlySelectionListener(this::showPly);
+        
+        // Follow-up work for a move runs as soon as it is recorded; screen updates for
+        // status changes are batched so a burst of events costs a single repaint
+        gameEvents events = state.getEvents();
+        events.subscribe(gameEvents.MoveMade.class, this::onMoveMade);
+        events.subscribeBatched(gameEvents.StatusChanged.class, SwingUtilities::invokeLater, this::onStatusChanged);
+        
+        // Arrow keys, Home and End step through the game from anywhere in the window
+        bindNavigationKey(KeyEvent.VK_HOME, "firstPly", () -> showPly(0));
+        bindNavigationKey(KeyEvent.VK_LEFT, "previousPly", () -> showPly(state.getNavigator().getPly() - 1));
+        bindNavigationKey(KeyEvent.VK_RIGHT, "nextPly", () -> showPly(state.getNavigator().getPly() + 1));
+        bindNavigationKey(KeyEvent.VK_END, "lastPly", () -> showPly(state.getNavigator().getMoveCount()));
+        
+        // Set up the layout with board on left; analysis, move history and navigation buttons on right
+        JPanel navigationButtons = new JPanel(new GridLayout(1, 4));
+        navigationButtons.add(navigationButton("|<", () -> showPly(0)));
+        navigationButtons.add(navigationButton("<", () -> showPly(state.getNavigator().getPly() - 1)));
+        navigationButtons.add(navigationButton(">", () -> showPly(state.getNavigator().getPly() + 1)));
+        navigationButtons.add(navigationButton(">|", () -> showPly(state.getNavigator().getMoveCount())));
+        
+        // The 50-move rule and threefold repetition end the game only when claimed
+        claimDrawButton = navigationButton("Claim draw", () -> {
+            if (state.claimDraw()) {
+                updateClaimDrawButton();
+            }
+        });
+        updateClaimDrawButton();
+        
+        JPanel gameButtons = new JPanel(new BorderLayout());
+        gameButtons.add(navigationButtons, BorderLayout.CENTER);
+        gameButtons.add(claimDrawButton, BorderLayout.SOUTH);
+        
+        JPanel historyPanel = new JPanel(new BorderLayout());
+        historyPanel.add(moveHistoryPanel, BorderLayout.CENTER);
+        historyPanel.add(gameButtons, BorderLayout.SOUTH);
+        historyPanel.add(analysis, BorderLayout.NORTH);
+        
+        setLayout(new BorderLayout());
+        add(chessDisplay, BorderLayout.CENTER);
+        add(historyPanel, BorderLayout.EAST);
+        
+        setResizable(true);
+        pack();
+
+        setMinimumSize(new Dimension(550, 400));
+        
+        // Startup timing, measured from JVM start
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                System.out.println("Window shown " + ManagementFactory.getRuntimeMXBean().getUptime() +
+                                   " ms after JVM start");
+            }
+        });
+        atlas.whenComplete((loaded, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                System.err.println("Could not load piece sprites, keeping glyphs: " + error.getMessage());
+                return;
+            }
+            renderer.setAtlas(loaded);
+            dragRepainter.repaintAll();
+            System.out.printf("Sprite atlas decoded in %.1f ms, shown %d ms after JVM start%n",
+                              loaded.getDecodeNanos() / 1e6, ManagementFactory.getRuntimeMXBean().getUptime());
+        }));
+    }
+    
+    /**
+     * Helper method to draw an arrow
+     */
+    private void drawArrow(Graphics g, int startRow, int startCol, int endRow, int endCol, Color color) {
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setColor(color);
+        g2d.setStroke(new BasicStroke(squareSize / 8)); // Arrow line thickness
+        
+        // Calculate center points of the squares
+        int startX = xOffset + startCol * squareSize + squareSize / 2;
+        int startY = yOffset + startRow * squareSize + squareSize / 2;
+        int endX = xOffset + endCol * squareSize + squareSize / 2;
+        int endY = yOffset + endRow * squareSize + squareSize / 2;
+        
+        // Draw the arrow line
+        g2d.drawLine(startX, startY, endX, endY);
+        
+        // Draw the arrow head
+        double angle = Math.atan2(endY - startY, endX - startX);
+        int arrowSize = squareSize / 3;
+        
+        // Create arrowhead
+        Polygon arrowHead = new Polygon();
+        arrowHead.addPoint(endX, endY);
+        arrowHead.addPoint((int) (endX - arrowSize * Math.cos(angle - Math.PI/6)), 
+                           (int) (endY - arrowSize * Math.sin(angle - Math.PI/6)));
+        arrowHead.addPoint((int) (endX - arrowSize * Math.cos(angle + Math.PI/6)), 
+                           (int) (endY - arrowSize * Math.sin(angle + Math.PI/6)));
+        
+        g2d.fillPolygon(arrowHead);
+    }
+    
+    /**
+     * Screen area covered by the dragged piece sprite
+     */
+    private Rectangle draggedSpriteBounds() {
+        return new Rectangle(dragX - squareSize / 2, dragY - squareSize / 2, squareSize, squareSize);
+    }
+    
+    /**
+     * Screen area covered by an arrow, including its line width and head
+     */
+    private Rectangle arrowBounds(int startRow, int startCol, int endRow, int endCol) {
+        Rectangle bounds = squaresBounds((1L << (startRow * BOARD_SIZE + startCol)) |
+                                         (1L << (endRow * BOARD_SIZE + endCol)));
+        bounds.grow(squareSize / 2, squareSize / 2);
+        return bounds;
+    }
+    
+    /**
+     * Screen area covering a set of squares (bit = row * 8 + col)
+     */
+    private Rectangle squaresBounds(long squares) {
+        Rectangle bounds = null;
+        while (squares != 0) {
+            int sq = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            Rectangle square = new Rectangle(xOffset + (sq % BOARD_SIZE) * squareSize,
+                                             yOffset + (sq / BOARD_SIZE) * squareSize,
+                                             squareSize, squareSize);
+            if (bounds == null) {
+                bounds = square;
+            } else {
+                bounds.add(square);
+            }
+        }
+        return bounds != null ? bounds : new Rectangle();
+    }
+    
+    /**
+     * Clear all arrows from the board
+     */
+    private void clearArrows() {
+        arrows.clear();
+        renderer.invalidateArrows();
+        chessDisplay.repaint();
+    }
+    
+    /**
+     * Update the list of pawns that can perform en passant captures
+     */
+    private void updateEnPassantPawns() {
+        enPassantPawns.clear();
+        
+        // Only check if en passant is possible
+        int enPassantCol = state.getEnPassantCol();
+        int enPassantRow = state.getEnPassantRow();
+        
+        if (enPassantCol == -1 || enPassantRow == -1) {
+            return; // No en passant possible
+        }
+        
+        // Get the player who can perform en passant (current player)
+        String currentPlayer = state.getCurrentPlayer();
+        
+        // Search for pawns that can perform en passant
+        // They must be on the same rank as the en passant target and adjacent files
+        for (int adjacentCol = enPassantCol - 1; adjacentCol <= enPassantCol + 1; adjacentCol += 2) {
+            if (adjacentCol < 0 || adjacentCol >= BOARD_SIZE) {
+                continue; // Skip if outside the board
+            }
+            
+            // Check if there's a pawn of the current player at this position
+            String piece = board[enPassantRow][adjacentCol];
+            if (piece != null && piece.equals("pawn" + currentPlayer)) {
+                // This pawn can perform en passant
+                enPassantPawns.add(new int[] {enPassantRow, adjacentCol});
+            }
+        }
+    }
+    
+    /**
+     * Validate a drop against the legal targets computed when the drag started
+     */
+    private boolean validateBoardMove(int fromRow, int fromCol, int toRow, int toCol, String piece) {
+        return (dragTargets & (1L << (toRow * BOARD_SIZE + toCol))) != 0;
+    }
+    
+    /**
+     * Get the legal destination squares of the piece on a square as a bitmask (bit = row * 8 + col).
+     * All targets are generated once per position and cached by the position hash.
+     */
+    private long getLegalTargets(int row, int col) {
+        position pos = state.getPosition();
+        if (!legalTargetsValid || legalTargetsHash != pos.getHash()) {
+            moveGenerator.legalTargets(pos, legalTargetsBySquare);
+            legalTargetsHash = pos.getHash();
+            legalTargetsValid = true;
+        }
+        return legalTargetsBySquare[row * BOARD_SIZE + col];
+    }
+    
+    /**
+     * Shows the position after the given number of plies. Moves can only be made
+     * again once the last ply is shown.
+     */
+    private void showPly(int ply) {
+        gameNavigator navigator = state.getNavigator();
+        if (isDragging || ply < 0 || ply > navigator.getMoveCount()) {
+            return;
+        }
+        
+        loadBoardFromPosition(navigator.goTo(ply));
+        analysis.setPosition(navigator.getPosition());
+        moveHistoryPanel.selectPly(ply);
+        renderer.invalidateAll();
+        dragRepainter.repaintAll();
+    }
+    
+    /**
+     * Rebuilds the GUI board, king tracking, check markers and en passant markers from a position
+     */
+    private void loadBoardFromPosition(position pos) {
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int col = 0; col < BOARD_SIZE; col++) {
+                int piece = pos.pieceAt(row * BOARD_SIZE + col);
+                board[row][col] = piece == position.EMPTY ? null : position.pieceName(piece);
+            }
+        }
+        
+        int whiteKing = pos.kingSquare(position.WHITE);
+        int blackKing = pos.kingSquare(position.BLACK);
+        whiteKingRow = whiteKing / BOARD_SIZE;
+        whiteKingCol = whiteKing % BOARD_SIZE;
+        blackKingRow = blackKing / BOARD_SIZE;
+        blackKingCol = blackKing % BOARD_SIZE;
+        
+        boolean inCheck = pos.inCheck();
+        isWhiteKingInCheck = inCheck && pos.getSideToMove() == position.WHITE;
+        isBlackKingInCheck = inCheck && pos.getSideToMove() == position.BLACK;
+        
+        // Pawns of the side to move that attack the en passant square
+        enPassantPawns.clear();
+        int epSquare = pos.getEnPassantSquare();
+        if (epSquare >= 0) {
+            int side = pos.getSideToMove();
+            long capturers = bitboards.PAWN_ATTACKS[side ^ 1][epSquare] & pos.getPieces(side, position.PAWN);
+            while (capturers != 0) {
+                int sq = Long.numberOfTrailingZeros(capturers);
+                capturers &= capturers - 1;
+                enPassantPawns.add(new int[] {sq / BOARD_SIZE, sq % BOARD_SIZE});
+            }
+        }
+    }
+    
+    private void bindNavigationKey(int keyCode, String name, Runnable action) {
+        JRootPane root = getRootPane();
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(keyCode, 0), name);
+        root.getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+    
+    private void updateClaimDrawButton() {
+        claimDrawButton.setEnabled(state.getClaimableDraw() != null);
+    }
+    
+    private JButton navigationButton(String label, Runnable action) {
+        JButton button = new JButton(label);
+        button.setFocusable(false); // Keep keyboard focus on the frame for the shift key
+        button.addActionListener(e -> action.run());
+        return button;
+    }
+    
+    /**
+     * Called on the event thread for every move recorded in the game state,
+     * after the board on screen has been updated
+     */
+    private void onMoveMade(gameEvents.MoveMade event) {
+        gameState.Move move = event.move;
+        int flag = moveEncoding.flag(event.snapshot.getLastMove());
+        
+        // Update pawns that can do en passant after the move
+        updateEnPassantPawns();
+        updateClaimDrawButton();
+        
+        // The board is already updated; status, notation and the next legal
+        // targets are worked out in the background and published when ready
+        submitMoveAnalysis(move.fromRow, move.fromCol, move.toRow, move.toCol, move.piece, move.capturedPiece,
+                           flag == moveEncoding.FLAG_CASTLING, flag == moveEncoding.FLAG_EN_PASSANT);
+        
+        // Toggle turn for move display
+        isWhiteTurn = !isWhiteTurn;
+    }
+    
+    /**
+     * Updates the check markers and repaints once for a batch of status changes.
+     * Only the newest status counts, and only while no move has been played since.
+     */
+    private void onStatusChanged(List<gameEvents.StatusChanged> batch) {
+        updateClaimDrawButton();
+        gameEvents.StatusChanged latest = batch.get(batch.size() - 1);
+        if (latest.snapshot.getSequence() != state.getSnapshot().getSequence()) {
+            return;
+        }
+        
+        // Check markers belong to the board on screen, which may be an earlier ply
+        boolean isInCheck = latest.status == detectCheck.GameStatus.CHECK ||
+                            latest.status == detectCheck.GameStatus.CHECKMATE;
+        if (state.getNavigator().isAtEnd()) {
+            isWhiteKingInCheck = isInCheck && latest.snapshot.getSideToMove() == position.WHITE;
+            isBlackKingInCheck = isInCheck && latest.snapshot.getSideToMove() == position.BLACK;
+        }
+        
+        renderer.invalidateHighlights();
+        dragRepainter.repaintAll();
+    }
+    
+    /**
+     * Result of the background work for one move
+     */
+    private static class moveAnalysis {
+        String notation;
+        detectCheck.GameStatus status;
+        long hash;
+        long[] legalTargets; // null when the job was already stale
+    }
+    
+    /**
+     * Queues status evaluation, SAN conversion and legal target generation for the move
+     * just played. The job works on copies of the position and board, so the event thread
+     * can keep moving pieces while it runs.
+     */
+    private void submitMoveAnalysis(int fromRow, int fromCol, int toRow, int toCol,
+                                    String piece, String capturedPiece,
+                                    boolean isCastling, boolean isEnPassant) {
+        final long job = rules.newGeneration();
+        final int game = gameNumber;
+        final boolean whiteMoved = isWhiteTurn;
+        final position after = state.getPosition().copy();
+        analysis.setPosition(after);
+        
+        // Optimistic update: a legal move never leaves the mover in check
+        if (whiteMoved) {
+            isWhiteKingInCheck = false;
+        } else {
+            isBlackKingInCheck = false;
+        }
+
+        final String[][] boardAfter = new String[BOARD_SIZE][];
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            boardAfter[i] = board[i].clone();
+        }
+        
+        rules.submit(() -> {
+            moveAnalysis result = new moveAnalysis();
+            result.hash = after.getHash();
+            if (rules.isStale(job)) {
+                // Another move has already been played from this position, so it can be
+                // neither mate nor stalemate: skip the legal-move search. A drawn position
+                // never gets here, onMoveMade ends the game before the next move.
+                result.status = detectCheck.quickStatus(after);
+            } else {
+                result.status = detectCheck.evaluateStatus(after);
+                result.legalTargets = new long[BOARD_SIZE * BOARD_SIZE];
+                moveGenerator.legalTargets(after, result.legalTargets);
+            }
+            boolean isCheck = result.status == detectCheck.GameStatus.CHECK ||
+                              result.status == detectCheck.GameStatus.CHECKMATE;
+            result.notation = convertToSAN.externalMoveToSAN(
+                fromRow, fromCol, toRow, toCol, piece, capturedPiece, isCastling, isEnPassant,
+                boardAfter, isCheck, result.status == detectCheck.GameStatus.CHECKMATE);
+            return result;
+        }, result -> publishMoveAnalysis(job, game, whiteMoved, result), () -> {
+            // The job failed: a full status check is quick enough for the event thread, so
+            // mates are not lost, and coordinates stand in for the notation that could not be made
+            moveAnalysis result = new moveAnalysis();
+            result.hash = after.getHash();
+            result.status = detectCheck.evaluateStatus(after);
+            result.notation = coordinateNotation(fromRow, fromCol, toRow, toCol, result.status);
+            return result;
+        });
+    }
+    
+    /**
+     * Move in coordinates, e.g. "e2-e4+", for when SAN conversion is not available
+     */
+    private static String coordinateNotation(int fromRow, int fromCol, int toRow, int toCol,
+                                             detectCheck.GameStatus status) {
+        String suffix = switch (status) {
+            case CHECKMATE -> "#";
+            case CHECK -> "+";
+            default -> "";
+        };
+        return "" + (char) ('a' + fromCol) + (8 - fromRow) + "-" + (char) ('a' + toCol) + (8 - toRow) + suffix;
+    }
+    
+    /**
+     * Applies a finished move analysis on the event thread. The notation is always recorded;
+     * the status only if no later move has been played since. Setting the status announces
+     * it on the game's event bus, which redraws the check markers.
+     */
+    private void publishMoveAnalysis(long job, int game, boolean whiteMoved, moveAnalysis result) {
+        if (game != gameNumber) {
+            return; // The game was reset while the job was running
+        }
+        
+        moveHistoryPanel.addMove(result.notation, whiteMoved);
+        if (!state.getNavigator().isAtEnd()) {
+            moveHistoryPanel.selectPly(state.getNavigator().getPly()); // Keep the browsed move highlighted
+        }
+        
+        if (rules.isStale(job)) {
+            return;
+        }
+        
+        // Hand the precomputed targets to the drag cache so the next drag needs no generation
+        if (result.legalTargets != null && result.hash == state.getPosition().getHash()) {
+            System.arraycopy(result.legalTargets, 0, legalTargetsBySquare, 0, legalTargetsBySquare.length);
+            legalTargetsHash = result.hash;
+            legalTargetsValid = true;
+        }
+        
+        // A draw declared by onMoveMade stands; announcing the game's end twice would confuse subscribers
+        if (state.isActiveGame()) {
+            state.setGameStatus(result.status);
+        }
+    }
+    
+    /**
+     * Handle castling move by moving the rook to its new position
+     */
+    private void handleCastling(int kingFromRow, int kingFromCol, int kingToRow, int kingToCol) {
+        String pieceColor = draggedPiece.substring(draggedPiece.length() - 1);
+        
+        if (kingToCol > kingFromCol) {
+            // Kingside castling (O-O)
+            // Move the kingside rook from h1/h8 to f1/f8
+            String rookPiece = "rook" + pieceColor;
+            board[kingToRow][5] = rookPiece; // Move to f1/f8
+            board[kingToRow][7] = null;     // Remove from h1/h8
+            System.out.println("Kingside castling: Moved " + rookPiece + " from " + 
+                              (char)('a' + 7) + (8 - kingToRow) + " to " + 
+                              (char)('a' + 5) + (8 - kingToRow));
+        } else {
+            // Queenside castling (O-O-O)
+            // Move the queenside rook from a1/a8 to d1/d8
+            String rookPiece = "rook" + pieceColor;
+            board[kingToRow][3] = rookPiece; // Move to d1/d8
+            board[kingToRow][0] = null;     // Remove from a1/a8
+            System.out.println("Queenside castling: Moved " + rookPiece + " from " + 
+                              (char)('a' + 0) + (8 - kingToRow) + " to " + 
+                              (char)('a' + 3) + (8 - kingToRow));
+        }
+    }
+
+    private void calculateBoardDimensions() {
+        int width = chessDisplay.getWidth();
+        int height = chessDisplay.getHeight();
+        
+        squareSize = Math.min(width, height) / BOARD_SIZE;
+    
+        xOffset = (width - (squareSize * BOARD_SIZE)) / 2;
+        yOffset = (height - (squareSize * BOARD_SIZE)) / 2;
+    }
+
+    /**
+     * Overlay layer: translucent markers on top of the squares
+     */
+    private void drawHighlights(Graphics2D g) {
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int col = 0; col < BOARD_SIZE; col++) {
+                int x = xOffset + col * squareSize;
+                int y = yOffset + row * squareSize;
+                
+                // Highlight source square during drag
+                if (isDragging && row == dragSourceRow && col == dragSourceCol) {
+                    g.setColor(DRAG_SOURCE_HIGHLIGHT);
+                    g.fillRect(x, y, squareSize, squareSize);
+                }
+                
+                // Highlight pawns that can perform en passant capture
+                for (int[] pawn : enPassantPawns) {
+                    if (row == pawn[0] && col == pawn[1]) {
+                        g.setColor(EN_PASSANT_HIGHLIGHT);
+                        g.fillRect(x, y, squareSize, squareSize);
+                    }
+                }
+                
+                // Mark legal destinations of the dragged piece: a dot on empty squares, a ring on captures
+                if (isDragging && (dragTargets & (1L << (row * BOARD_SIZE + col))) != 0) {
+                    g.setColor(LEGAL_TARGET_HIGHLIGHT);
+                    if (board[row][col] == null) {
+                        int dot = squareSize / 3;
+                        g.fillOval(x + (squareSize - dot) / 2, y + (squareSize - dot) / 2, dot, dot);
+                    } else {
+                        g.setStroke(new BasicStroke(Math.max(2, squareSize / 16)));
+                        g.drawOval(x + 2, y + 2, squareSize - 4, squareSize - 4);
+                    }
+                }
+                
+                // Highlight king in check with red
+                if ((isWhiteKingInCheck && row == whiteKingRow && col == whiteKingCol) ||
+                    (isBlackKingInCheck && row == blackKingRow && col == blackKingCol)) {
+                    g.setColor(CHECK_HIGHLIGHT);
+                    g.fillRect(x, y, squareSize, squareSize);
+                }
+            }
+        }
+    }
+
+    private void drawPieces(Graphics2D g) {
+        if (board == null) return;
+
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            for (int col = 0; col < BOARD_SIZE; col++) {
+                String piece = board[row][col];
+
+                // Don't draw the piece being dragged (it will be drawn separately)
+                if (piece != null && !(isDragging && row == dragSourceRow && col == dragSourceCol)) {
+                    BufferedImage sprite = renderer.getSprite(piece);
+                    if (sprite != null) {
+                        g.drawImage(sprite, xOffset + col * squareSize, yOffset + row * squareSize, null);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Overlay layer: all saved arrows
+     */
+    private void drawArrows(Graphics2D g) {
+        for (Arrow arrow : arrows) {
+            drawArrow(g, arrow.startRow, arrow.startCol, arrow.endRow, arrow.endCol, arrow.color);
+        }
+    }
+
+    private void initializeBoard() {
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            for (int j = 0; j < BOARD_SIZE; j++) {
+                board[i][j] = null;
+            }
+        }
+
+        for (int col = 0; col < BOARD_SIZE; col++) {
+            board[1][col] = "pawnB";
+            board[6][col] = "pawnW";
+        }
+
+        String[] backRow = {"rook", "knight", "bishop", "queen", "king", "bishop", "knight", "rook"};
+        for (int col = 0; col < BOARD_SIZE; col++) {
+            board[0][col] = backRow[col] + "B";
+            board[7][col] = backRow[col] + "W";
+        }
+        
+        // Reset king positions
+        whiteKingRow = 7;
+        whiteKingCol = 4;
+        blackKingRow = 0;
+        blackKingCol = 4;
+        
+        // Reset check status
+        isWhiteKingInCheck = false;
+        isBlackKingInCheck = false;
+        
+        // Reset en passant pawns
+        enPassantPawns.clear();
+        
+        // Reset arrows
+        arrows.clear();
+        
+        // Results still in flight belong to the previous game
+        rules.cancelAll();
+        gameNumber++;
+        
+        // Reset game state
+        state.resetGame();
+        
+        // Reset move history
+        moveHistoryPanel.clearHistory();
+        analysis.setPosition(state.getPosition());
+        if (claimDrawButton != null) {
+            updateClaimDrawButton();
+        }
+        
+        // Reset turn tracking
+        isWhiteTurn = true;
+        
+        // Debug the board state after initialization
+        System.out.println("Board initialized:");
+        for (int row = 0; row < BOARD_SIZE; row++) {
+            StringBuilder rowStr = new StringBuilder();
+            for (int col = 0; col < BOARD_SIZE; col++) {
+                rowStr.append(board[row][col] != null ? board[row][col] : ".").append("\t");
+            }
+            System.out.println(rowStr.toString());
+        }
+    }
+
+
+    public static void main(String[] args) {
+        // Tuned evaluation weights, if any, before the analysis engine first searches
+        evaluator.loadTunedParameters();
+        // Decode the piece sprites while the frame is being built
+        CompletableFuture<spriteAtlas> atlas = spriteAtlas.loadAsync();
+        SwingUtilities.invokeLater(() -> {
+            new chessBoard(atlas).setVisible(true);
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.programming.chess.gui;
+
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.HeadlessException;
+import java.awt.Rectangle;
+
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Collects dirty rectangles and repaints their union at most once per display refresh.
+ *
+ * High polling rate mice deliver far more drag events than the screen can show;
+ * instead of repainting the whole panel on each one, the regions touched between
+ * two frames are merged and repainted together on the next timer tick.
+ */
+class dirtyRegionRepainter {
+
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final JComponent component;
+    private final Timer timer;
+    private Rectangle dirty;
+
+    dirtyRegionRepainter(JComponent component) {
+        this.component = component;
+
+        int frameMillis = Math.max(1, 1000 / displayRefreshRate());
+        timer = new Timer(frameMillis, e -> flush());
+        timer.setInitialDelay(0);
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Marks a region as needing a repaint on the next frame
+     */
+    void addDirtyRegion(Rectangle region) {
+        if (region == null || region.isEmpty()) {
+            return;
+        }
+        if (dirty == null) {
+            dirty = new Rectangle(region);
+        } else {
+            dirty.add(region);
+        }
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Repaints everything right away, dropping any pending region
+     */
+    void repaintAll() {
+        dirty = null;
+        component.repaint();
+    }
+
+    private void flush() {
+        if (dirty == null) {
+            // Nothing happened since the last frame, stop ticking until the next event
+            timer.stop();
+            return;
+        }
+        component.repaint(dirty);
+        dirty = null;
+    }
+
+    private static int displayRefreshRate() {
+        try {
+            DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                                  .getDefaultScreenDevice()
+                                                  .getDisplayMode();
+            int rate = mode.getRefreshRate();
+            return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : rate;
+        } catch (HeadlessException e) {
+            return DEFAULT_REFRESH_RATE;
+        }
+    }
+}
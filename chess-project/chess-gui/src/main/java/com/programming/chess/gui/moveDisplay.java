@@ -0,0 +1,259 @@
+package com.programming.chess.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.border.TitledBorder;
+import javax.swing.table.AbstractTableModel;
+
+import com.programming.chess.rules.convertToSAN;
+
+/**
+ * Panel that displays the history of moves in standard algebraic notation.
+ *
+ * Moves are kept in an append-only model shown in a table with one row per move number.
+ * Adding a move only inserts or updates its own row, and the table paints just the rows
+ * in view, so very long or imported games stay cheap to show.
+ */
+public class moveDisplay extends JPanel {
+
+    /**
+     * Notified when the user clicks on a move in the list
+     */
+    public interface plySelectionListener {
+        /**
+         * @param ply Number of half-moves played in the selected position (1 = after White's first move)
+         */
+        void plySelected(int ply);
+    }
+
+    private final List<String> moveNotations = new ArrayList<>();
+    private final List<plySelectionListener> listeners = new ArrayList<>();
+    private final moveTableModel model = new moveTableModel();
+    private final JTable moveTable;
+
+    /**
+     * Table model over the notation list: row r holds moves 2r (White) and 2r + 1 (Black)
+     */
+    private class moveTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"#", "White", "Black"};
+
+        @Override
+        public int getRowCount() {
+            return (moveNotations.size() + 1) / 2;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0) {
+                return (row + 1) + ".";
+            }
+            int index = row * 2 + column - 1;
+            return index < moveNotations.size() ? moveNotations.get(index) : "";
+        }
+    }
+
+    /**
+     * Creates a new move history panel.
+     */
+    public moveDisplay() {
+        setLayout(new BorderLayout());
+        setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createEtchedBorder(),
+                "Move History",
+                TitledBorder.CENTER,
+                TitledBorder.TOP));
+
+        moveTable = new JTable(model);
+        moveTable.setFont(new Font("Monospaced", Font.PLAIN, 14));
+        moveTable.setRowHeight(20); // Fixed height lets the table compute visible rows without measuring
+        moveTable.setShowGrid(false);
+        moveTable.setFillsViewportHeight(true);
+        moveTable.setCellSelectionEnabled(true);
+        moveTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        moveTable.getTableHeader().setReorderingAllowed(false);
+        moveTable.getColumnModel().getColumn(0).setMaxWidth(45);
+
+        // Clicking a move jumps to the position after it
+        moveTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int row = moveTable.rowAtPoint(e.getPoint());
+                int column = moveTable.columnAtPoint(e.getPoint());
+                if (row < 0 || column < 1) {
+                    return;
+                }
+                int ply = row * 2 + column;
+                if (ply <= moveNotations.size()) {
+                    for (plySelectionListener listener : listeners) {
+                        listener.plySelected(ply);
+                    }
+                }
+            }
+        });
+
+        JScrollPane scrollPane = new JScrollPane(moveTable);
+        scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.setPreferredSize(new Dimension(150, 300));
+
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    /**
+     * Registers a listener for clicks on moves
+     */
+    public void addPlySelectionListener(plySelectionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Adds a move to the history and updates the display.
+     *
+     * @param notation The standard algebraic notation of the move (e.g., "e4", "Nf3")
+     * @param isWhiteMove True if it's a white move, false for black
+     */
+    public void addMove(String notation, boolean isWhiteMove) {
+        int index = moveNotations.size();
+        moveNotations.add(notation);
+
+        // A white move opens a new row, a black move fills in the last one
+        int row = index / 2;
+        if (index % 2 == 0) {
+            model.fireTableRowsInserted(row, row);
+        } else {
+            model.fireTableRowsUpdated(row, row);
+        }
+        selectPly(index + 1);
+    }
+
+    /**
+     * Appends a whole sequence of moves (e.g. an imported game) with a single model update.
+     *
+     * @param notations Moves in SAN, starting with the side to move after the current history
+     */
+    public void addMoves(List<String> notations) {
+        if (notations.isEmpty()) {
+            return;
+        }
+        int firstRow = moveNotations.size() / 2;
+        boolean firstRowExists = moveNotations.size() % 2 == 1;
+        moveNotations.addAll(notations);
+
+        if (firstRowExists) {
+            model.fireTableRowsUpdated(firstRow, firstRow);
+        }
+        int insertFrom = firstRowExists ? firstRow + 1 : firstRow;
+        int lastRow = model.getRowCount() - 1;
+        if (insertFrom <= lastRow) {
+            model.fireTableRowsInserted(insertFrom, lastRow);
+        }
+        selectPly(moveNotations.size());
+    }
+
+    /**
+     * Adds a move to the history using coordinates and board state.
+     *
+     * @param fromRow Starting row (0-7)
+     * @param fromCol Starting column (0-7)
+     * @param toRow Ending row (0-7)
+     * @param toCol Ending column (0-7)
+     * @param piece The piece being moved
+     * @param capturedPiece The captured piece, if any (null if none)
+     * @param isCastling Whether this is a castling move
+     * @param isEnPassant Whether this is an en passant capture
+     * @param boardState Current board state
+     * @param isWhiteMove True if it's white's move
+     * @param isCheck True if the move results in check
+     * @param isCheckMate True if the move results in checkmate
+     */
+    public void addMove(int fromRow, int fromCol, int toRow, int toCol, String piece,
+                       String capturedPiece, boolean isCastling, boolean isEnPassant,
+                       String[][] boardState, boolean isWhiteMove,
+                       boolean isCheck, boolean isCheckMate) {
+        String notation = convertToSAN.externalMoveToSAN(
+            fromRow, fromCol, toRow, toCol, piece, capturedPiece, isCastling, isEnPassant,
+            boardState, isCheck, isCheckMate);
+        addMove(notation, isWhiteMove);
+    }
+
+    /**
+     * Overloaded method for backward compatibility without en passant
+     */
+    public void addMove(int fromRow, int fromCol, int toRow, int toCol, String piece,
+                       String capturedPiece, boolean isCastling,
+                       String[][] boardState, boolean isWhiteMove,
+                       boolean isCheck, boolean isCheckMate) {
+        addMove(fromRow, fromCol, toRow, toCol, piece, capturedPiece, isCastling, false,
+              boardState, isWhiteMove, isCheck, isCheckMate);
+    }
+
+    /**
+     * Overloaded method for backward compatibility
+     */
+    public void addMove(int fromRow, int fromCol, int toRow, int toCol, String piece,
+                       String capturedPiece, boolean isCastling,
+                       String[][] boardState, boolean isWhiteMove) {
+        addMove(fromRow, fromCol, toRow, toCol, piece, capturedPiece, isCastling, false,
+              boardState, isWhiteMove, false, false);
+    }
+
+    /**
+     * Highlights the move that led to the given ply and scrolls it into view.
+     * Ply 0 (the starting position) clears the highlight.
+     */
+    public void selectPly(int ply) {
+        if (ply <= 0 || ply > moveNotations.size()) {
+            moveTable.clearSelection();
+            return;
+        }
+        int row = (ply - 1) / 2;
+        int column = (ply - 1) % 2 + 1;
+        moveTable.changeSelection(row, column, false, false); // Also scrolls the cell into view
+    }
+
+    /**
+     * @return The number of moves (plies) in the history
+     */
+    public int getMoveCount() {
+        return moveNotations.size();
+    }
+
+    /**
+     * Returns the notation of a move
+     * @param index Zero-based index of the move (0 = White's first move)
+     */
+    public String getMove(int index) {
+        return moveNotations.get(index);
+    }
+
+    /**
+     * Clears the move history.
+     */
+    public void clearHistory() {
+        int rows = model.getRowCount();
+        moveNotations.clear();
+        if (rows > 0) {
+            model.fireTableRowsDeleted(0, rows - 1);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.programming.chess.gui;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs rules work (status evaluation, notation, legal targets) away from the Swing event thread.
+ *
+ * Jobs run one at a time, in submission order, on a virtual thread, and their results are
+ * handed back on the event thread. Each job belongs to a generation; starting a new generation
+ * (the user made another move, or the game was reset) makes every older job stale. Stale jobs
+ * can ask {@link #isStale(long)} to skip expensive work, and callers check it again before
+ * applying a published result.
+ */
+class rulesWorker {
+
+    private final ExecutorService executor =
+        Executors.newSingleThreadExecutor(Thread.ofVirtual().name("rules-worker").factory());
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> pending;
+
+    /**
+     * Starts a new generation, marking all earlier jobs as stale
+     * @return The id of the new generation
+     */
+    long newGeneration() {
+        return generation.incrementAndGet();
+    }
+
+    /**
+     * @return true if a newer generation has been started since the given one
+     */
+    boolean isStale(long jobGeneration) {
+        return jobGeneration != generation.get();
+    }
+
+    /**
+     * Runs the work in the background and passes its result to the callback on the event thread.
+     * Jobs are never dropped from the queue, so results are published in submission order;
+     * it is up to the job and the callback to skip what is stale. If the work fails, the
+     * fallback is computed on the event thread instead, so the callback still runs.
+     */
+    <T> void submit(Callable<T> work, Consumer<T> onResult, Supplier<T> fallback) {
+        pending = executor.submit(() -> {
+            T result;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                System.err.println("Background rules job failed: " + e);
+                SwingUtilities.invokeLater(() -> {
+                    T recovered;
+                    try {
+                        recovered = fallback.get();
+                    } catch (RuntimeException again) {
+                        System.err.println("Fallback for a failed rules job failed too: " + again);
+                        return;
+                    }
+                    onResult.accept(recovered);
+                });
+                return;
+            }
+            SwingUtilities.invokeLater(() -> onResult.accept(result));
+        });
+    }
+
+    /**
+     * Invalidates every job and interrupts the one that is running, if any
+     */
+    void cancelAll() {
+        newGeneration();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.programming.chess.gui;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+import javax.imageio.ImageIO;
+
+/**
+ * All twelve piece images packed into a single PNG.
+ *
+ * The atlas is a grid of 6 columns (pawn, knight, bishop, rook, queen, king) by
+ * 2 rows (white, black), the same order as the bitboard piece codes, so no separate
+ * layout file is needed: the cell size is the image width / 6.
+ */
+class spriteAtlas {
+
+    static final String RESOURCE = "/pieces/atlas.png";
+    static final String[] PIECE_TYPES = {"pawn", "knight", "bishop", "rook", "queen", "king"};
+    static final String[] COLORS = {"W", "B"};
+
+    private final BufferedImage image;
+    private final int cellSize;
+    private final long decodeNanos;
+
+    private spriteAtlas(BufferedImage image, long decodeNanos) {
+        this.image = image;
+        this.cellSize = image.getWidth() / PIECE_TYPES.length;
+        this.decodeNanos = decodeNanos;
+    }
+
+    /**
+     * Decodes the atlas resource on a background thread
+     */
+    static CompletableFuture<spriteAtlas> loadAsync() {
+        CompletableFuture<spriteAtlas> future = new CompletableFuture<>();
+        Thread loader = new Thread(() -> {
+            try {
+                future.complete(load());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }, "sprite-atlas-loader");
+        loader.setDaemon(true);
+        loader.start();
+        return future;
+    }
+
+    static spriteAtlas load() throws IOException {
+        long start = System.nanoTime();
+        try (InputStream in = spriteAtlas.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Sprite atlas " + RESOURCE + " not found on the classpath");
+            }
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Sprite atlas " + RESOURCE + " is not a readable image");
+            }
+            return new spriteAtlas(image, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns the cell of a piece, e.g. "knightW", or null for an unknown name.
+     * The returned image shares its pixels with the atlas.
+     */
+    BufferedImage getPiece(String piece) {
+        for (int type = 0; type < PIECE_TYPES.length; type++) {
+            if (piece.startsWith(PIECE_TYPES[type]) && piece.length() == PIECE_TYPES[type].length() + 1) {
+                int color = piece.endsWith("B") ? 1 : 0;
+                return image.getSubimage(type * cellSize, color * cellSize, cellSize, cellSize);
+            }
+        }
+        return null;
+    }
+
+    long getDecodeNanos() {
+        return decodeNanos;
+    }
+
+    /**
+     * Packs the individual piece images (pawnW.png ... kingB.png) of a directory into an atlas.
+     * Usage: spriteAtlas &lt;piece directory&gt; &lt;atlas.png&gt;
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: spriteAtlas <piece directory> <atlas.png>");
+            System.exit(1);
+        }
+
+        BufferedImage[][] cells = new BufferedImage[COLORS.length][PIECE_TYPES.length];
+        int cellSize = 0;
+        for (int color = 0; color < COLORS.length; color++) {
+            for (int type = 0; type < PIECE_TYPES.length; type++) {
+                File file = new File(args[0], PIECE_TYPES[type] + COLORS[color] + ".png");
+                BufferedImage cell = ImageIO.read(file);
+                if (cell == null) {
+                    throw new IOException("Cannot read " + file);
+                }
+                cells[color][type] = cell;
+                cellSize = Math.max(cellSize, Math.max(cell.getWidth(), cell.getHeight()));
+            }
+        }
+
+        BufferedImage atlas = new BufferedImage(cellSize * PIECE_TYPES.length, cellSize * COLORS.length,
+                                                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        for (int color = 0; color < COLORS.length; color++) {
+            for (int type = 0; type < PIECE_TYPES.length; type++) {
+                BufferedImage cell = cells[color][type];
+                // Center smaller images in their cell
+                g.drawImage(cell, type * cellSize + (cellSize - cell.getWidth()) / 2,
+                            color * cellSize + (cellSize - cell.getHeight()) / 2, null);
+            }
+        }
+        g.dispose();
+
+        ImageIO.write(atlas, "png", new File(args[1]));
+        System.out.println("Wrote " + args[1] + ": " + atlas.getWidth() + "x" + atlas.getHeight() +
+                           ", " + cellSize + "px cells");
+    }
+}
@@ -0,0 +1,141 @@
+package com.programming.chess.storage;
+
+import com.programming.chess.rules.moveEncoding;
+
+/**
+ * Open-addressing hash map from (position hash, move) to opening statistics, kept in
+ * parallel primitive arrays so millions of edges cost no objects and no boxing.
+ * A slot whose move is moveEncoding.NONE is empty. Not thread-safe: every builder thread
+ * fills its own map and the maps are merged afterwards.
+ */
+class explorerMap {
+
+    private static final float MAX_LOAD = 0.6f;
+
+    long[] hashes;
+    int[] moves;
+    int[] games;
+    int[] whiteWins;
+    int[] draws;
+    int[] blackWins;
+    long[] ratingSum;
+    int[] ratedGames;
+    private int size;
+    private int mask;
+
+    explorerMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / MAX_LOAD)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        moves = new int[capacity];
+        games = new int[capacity];
+        whiteWins = new int[capacity];
+        draws = new int[capacity];
+        blackWins = new int[capacity];
+        ratingSum = new long[capacity];
+        ratedGames = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return moves.length;
+    }
+
+    /**
+     * Counts one game that played a move from a position
+     * @param rating Average rating of the two players, or 0 if unknown
+     */
+    void add(long hash, int move, int result, int rating) {
+        int slot = slotFor(hash, move);
+        games[slot]++;
+        switch (result) {
+            case gameJournal.RESULT_WHITE_WINS -> whiteWins[slot]++;
+            case gameJournal.RESULT_BLACK_WINS -> blackWins[slot]++;
+            case gameJournal.RESULT_DRAW -> draws[slot]++;
+            default -> { }
+        }
+        if (rating > 0) {
+            ratingSum[slot] += rating;
+            ratedGames[slot]++;
+        }
+    }
+
+    /**
+     * Adds every edge of another map into this one
+     */
+    void merge(explorerMap other) {
+        for (int i = 0; i < other.moves.length; i++) {
+            if (other.moves[i] != moveEncoding.NONE) {
+                int slot = slotFor(other.hashes[i], other.moves[i]);
+                games[slot] += other.games[i];
+                whiteWins[slot] += other.whiteWins[i];
+                draws[slot] += other.draws[i];
+                blackWins[slot] += other.blackWins[i];
+                ratingSum[slot] += other.ratingSum[i];
+                ratedGames[slot] += other.ratedGames[i];
+            }
+        }
+    }
+
+    /**
+     * @return The slot holding this edge, claiming an empty one if it is new
+     */
+    private int slotFor(long hash, int move) {
+        int slot = index(hash, move);
+        while (moves[slot] != moveEncoding.NONE) {
+            if (moves[slot] == move && hashes[slot] == hash) {
+                return slot;
+            }
+            slot = slot + 1 & mask;
+        }
+        if (size + 1 > moves.length * MAX_LOAD) {
+            grow();
+            return slotFor(hash, move);
+        }
+        hashes[slot] = hash;
+        moves[slot] = move;
+        size++;
+        return slot;
+    }
+
+    private int index(long hash, int move) {
+        long mixed = (hash ^ move * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        return (int) (mixed >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldHashes = hashes;
+        int[] oldMoves = moves;
+        int[] oldGames = games;
+        int[] oldWhiteWins = whiteWins;
+        int[] oldDraws = draws;
+        int[] oldBlackWins = blackWins;
+        long[] oldRatingSum = ratingSum;
+        int[] oldRatedGames = ratedGames;
+
+        allocate(oldMoves.length * 2);
+        for (int i = 0; i < oldMoves.length; i++) {
+            if (oldMoves[i] != moveEncoding.NONE) {
+                int slot = index(oldHashes[i], oldMoves[i]);
+                while (moves[slot] != moveEncoding.NONE) {
+                    slot = slot + 1 & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                moves[slot] = oldMoves[i];
+                games[slot] = oldGames[i];
+                whiteWins[slot] = oldWhiteWins[i];
+                draws[slot] = oldDraws[i];
+                blackWins[slot] = oldBlackWins[i];
+                ratingSum[slot] = oldRatingSum[i];
+                ratedGames[slot] = oldRatedGames[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package com.programming.chess.storage;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.programming.chess.rules.moveGenerator;
+import com.programming.chess.rules.position;
+
+/**
+ * Compact, memory-mapped archive of finished games.
+ *
+ * Data file: a 32-byte header, the game records, then a dictionary holding every distinct
+ * tag name and value once. A game record is
+ *   varint tag count, (varint name id, varint value id) per tag,
+ *   result byte (gameJournal RESULT_ codes), varint ply count,
+ *   one byte per ply: the move's index in moveGenerator.generateLegalMoves order.
+ * A position never has more than 218 legal moves, so every move fits in a byte.
+ * A "FEN" tag gives the starting position, as in PGN.
+ *
+ * Index file (archive name + ".idx"): a 16-byte header and one long offset per game plus
+ * the end offset, so game n is found with a single lookup.
+ *
+ * The reader maps the data file in overlapping 1 GB windows (each extends MAX_GAME_BYTES
+ * past its end) so no game ever straddles two mappings. Reading is thread-safe; every
+ * thread uses its own {@link Game} to receive the decoded games.
+ */
+public class gameArchive implements AutoCloseable {
+
+    private static final int MAGIC = 0x43484741;        // "CHGA"
+    private static final int INDEX_MAGIC = 0x43484749;  // "CHGI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int INDEX_HEADER_BYTES = 16;
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    public static final int MAX_GAME_BYTES = 1 << 20;
+    public static final String FEN_TAG = "FEN";
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+    private final LongBuffer offsets;
+    private final int gameCount;
+    private final String[] strings;
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final int fenId;
+
+    private gameArchive(Path archive) throws IOException {
+        channel = FileChannel.open(archive, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException(archive + " is not a game archive");
+        }
+        if (header.getInt() != VERSION) {
+            throw new IOException(archive + " has an unsupported version");
+        }
+        long games = header.getLong();
+        long dictionaryOffset = header.getLong();
+        int dictionarySize = header.getInt();
+        gameCount = Math.toIntExact(games);
+
+        long size = channel.size();
+        windows = new MappedByteBuffer[(int) ((size + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+        for (int w = 0; w < windows.length; w++) {
+            long start = w * WINDOW_BYTES;
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                     Math.min(size - start, WINDOW_BYTES + MAX_GAME_BYTES));
+        }
+
+        try (FileChannel indexChannel = FileChannel.open(indexPath(archive), StandardOpenOption.READ)) {
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            if (index.getInt(0) != INDEX_MAGIC || index.getLong(8) != games) {
+                throw new IOException(indexPath(archive) + " does not belong to " + archive);
+            }
+            offsets = index.position(INDEX_HEADER_BYTES).slice().asLongBuffer();
+        }
+
+        // The dictionary is small; decode it onto the heap once
+        strings = new String[dictionarySize];
+        int[] cursor = new int[1];
+        for (int i = 0; i < dictionarySize; i++) {
+            ByteBuffer window = windowFor(dictionaryOffset, cursor);
+            int entryStart = cursor[0];
+            int length = readVarint(window, cursor);
+            byte[] bytes = new byte[length];
+            window.get(cursor[0], bytes);
+            dictionaryOffset += cursor[0] - entryStart + length;
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            stringIds.put(strings[i], i);
+        }
+        fenId = stringId(FEN_TAG);
+    }
+
+    /**
+     * Opens an archive and its index for reading
+     */
+    public static gameArchive open(Path archive) throws IOException {
+        return new gameArchive(archive);
+    }
+
+    /**
+     * @return The path of the offset index belonging to an archive
+     */
+    public static Path indexPath(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + ".idx");
+    }
+
+    // READING
+
+    /**
+     * A decoded game. Reuse one instance per thread when scanning to avoid garbage.
+     */
+    public static class Game {
+        public int id;
+        public int result;
+        private gameArchive archive;
+        private int tagCount;
+        private int[] tagNames = new int[16];
+        private int[] tagValues = new int[16];
+        private int plyCount;
+        private int[] moves = new int[256];
+        private long[] hashes = new long[257];
+        private final int[] legal = new int[moveGenerator.MAX_MOVES];
+        private final int[] cursor = new int[1];
+        private final position start = position.startPosition();
+
+        public int getPlyCount() {
+            return plyCount;
+        }
+
+        public int getMove(int ply) {
+            return moves[ply];
+        }
+
+        /**
+         * @return The hash of the position after the given number of plies (0 = start)
+         */
+        public long getHash(int ply) {
+            return hashes[ply];
+        }
+
+        public int getTagCount() {
+            return tagCount;
+        }
+
+        public String getTagName(int index) {
+            return archive.strings[tagNames[index]];
+        }
+
+        public String getTagValue(int index) {
+            return archive.strings[tagValues[index]];
+        }
+
+        /**
+         * @return The value of a tag, or null if the game does not have it
+         */
+        public String getTag(String name) {
+            return getTagById(archive.stringId(name));
+        }
+
+        /**
+         * @return The starting position of the game, or null for the standard one
+         */
+        public String getStartFen() {
+            return archive.fenId < 0 ? null : getTagById(archive.fenId);
+        }
+
+        private String getTagById(int nameId) {
+            for (int i = 0; i < tagCount; i++) {
+                if (tagNames[i] == nameId) {
+                    return archive.strings[tagValues[i]];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return A fresh position after the given number of plies
+         */
+        public position positionAt(int ply) {
+            String fen = getStartFen();
+            position pos = fen == null ? position.startPosition() : position.fromFen(fen);
+            for (int i = 0; i < ply; i++) {
+                pos.makeMove(moves[i]);
+            }
+            return pos;
+        }
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * @return The dictionary id of a string, or -1 if no game uses it
+     */
+    public int stringId(String value) {
+        Integer id = stringIds.get(value);
+        return id == null ? -1 : id;
+    }
+
+    public String getString(int id) {
+        return strings[id];
+    }
+
+    /**
+     * @return Size of a game's record in bytes
+     */
+    public long getGameBytes(int id) {
+        return offsets.get(id + 1) - offsets.get(id);
+    }
+
+    /**
+     * Reads a game's tags and result without decoding its moves
+     */
+    public void readHeader(int id, Game game) {
+        ByteBuffer window = windowFor(offsets.get(id), game.cursor);
+        readTags(id, window, game);
+        game.plyCount = 0;
+    }
+
+    /**
+     * Reads a game completely, replaying its moves to decode them
+     */
+    public void read(int id, Game game) {
+        ByteBuffer window = windowFor(offsets.get(id), game.cursor);
+        readTags(id, window, game);
+
+        int plies = readVarint(window, game.cursor);
+        if (plies >= game.moves.length) {
+            game.moves = new int[plies + 64];
+            game.hashes = new long[plies + 65];
+        }
+
+        String fen = fenId < 0 ? null : game.getTagById(fenId);
+        position pos = fen == null ? game.start : position.fromFen(fen);
+        int p = game.cursor[0];
+        game.hashes[0] = pos.getHash();
+        for (int ply = 0; ply < plies; ply++) {
+            moveGenerator.generateLegalMoves(pos, game.legal);
+            int move = game.legal[window.get(p + ply) & 0xFF];
+            game.moves[ply] = move;
+            pos.makeMove(move);
+            game.hashes[ply + 1] = pos.getHash();
+        }
+        game.plyCount = plies;
+
+        // Rewind the shared start position instead of allocating a new one per game
+        if (pos == game.start) {
+            for (int ply = 0; ply < plies; ply++) {
+                pos.unmakeMove();
+            }
+        }
+    }
+
+    /**
+     * Reads games [from, to) in file order, handing each one to the visitor.
+     * The same Game instance is passed every time.
+     */
+    public void scan(int from, int to, Consumer<Game> visitor) {
+        Game game = new Game();
+        for (int id = from; id < to; id++) {
+            read(id, game);
+            visitor.accept(game);
+        }
+    }
+
+    private void readTags(int id, ByteBuffer window, Game game) {
+        game.archive = this;
+        game.id = id;
+        int tags = readVarint(window, game.cursor);
+        if (tags > game.tagNames.length) {
+            game.tagNames = new int[tags];
+            game.tagValues = new int[tags];
+        }
+        for (int i = 0; i < tags; i++) {
+            game.tagNames[i] = readVarint(window, game.cursor);
+            game.tagValues[i] = readVarint(window, game.cursor);
+        }
+        game.tagCount = tags;
+        game.result = window.get(game.cursor[0]++);
+    }
+
+    private ByteBuffer windowFor(long offset, int[] cursor) {
+        int w = (int) (offset / WINDOW_BYTES);
+        cursor[0] = (int) (offset - w * WINDOW_BYTES);
+        return windows[w];
+    }
+
+    private static int readVarint(ByteBuffer buffer, int[] cursor) {
+        int p = cursor[0];
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(p++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        cursor[0] = p;
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // WRITING
+
+    /**
+     * Appends games to a new archive. Not thread-safe.
+     */
+    public static class Writer implements AutoCloseable {
+        private final FileChannel data;
+        private final FileChannel index;
+        private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(1 << 20);
+        private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(1 << 16);
+        private final ByteBuffer record = ByteBuffer.allocate(MAX_GAME_BYTES);
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final int[] legal = new int[moveGenerator.MAX_MOVES];
+        private long offset = HEADER_BYTES;
+        private int gameCount;
+
+        private Writer(Path archive) throws IOException {
+            data = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+            index = FileChannel.open(indexPath(archive), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                     StandardOpenOption.TRUNCATE_EXISTING);
+            // Headers are filled in on close, once the counts are known
+            data.position(HEADER_BYTES);
+            index.position(INDEX_HEADER_BYTES);
+        }
+
+        /**
+         * Creates an archive, replacing any existing one at the same path
+         */
+        public static Writer create(Path archive) throws IOException {
+            return new Writer(archive);
+        }
+
+        /**
+         * Appends a game
+         *
+         * @param tags PGN-style tags in the order to store them; a "FEN" tag sets the start position
+         * @param result One of the gameJournal RESULT_ codes
+         * @param moves Encoded moves, each legal in the position it is played from
+         * @return The game's id
+         */
+        public int addGame(Map<String, String> tags, int result, int[] moves, int moveCount) throws IOException {
+            record.clear();
+            try {
+                putVarint(record, tags.size());
+                for (Map.Entry<String, String> tag : tags.entrySet()) {
+                    putVarint(record, intern(tag.getKey()));
+                    putVarint(record, intern(tag.getValue()));
+                }
+                record.put((byte) result);
+                putVarint(record, moveCount);
+
+                String fen = tags.get(FEN_TAG);
+                position pos = fen == null ? position.startPosition() : position.fromFen(fen);
+                for (int ply = 0; ply < moveCount; ply++) {
+                    int count = moveGenerator.generateLegalMoves(pos, legal);
+                    int moveIndex = 0;
+                    while (moveIndex < count && legal[moveIndex] != moves[ply]) {
+                        moveIndex++;
+                    }
+                    if (moveIndex == count) {
+                        throw new IllegalArgumentException("Illegal move at ply " + ply + " of game " + gameCount);
+                    }
+                    record.put((byte) moveIndex);
+                    pos.makeMove(moves[ply]);
+                }
+            } catch (BufferOverflowException e) {
+                throw new IllegalArgumentException("Game " + gameCount + " exceeds " + MAX_GAME_BYTES + " bytes");
+            }
+            record.flip();
+
+            putOffset(offset);
+            offset += record.remaining();
+            if (dataBuffer.remaining() < record.remaining()) {
+                drain(data, dataBuffer);
+            }
+            if (record.remaining() > dataBuffer.capacity()) {
+                while (record.hasRemaining()) {
+                    data.write(record);
+                }
+            } else {
+                dataBuffer.put(record);
+            }
+            return gameCount++;
+        }
+
+        public int getGameCount() {
+            return gameCount;
+        }
+
+        private int intern(String value) {
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                // Dictionary entries must fit in the overlap between mapped windows
+                if (value.length() > MAX_GAME_BYTES / 4) {
+                    throw new IllegalArgumentException("Tag text longer than " + MAX_GAME_BYTES / 4 + " characters");
+                }
+                id = strings.size();
+                dictionary.put(value, id);
+                strings.add(value);
+            }
+            return id;
+        }
+
+        private void putOffset(long value) throws IOException {
+            if (indexBuffer.remaining() < Long.BYTES) {
+                drain(index, indexBuffer);
+            }
+            indexBuffer.putLong(value);
+        }
+
+        /**
+         * Writes the dictionary, index and headers and closes both files
+         */
+        @Override
+        public void close() throws IOException {
+            try (data; index) {
+                putOffset(offset);
+                drain(index, indexBuffer);
+
+                long dictionaryOffset = offset;
+                for (String value : strings) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    if (dataBuffer.remaining() < bytes.length + 5) {
+                        drain(data, dataBuffer);
+                    }
+                    putVarint(dataBuffer, bytes.length);
+                    dataBuffer.put(bytes);
+                }
+                drain(data, dataBuffer);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(gameCount).putLong(dictionaryOffset)
+                      .putInt(strings.size()).putInt(0).flip();
+                data.write(header, 0);
+                ByteBuffer indexHeader = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+                indexHeader.putInt(INDEX_MAGIC).putInt(VERSION).putLong(gameCount).flip();
+                index.write(indexHeader, 0);
+
+                data.force(true);
+                index.force(true);
+            }
+        }
+
+        private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private static void putVarint(ByteBuffer buffer, int value) {
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+    }
+
+    /**
+     * Writes random games to an archive, then measures random access and sequential scans.
+     * Usage: gameArchive [archive file] [games] [max plies] [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        Path archive = args.length > 0 ? Path.of(args[0]) : Files.createTempFile("games", ".cga");
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : 80;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("Generating %,d games of up to %d plies...%n", games, plies);
+        randomGames sample = new randomGames(games, plies, 11);
+        String[] resultNames = {"*", "1-0", "0-1", "1/2-1/2"};
+
+        long start = System.nanoTime();
+        try (Writer writer = Writer.create(archive)) {
+            Map<String, String> tags = new LinkedHashMap<>();
+            for (int g = 0; g < games; g++) {
+                tags.clear();
+                tags.put("Event", "Bench " + (g / 1000));
+                tags.put("White", "Player " + (g * 31 % 997));
+                tags.put("Black", "Player " + (g * 17 % 991));
+                tags.put("WhiteElo", Integer.toString(sample.whiteElo[g]));
+                tags.put("BlackElo", Integer.toString(sample.blackElo[g]));
+                tags.put("Result", resultNames[sample.results[g]]);
+                writer.addGame(tags, sample.results[g], sample.moves[g], sample.moves[g].length);
+            }
+        }
+        long writeNanos = System.nanoTime() - start;
+        long dataBytes = Files.size(archive);
+        long indexBytes = Files.size(indexPath(archive));
+        System.out.printf("Wrote %,d games (%,d moves) in %.2f s: %,d bytes + %,d index bytes, %.1f bytes per game, %.2f per move%n",
+                          games, sample.totalMoves, writeNanos / 1e9, dataBytes, indexBytes,
+                          (double) dataBytes / games, (double) dataBytes / sample.totalMoves);
+
+        try (gameArchive reader = open(archive)) {
+            // Random access: jump straight to a game through the index
+            Random random = new Random(3);
+            Game game = new Game();
+            int lookups = Math.min(games, 100_000);
+            int mismatches = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                int id = random.nextInt(games);
+                reader.read(id, game);
+                if (game.getHash(game.getPlyCount()) != sample.finalHashes[id]) {
+                    mismatches++;
+                }
+            }
+            long randomNanos = System.nanoTime() - start;
+            System.out.printf("Random access: %.2f us per game including move decoding, %d mismatches%n",
+                              randomNanos / 1e3 / lookups, mismatches);
+
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                reader.readHeader(random.nextInt(games), game);
+            }
+            System.out.printf("Random access: %.0f ns per game for tags only%n",
+                              (double) (System.nanoTime() - start) / lookups);
+
+            // Sequential scans, single-threaded and split across threads
+            for (int t : new int[] {1, threads}) {
+                AtomicLong plyTotal = new AtomicLong();
+                AtomicLong bad = new AtomicLong();
+                Thread[] workers = new Thread[t];
+                start = System.nanoTime();
+                for (int w = 0; w < t; w++) {
+                    int from = (int) ((long) games * w / t);
+                    int to = (int) ((long) games * (w + 1) / t);
+                    workers[w] = new Thread(() -> {
+                        long[] local = new long[2];
+                        reader.scan(from, to, g -> {
+                            local[0] += g.getPlyCount();
+                            if (g.getHash(g.getPlyCount()) != sample.finalHashes[g.id]) {
+                                local[1]++;
+                            }
+                        });
+                        plyTotal.addAndGet(local[0]);
+                        bad.addAndGet(local[1]);
+                    });
+                    workers[w].start();
+                }
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Scan with %d thread(s): %,.0f games/s, %,.0f moves/s, %.1f MB/s, %d mismatches%n",
+                                  t, games / seconds, plyTotal.get() / seconds, dataBytes / seconds / 1e6, bad.get());
+            }
+
+            reader.readHeader(games - 1, game);
+            StringBuilder tags = new StringBuilder();
+            for (int i = 0; i < game.getTagCount(); i++) {
+                tags.append(' ').append(game.getTagName(i)).append('=').append(game.getTagValue(i));
+            }
+            System.out.println("Last game:" + tags + " (result code " + game.result + ")");
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package com.programming.chess.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import com.programming.chess.rules.moveEncoding;
+import com.programming.chess.rules.position;
+import com.programming.chess.rules.positionSnapshot;
+
+/**
+ * Append-only journal of game events (start, move, end) shared by any number of games.
+ *
+ * Appends only copy an 8-byte record into an in-memory buffer. A background thread
+ * writes whatever has accumulated as one batch and fsyncs it (group commit), so a
+ * single fsync covers every move made by every game during that window. Callers that
+ * need durability before acknowledging a move wait on the sequence number returned by
+ * the append.
+ *
+ * On disk the journal is a series of segment files. Each starts with a magic number and
+ * holds batches of [magic, payload length, CRC32C] followed by the records. Recovery
+ * memory-maps the segments, stops at the first batch that is incomplete or fails its
+ * checksum (a write torn by the crash), and replays every game in parallel.
+ *
+ * Record: int game id, then an int whose top byte is the record type and low 24 bits the
+ * payload: the encoded move, the result, or the length of a start FEN that follows.
+ */
+public class gameJournal implements AutoCloseable {
+
+    public static final int RESULT_UNKNOWN = 0;
+    public static final int RESULT_WHITE_WINS = 1;
+    public static final int RESULT_BLACK_WINS = 2;
+    public static final int RESULT_DRAW = 3;
+
+    static final int TYPE_START = 1;
+    static final int TYPE_MOVE = 2;
+    static final int TYPE_END = 3;
+
+    private static final int SEGMENT_MAGIC = 0x43484A31;  // "CHJ1"
+    private static final int BATCH_MAGIC = 0x43484A42;    // "CHJB"
+    private static final int BATCH_HEADER_BYTES = 12;
+    private static final int RECORD_BYTES = 8;
+    static final long SEGMENT_BYTES = 256L << 20;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long commitWindowNanos;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private ByteBuffer pending = newBuffer(1 << 16);
+    private long appendedRecords;
+    private long durableRecords;
+    private IOException failure;
+    private boolean closed;
+
+    // Flusher thread only
+    private ByteBuffer writing = newBuffer(1 << 16);
+    private final ByteBuffer header = newBuffer(BATCH_HEADER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+    private int segmentIndex;
+    private long segmentBytes;
+    private long batches;
+    private long bytesWritten;
+    private long syncNanos;
+
+    private final Thread flusher;
+
+    private gameJournal(Path directory, long commitWindowMicros) throws IOException {
+        this.directory = directory;
+        this.commitWindowNanos = commitWindowMicros * 1000;
+        Files.createDirectories(directory);
+
+        // Never append after a possibly torn tail: always continue in a fresh segment
+        List<Path> existing = segments(directory);
+        segmentIndex = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+        openSegment();
+
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Opens a journal in a directory, creating it if needed
+     * @param commitWindowMicros How long the flusher waits for more records before each fsync
+     */
+    public static gameJournal open(Path directory, long commitWindowMicros) throws IOException {
+        return new gameJournal(directory, commitWindowMicros);
+    }
+
+    // APPENDING
+
+    /**
+     * Records the start of a game
+     * @param startFen The starting position, or null for the standard one
+     * @return Sequence number to pass to awaitDurable
+     */
+    public long startGame(int gameId, String startFen) throws IOException {
+        byte[] fen = startFen == null ? new byte[0] : startFen.getBytes(StandardCharsets.US_ASCII);
+        synchronized (lock) {
+            ensureOpen();
+            ensureCapacity(RECORD_BYTES + fen.length);
+            pending.putInt(gameId).putInt(TYPE_START << 24 | fen.length).put(fen);
+            return recordAppended();
+        }
+    }
+
+    /**
+     * Records a move, as produced by the move generator
+     * @return Sequence number to pass to awaitDurable
+     */
+    public long appendMove(int gameId, int move) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            ensureCapacity(RECORD_BYTES);
+            pending.putInt(gameId).putInt(TYPE_MOVE << 24 | (move & 0xFFFFFF));
+            return recordAppended();
+        }
+    }
+
+    /**
+     * Records the end of a game with one of the RESULT_ codes
+     * @return Sequence number to pass to awaitDurable
+     */
+    public long endGame(int gameId, int result) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            ensureCapacity(RECORD_BYTES);
+            pending.putInt(gameId).putInt(TYPE_END << 24 | (result & 0xFFFFFF));
+            return recordAppended();
+        }
+    }
+
+    private long recordAppended() {
+        if (appendedRecords == durableRecords) {
+            lock.notifyAll(); // The flusher may be idle
+        }
+        return ++appendedRecords;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = newBuffer(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    /**
+     * Blocks until every record up to the given sequence number is on disk
+     */
+    public void awaitDurable(long sequence) throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (durableRecords < sequence && failure == null) {
+                lock.wait();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Blocks until everything appended so far is on disk
+     */
+    public void sync() throws IOException, InterruptedException {
+        long sequence;
+        synchronized (lock) {
+            sequence = appendedRecords;
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Writes out everything still pending and closes the journal
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // GROUP COMMIT
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                long batchEnd;
+                synchronized (lock) {
+                    while (pending.position() == 0 && !closed) {
+                        lock.wait();
+                    }
+                    if (pending.position() == 0) {
+                        return; // Closed and drained
+                    }
+                }
+
+                // Let more records join this batch, unless we are shutting down
+                if (commitWindowNanos > 0 && !closed) {
+                    Thread.sleep(commitWindowNanos / 1_000_000, (int) (commitWindowNanos % 1_000_000));
+                }
+
+                synchronized (lock) {
+                    ByteBuffer full = pending;
+                    pending = writing;
+                    writing = full;
+                    batchEnd = appendedRecords;
+                }
+
+                writeBatch(writing);
+                writing.clear();
+
+                synchronized (lock) {
+                    durableRecords = batchEnd;
+                    lock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                failure = e;
+                lock.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatch(ByteBuffer records) throws IOException {
+        records.flip();
+        int length = records.remaining();
+        if (segmentBytes + BATCH_HEADER_BYTES + length > SEGMENT_BYTES && segmentBytes > 4) {
+            channel.close();
+            segmentIndex++;
+            openSegment();
+        }
+
+        crc.reset();
+        crc.update(records.duplicate());
+        header.clear();
+        header.putInt(BATCH_MAGIC).putInt(length).putInt((int) crc.getValue()).flip();
+
+        ByteBuffer[] parts = {header, records};
+        while (header.hasRemaining() || records.hasRemaining()) {
+            channel.write(parts);
+        }
+        long start = System.nanoTime();
+        channel.force(false);
+        syncNanos += System.nanoTime() - start;
+
+        segmentBytes += BATCH_HEADER_BYTES + length;
+        bytesWritten += BATCH_HEADER_BYTES + length;
+        batches++;
+    }
+
+    private void openSegment() throws IOException {
+        Path file = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer magic = newBuffer(4).putInt(SEGMENT_MAGIC).flip();
+        while (magic.hasRemaining()) {
+            channel.write(magic);
+        }
+        channel.force(true); // Make the new file itself durable
+        segmentBytes = 4;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getSyncNanos() {
+        return syncNanos;
+    }
+
+    // RECOVERY
+
+    /**
+     * One game rebuilt from the journal
+     */
+    public static class Game {
+        public final int id;
+        public String startFen;      // null for the standard starting position
+        public int result = RESULT_UNKNOWN;
+        public boolean ended;
+        public boolean corrupt;      // a move did not fit the replayed position
+        public positionSnapshot finalPosition;
+        private int[] moves = new int[64];
+        private int moveCount;
+
+        Game(int id) {
+            this.id = id;
+        }
+
+        void addMove(int move) {
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            }
+            moves[moveCount++] = move;
+        }
+
+        public int getMoveCount() {
+            return moveCount;
+        }
+
+        public int getMove(int index) {
+            return moves[index];
+        }
+
+        /**
+         * Replays the moves and keeps the final position as a compact snapshot.
+         * Moves are only sanity-checked (a piece of the side to move stands on the
+         * origin square); the journal's checksums already guard against corruption.
+         */
+        void replay() {
+            position pos = startFen == null ? position.startPosition() : position.fromFen(startFen);
+            for (int i = 0; i < moveCount; i++) {
+                int piece = pos.pieceAt(moveEncoding.from(moves[i]));
+                if (piece == position.EMPTY || piece / 6 != pos.getSideToMove()) {
+                    corrupt = true;
+                    moveCount = i;
+                    break;
+                }
+                pos.makeMove(moves[i]);
+            }
+            finalPosition = positionSnapshot.of(pos);
+        }
+
+        /**
+         * @return The position after the last recovered move
+         */
+        public position toPosition() {
+            return finalPosition.toPosition();
+        }
+    }
+
+    /**
+     * Everything recovered from a journal directory
+     */
+    public static class Recovery {
+        public final Map<Integer, Game> games = new HashMap<>();
+        public long records;
+        public long batches;
+        public long truncatedBytes;  // bytes after the last valid batch, lost in the crash
+        public long readMillis;
+        public long replayMillis;
+    }
+
+    /**
+     * Reads every segment of a journal and replays all games found in it
+     */
+    public static Recovery recover(Path directory) throws IOException {
+        Recovery recovery = new Recovery();
+        long start = System.nanoTime();
+        CRC32C checksum = new CRC32C();
+
+        for (Path segment : segments(directory)) {
+            try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+                long size = file.size();
+                if (size < 4) {
+                    continue;
+                }
+                MappedByteBuffer map = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                map.order(ByteOrder.BIG_ENDIAN);
+                if (map.getInt() != SEGMENT_MAGIC) {
+                    throw new IOException(segment + " is not a journal segment");
+                }
+
+                while (map.remaining() >= BATCH_HEADER_BYTES) {
+                    int batchStart = map.position();
+                    int magic = map.getInt();
+                    int length = map.getInt();
+                    int expected = map.getInt();
+                    if (magic != BATCH_MAGIC || length < 0 || length > map.remaining()) {
+                        map.position(batchStart);
+                        break;
+                    }
+                    ByteBuffer payload = map.slice(map.position(), length);
+                    checksum.reset();
+                    checksum.update(payload.duplicate());
+                    if ((int) checksum.getValue() != expected) {
+                        map.position(batchStart);
+                        break;
+                    }
+                    readRecords(payload, recovery);
+                    map.position(map.position() + length);
+                    recovery.batches++;
+                }
+                recovery.truncatedBytes += map.remaining();
+            }
+        }
+        recovery.readMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        recovery.games.values().parallelStream().forEach(Game::replay);
+        recovery.replayMillis = (System.nanoTime() - start) / 1_000_000;
+        return recovery;
+    }
+
+    private static void readRecords(ByteBuffer payload, Recovery recovery) {
+        while (payload.remaining() >= RECORD_BYTES) {
+            int gameId = payload.getInt();
+            int word = payload.getInt();
+            int type = word >>> 24;
+            int value = word & 0xFFFFFF;
+            recovery.records++;
+
+            switch (type) {
+                case TYPE_START -> {
+                    // A restarted id begins a new game
+                    Game game = new Game(gameId);
+                    if (value > 0) {
+                        byte[] fen = new byte[value];
+                        payload.get(fen);
+                        game.startFen = new String(fen, StandardCharsets.US_ASCII);
+                    }
+                    recovery.games.put(gameId, game);
+                }
+                case TYPE_MOVE -> recovery.games.computeIfAbsent(gameId, Game::new).addMove(value);
+                case TYPE_END -> {
+                    Game game = recovery.games.computeIfAbsent(gameId, Game::new);
+                    game.ended = true;
+                    game.result = value;
+                }
+                default -> throw new IllegalStateException("Unknown journal record type " + type);
+            }
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> {
+                            String name = f.getFileName().toString();
+                            return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                        })
+                        .sorted()
+                        .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        }
+    }
+
+    private static int segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Journals many concurrent random games, then recovers them and checks every final position.
+     * Usage: gameJournal [directory] [games] [plies per game] [threads]
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("chess-journal");
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        // Random legal games, generated up front so only journaling is timed
+        System.out.printf("Generating %,d games of up to %d plies...%n", games, plies);
+        randomGames sample = new randomGames(games, plies, 7);
+        int[][] gameMoves = sample.moves;
+        long totalMoves = sample.totalMoves;
+
+        // Each thread plays its share of the games in lockstep, one move per game per round
+        long start = System.nanoTime();
+        try (gameJournal journal = gameJournal.open(directory, 500)) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                final int first = t;
+                workers[t] = new Thread(() -> {
+                    try {
+                        for (int g = first; g < games; g += threads) {
+                            journal.startGame(g, null);
+                        }
+                        for (int ply = 0; ply < plies; ply++) {
+                            for (int g = first; g < games; g += threads) {
+                                if (ply < gameMoves[g].length) {
+                                    journal.appendMove(g, gameMoves[g][ply]);
+                                }
+                            }
+                        }
+                        for (int g = first; g < games; g += threads) {
+                            journal.endGame(g, RESULT_UNKNOWN);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long appendNanos = System.nanoTime() - start;
+            journal.sync();
+            long totalNanos = System.nanoTime() - start;
+
+            System.out.printf("Journaled %,d moves with %d threads: %.0f ns per move appended, %.2f s until durable%n",
+                              totalMoves, threads, (double) appendNanos / totalMoves, totalNanos / 1e9);
+            System.out.printf("%,d batches (%,d bytes), %.0f records per fsync, %.2f ms per fsync%n",
+                              journal.getBatches(), journal.getBytesWritten(),
+                              (double) (totalMoves + 2L * games) / Math.max(1, journal.getBatches()),
+                              journal.getSyncNanos() / 1e6 / Math.max(1, journal.getBatches()));
+        }
+
+        Recovery recovery = recover(directory);
+        int mismatches = 0;
+        for (int g = 0; g < games; g++) {
+            Game game = recovery.games.get(g);
+            if (game == null || game.corrupt || game.finalPosition.getHash() != sample.finalHashes[g]) {
+                mismatches++;
+            }
+        }
+        System.out.printf("Recovered %,d games (%,d records, %,d batches) in %d ms read + %d ms replay, " +
+                          "%d truncated bytes, %d mismatches%n",
+                          recovery.games.size(), recovery.records, recovery.batches,
+                          recovery.readMillis, recovery.replayMillis, recovery.truncatedBytes, mismatches);
+    }
+}
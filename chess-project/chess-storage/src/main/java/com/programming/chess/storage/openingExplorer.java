@@ -0,0 +1,363 @@
+package com.programming.chess.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.programming.chess.rules.convertToSAN;
+import com.programming.chess.rules.moveEncoding;
+import com.programming.chess.rules.position;
+
+/**
+ * Opening explorer: for every position reached in the first plies of an archive's games,
+ * the moves played from it with their game counts, results and average player rating.
+ *
+ * Each builder thread replays a range of games into its own explorerMap; the maps are
+ * merged and written as fixed-size records sorted by (unsigned position hash, move):
+ *   hash (8), move (4), games (4), white wins (4), draws (4), black wins (4), average rating (4).
+ * A query binary searches the mapped records for the first one with the position's hash
+ * and reads the run that follows, so statistics for any position come back in microseconds.
+ */
+public class openingExplorer implements AutoCloseable {
+
+    private static final int MAGIC = 0x43484F45;  // "CHOE"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int RECORD_BYTES = 32;
+
+    public static final int DEFAULT_MAX_PLY = 20;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer records;
+    private final int entryCount;
+    private final int maxPly;
+    private final int gameCount;
+
+    private openingExplorer(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException(file + " is too large to map at once");
+        }
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+            throw new IOException(file + " is not an opening explorer file");
+        }
+        entryCount = Math.toIntExact(map.getLong(8));
+        maxPly = map.getInt(16);
+        gameCount = map.getInt(20);
+        records = map;
+    }
+
+    /**
+     * Opens an explorer file for queries
+     */
+    public static openingExplorer open(Path file) throws IOException {
+        return new openingExplorer(file);
+    }
+
+    // QUERIES
+
+    /**
+     * Statistics for one move from one position
+     */
+    public static class MoveStats {
+        public final int move;
+        public final int games;
+        public final int whiteWins;
+        public final int draws;
+        public final int blackWins;
+        public final int averageRating;  // 0 if none of the games were rated
+
+        MoveStats(int move, int games, int whiteWins, int draws, int blackWins, int averageRating) {
+            this.move = move;
+            this.games = games;
+            this.whiteWins = whiteWins;
+            this.draws = draws;
+            this.blackWins = blackWins;
+            this.averageRating = averageRating;
+        }
+
+        /**
+         * @return Points scored by the given side per decided or drawn game, 0 to 1
+         */
+        public double score(int color) {
+            int finished = whiteWins + draws + blackWins;
+            if (finished == 0) {
+                return 0.5;
+            }
+            int wins = color == position.WHITE ? whiteWins : blackWins;
+            return (wins + draws * 0.5) / finished;
+        }
+    }
+
+    /**
+     * @return The moves played from a position, most popular first; empty if it was never reached
+     */
+    public List<MoveStats> moves(long hash) {
+        List<MoveStats> result = new ArrayList<>();
+        for (int i = firstRecord(hash); i < entryCount && recordHash(i) == hash; i++) {
+            int at = HEADER_BYTES + i * RECORD_BYTES;
+            result.add(new MoveStats(records.getInt(at + 8), records.getInt(at + 12), records.getInt(at + 16),
+                                     records.getInt(at + 20), records.getInt(at + 24), records.getInt(at + 28)));
+        }
+        result.sort((a, b) -> Integer.compare(b.games, a.games));
+        return result;
+    }
+
+    public List<MoveStats> moves(position pos) {
+        return moves(pos.getHash());
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    private int firstRecord(long hash) {
+        int lo = 0;
+        int hi = entryCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(recordHash(mid), hash) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private long recordHash(int index) {
+        return records.getLong(HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // BUILDING
+
+    /**
+     * Figures from one explorer build
+     */
+    public static class Stats {
+        public int games;
+        public long moves;
+        public int entries;
+        public long bytes;
+        public long replayMillis;
+        public long mergeMillis;
+        public long writeMillis;
+    }
+
+    /**
+     * Builds the explorer for the first maxPly plies of every game in an archive
+     */
+    public static Stats build(gameArchive archive, Path output, int threads, int maxPly)
+            throws IOException, InterruptedException {
+        Stats stats = new Stats();
+        stats.games = archive.getGameCount();
+
+        // Each thread builds a partial tree over its own range of games
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<explorerMap>> parts = new ArrayList<>();
+        try {
+            int games = archive.getGameCount();
+            for (int t = 0; t < threads; t++) {
+                int from = (int) ((long) games * t / threads);
+                int to = (int) ((long) games * (t + 1) / threads);
+                parts.add(pool.submit(() -> buildRange(archive, from, to, maxPly)));
+            }
+
+            List<explorerMap> maps = new ArrayList<>();
+            for (Future<explorerMap> part : parts) {
+                maps.add(part.get());
+            }
+            stats.replayMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Fold every partial tree into the largest one
+            start = System.nanoTime();
+            maps.sort((a, b) -> Integer.compare(b.size(), a.size()));
+            explorerMap tree = maps.get(0);
+            for (int i = 1; i < maps.size(); i++) {
+                tree.merge(maps.get(i));
+                maps.set(i, null);
+            }
+            stats.mergeMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            write(tree, output, maxPly, stats);
+            stats.writeMillis = (System.nanoTime() - start) / 1_000_000;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Explorer build failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        stats.bytes = Files.size(output);
+        return stats;
+    }
+
+    private static explorerMap buildRange(gameArchive archive, int from, int to, int maxPly) {
+        explorerMap map = new explorerMap(1 << 16);
+        String[] ratingTags = {"WhiteElo", "BlackElo"};
+        archive.scan(from, to, game -> {
+            int rating = 0;
+            int rated = 0;
+            for (String tag : ratingTags) {
+                String value = game.getTag(tag);
+                if (value != null) {
+                    try {
+                        rating += Integer.parseInt(value);
+                        rated++;
+                    } catch (NumberFormatException e) {
+                        // Ignore malformed ratings such as "?"
+                    }
+                }
+            }
+            int average = rated == 0 ? 0 : rating / rated;
+
+            int last = Math.min(game.getPlyCount(), maxPly);
+            for (int ply = 0; ply < last; ply++) {
+                map.add(game.getHash(ply), game.getMove(ply), game.result, average);
+            }
+        });
+        return map;
+    }
+
+    private static void write(explorerMap tree, Path output, int maxPly, Stats stats) throws IOException {
+        // Sort occupied slots by (hash, move), carrying the slot index in the low bits
+        long[] hashes = new long[tree.size()];
+        long[] keys = new long[tree.size()];
+        int n = 0;
+        for (int slot = 0; slot < tree.capacity(); slot++) {
+            if (tree.moves[slot] != moveEncoding.NONE) {
+                hashes[n] = tree.hashes[slot];
+                keys[n++] = (long) tree.moves[slot] << 32 | slot;
+            }
+        }
+        positionIndex.sort(hashes, keys, 0, n - 1);
+
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 4096);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(n).putInt(maxPly).putInt(stats.games);
+            for (int i = 0; i < n; i++) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    drain(out, buffer);
+                }
+                int slot = (int) keys[i];
+                int rated = tree.ratedGames[slot];
+                buffer.putLong(tree.hashes[slot]).putInt(tree.moves[slot]).putInt(tree.games[slot])
+                      .putInt(tree.whiteWins[slot]).putInt(tree.draws[slot]).putInt(tree.blackWins[slot])
+                      .putInt(rated == 0 ? 0 : (int) (tree.ratingSum[slot] / rated));
+                stats.moves += tree.games[slot];
+            }
+            drain(out, buffer);
+            out.force(true);
+        }
+        stats.entries = n;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Builds an explorer over an archive (a random one if none is given), then prints the
+     * start position's statistics and times queries.
+     * Usage: openingExplorer [archive file] [threads] [max ply]
+     */
+    public static void main(String[] args) throws Exception {
+        Path archivePath;
+        if (args.length > 0) {
+            archivePath = Path.of(args[0]);
+        } else {
+            archivePath = Files.createTempFile("games", ".cga");
+            int games = 200_000;
+            System.out.printf("Writing %,d random games to %s...%n", games, archivePath);
+            randomGames sample = new randomGames(games, 80, 11);
+            try (gameArchive.Writer writer = gameArchive.Writer.create(archivePath)) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                for (int g = 0; g < games; g++) {
+                    tags.put("WhiteElo", Integer.toString(sample.whiteElo[g]));
+                    tags.put("BlackElo", Integer.toString(sample.blackElo[g]));
+                    writer.addGame(tags, sample.results[g], sample.moves[g], sample.moves[g].length);
+                }
+            }
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxPly = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_PLY;
+        Path explorerPath = archivePath.resolveSibling(archivePath.getFileName() + ".oex");
+
+        try (gameArchive archive = gameArchive.open(archivePath)) {
+            Stats stats = build(archive, explorerPath, threads, maxPly);
+            System.out.printf("Built explorer over %,d games (%,d moves, first %d plies) with %d threads: " +
+                              "%d ms replay, %d ms merge, %d ms write%n",
+                              stats.games, stats.moves, maxPly, threads,
+                              stats.replayMillis, stats.mergeMillis, stats.writeMillis);
+            System.out.printf("%,d position/move entries, %,d bytes (%.1f bytes per move played)%n",
+                              stats.entries, stats.bytes, (double) stats.bytes / stats.moves);
+
+            try (openingExplorer explorer = open(explorerPath)) {
+                position start = position.startPosition();
+                int total = 0;
+                System.out.println("Start position:");
+                for (MoveStats move : explorer.moves(start)) {
+                    total += move.games;
+                    System.out.printf("  %-6s %,8d games  %5.1f%% white  avg %d%n",
+                                      convertToSAN.toSAN(start, move.move), move.games,
+                                      move.score(position.WHITE) * 100, move.averageRating);
+                }
+                System.out.printf("  %,d games in total%n", total);
+
+                // Query positions taken from random games within the explored plies
+                Random random = new Random(9);
+                gameArchive.Game game = new gameArchive.Game();
+                int queries = 20_000;
+                int empty = 0;
+                long nanos = 0;
+                for (int i = 0; i < queries; i++) {
+                    archive.read(random.nextInt(archive.getGameCount()), game);
+                    int last = Math.min(game.getPlyCount(), maxPly);
+                    if (last == 0) {
+                        continue;
+                    }
+                    long hash = game.getHash(random.nextInt(last));
+                    long begin = System.nanoTime();
+                    if (explorer.moves(hash).isEmpty()) {
+                        empty++;
+                    }
+                    nanos += System.nanoTime() - begin;
+                }
+                System.out.printf("%,d queries: %.1f us each, %d unexpectedly empty%n",
+                                  queries, nanos / 1e3 / queries, empty);
+            }
+        }
+    }
+}
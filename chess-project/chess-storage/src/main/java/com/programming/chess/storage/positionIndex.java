@@ -0,0 +1,650 @@
+package com.programming.chess.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.programming.chess.rules.position;
+
+/**
+ * On-disk index from position hash to every (game id, ply) of a game archive that
+ * reached the position.
+ *
+ * File layout:
+ *   header (48 bytes),
+ *   fanout table: for each value of the hash's top 16 bits, the first key with that prefix,
+ *   keys: (hash, posting list offset) pairs sorted by unsigned hash,
+ *   postings: per key a varint count followed by varint deltas of the sorted postings,
+ *     each posting packed as game id << 16 | ply.
+ * A lookup reads one fanout slot, binary searches a handful of keys and decodes one list.
+ *
+ * Building replays the archive on several threads. Each thread spills (hash, posting) pairs
+ * into 256 bucket files by the hash's top byte; the buckets are then sorted in parallel and
+ * written out in order. Only about one bucket per thread is sorted or waiting to be written
+ * at a time, so memory use is bounded by a few of the largest buckets, not the archive.
+ */
+public class positionIndex implements AutoCloseable {
+
+    private static final int MAGIC = 0x43485049;  // "CHPI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    private static final int FANOUT_BITS = 16;
+    private static final int FANOUT_SIZE = (1 << FANOUT_BITS) + 1;
+    private static final int KEY_BYTES = 16;
+    private static final int BUCKET_BITS = 8;
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final int SPILL_BUFFER_BYTES = 1 << 14;
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    // Postings pack the ply into the low bits; longer games are indexed up to this ply
+    static final int PLY_BITS = 16;
+    static final int MAX_PLY = (1 << PLY_BITS) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final IntBuffer fanout;
+    private final int keysStart;
+    private final long keyCount;
+    private final long postingCount;
+    private final long postingsOffset;
+    private final long postingsBytes;
+    private final MappedByteBuffer[] windows;
+
+    private positionIndex(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException(file + " is not a position index");
+        }
+        if (header.getInt() != VERSION) {
+            throw new IOException(file + " has an unsupported version");
+        }
+        keyCount = header.getLong();
+        postingCount = header.getLong();
+        postingsOffset = header.getLong();
+        postingsBytes = header.getLong();
+        if (postingsOffset > Integer.MAX_VALUE) {
+            throw new IOException(file + " has more keys than can be mapped at once");
+        }
+
+        table = channel.map(FileChannel.MapMode.READ_ONLY, 0, postingsOffset);
+        fanout = table.slice(HEADER_BYTES, FANOUT_SIZE * Integer.BYTES).asIntBuffer();
+        keysStart = HEADER_BYTES + FANOUT_SIZE * Integer.BYTES;
+
+        // Posting lists are read from plain 1 GB windows; the rare list crossing a window
+        // boundary is read with a positional read instead
+        windows = new MappedByteBuffer[(int) ((postingsBytes + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+        for (int w = 0; w < windows.length; w++) {
+            long start = w * WINDOW_BYTES;
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, postingsOffset + start,
+                                     Math.min(WINDOW_BYTES, postingsBytes - start));
+        }
+    }
+
+    /**
+     * Opens an index for lookups
+     */
+    public static positionIndex open(Path file) throws IOException {
+        return new positionIndex(file);
+    }
+
+    // LOOKUP
+
+    /**
+     * The games and plies at which one position occurred, ordered by game then ply
+     */
+    public static class Postings {
+        private final int[] games;
+        private final int[] plies;
+
+        Postings(int size) {
+            games = new int[size];
+            plies = new int[size];
+        }
+
+        public int size() {
+            return games.length;
+        }
+
+        public int getGame(int index) {
+            return games[index];
+        }
+
+        public int getPly(int index) {
+            return plies[index];
+        }
+    }
+
+    private static final Postings EMPTY = new Postings(0);
+
+    /**
+     * @return Every occurrence of the position with this hash, possibly none
+     */
+    public Postings lookup(long hash) throws IOException {
+        long key = findKey(hash);
+        if (key < 0) {
+            return EMPTY;
+        }
+        ByteBuffer list = postingList(key);
+        int[] cursor = new int[1];
+        int count = (int) readVarlong(list, cursor);
+        Postings postings = new Postings(count);
+        long packed = 0;
+        for (int i = 0; i < count; i++) {
+            packed += readVarlong(list, cursor);
+            postings.games[i] = (int) (packed >>> PLY_BITS);
+            postings.plies[i] = (int) (packed & MAX_PLY);
+        }
+        return postings;
+    }
+
+    /**
+     * @return How many times the position occurs, without decoding its postings
+     */
+    public int count(long hash) throws IOException {
+        long key = findKey(hash);
+        return key < 0 ? 0 : (int) readVarlong(postingList(key), new int[1]);
+    }
+
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    public long getPostingCount() {
+        return postingCount;
+    }
+
+    private long findKey(long hash) {
+        int prefix = (int) (hash >>> (64 - FANOUT_BITS));
+        int lo = fanout.get(prefix);
+        int hi = fanout.get(prefix + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Long.compareUnsigned(keyHash(mid), hash);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private long keyHash(long key) {
+        return table.getLong(keysStart + (int) (key * KEY_BYTES));
+    }
+
+    private long keyOffset(long key) {
+        return table.getLong(keysStart + (int) (key * KEY_BYTES) + Long.BYTES);
+    }
+
+    private ByteBuffer postingList(long key) throws IOException {
+        long start = keyOffset(key);
+        long end = key + 1 < keyCount ? keyOffset(key + 1) : postingsBytes;
+        int w = (int) (start / WINDOW_BYTES);
+        long inWindow = start - w * WINDOW_BYTES;
+        if (inWindow + (end - start) <= windows[w].capacity()) {
+            return windows[w].slice((int) inWindow, (int) (end - start));
+        }
+        ByteBuffer list = ByteBuffer.allocate((int) (end - start));
+        while (list.hasRemaining()) {
+            channel.read(list, postingsOffset + start + list.position());
+        }
+        return list.flip();
+    }
+
+    private static long readVarlong(ByteBuffer buffer, int[] cursor) {
+        int p = cursor[0];
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(p++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        cursor[0] = p;
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // BUILDING
+
+    /**
+     * Figures from one index build
+     */
+    public static class Stats {
+        public int games;
+        public long postings;
+        public long keys;
+        public long bytes;
+        public long replayMillis;
+        public long sortMillis;
+    }
+
+    /**
+     * Builds an index over every position in an archive
+     *
+     * @param threads Worker threads for both the replay and the sort
+     * @param maxPly Only positions up to this ply are indexed (at most MAX_PLY)
+     */
+    public static Stats build(gameArchive archive, Path output, int threads, int maxPly)
+            throws IOException, InterruptedException {
+        int plyLimit = Math.min(maxPly, MAX_PLY);
+        Stats stats = new Stats();
+        stats.games = archive.getGameCount();
+
+        Path spillDirectory = Files.createTempDirectory(output.toAbsolutePath().getParent(), "position-spill");
+        FileChannel[] spills = new FileChannel[BUCKETS];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int b = 0; b < BUCKETS; b++) {
+                spills[b] = FileChannel.open(spillDirectory.resolve("bucket-" + b),
+                                             StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                                             StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+
+            // Pass 1: replay every game and spill (hash, posting) pairs by bucket
+            long start = System.nanoTime();
+            int games = archive.getGameCount();
+            int chunks = threads * 4;
+            List<Future<?>> replays = new ArrayList<>();
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) ((long) games * c / chunks);
+                int to = (int) ((long) games * (c + 1) / chunks);
+                replays.add(pool.submit(() -> {
+                    spillRange(archive, from, to, plyLimit, spills);
+                    return null;
+                }));
+            }
+            awaitAll(replays);
+            stats.replayMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Pass 2: sort and encode buckets in parallel, write them in hash order
+            start = System.nanoTime();
+            writeIndex(output, pool, threads, spills, stats);
+            stats.sortMillis = (System.nanoTime() - start) / 1_000_000;
+            stats.bytes = Files.size(output);
+        } finally {
+            pool.shutdownNow();
+            for (FileChannel spill : spills) {
+                if (spill != null) {
+                    spill.close();
+                }
+            }
+            Files.deleteIfExists(spillDirectory);
+        }
+        return stats;
+    }
+
+    private static void spillRange(gameArchive archive, int from, int to, int plyLimit, FileChannel[] spills) {
+        ByteBuffer[] buffers = new ByteBuffer[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            buffers[b] = ByteBuffer.allocate(SPILL_BUFFER_BYTES);
+        }
+        archive.scan(from, to, game -> {
+            int last = Math.min(game.getPlyCount(), plyLimit);
+            for (int ply = 0; ply <= last; ply++) {
+                long hash = game.getHash(ply);
+                int b = (int) (hash >>> (64 - BUCKET_BITS));
+                ByteBuffer buffer = buffers[b];
+                if (!buffer.hasRemaining()) {
+                    spill(spills[b], buffer);
+                }
+                buffer.putLong(hash).putLong((long) game.id << PLY_BITS | ply);
+            }
+        });
+        for (int b = 0; b < BUCKETS; b++) {
+            spill(spills[b], buffers[b]);
+        }
+    }
+
+    private static void spill(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            synchronized (channel) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * One bucket's keys and postings, with offsets relative to the bucket's first list
+     */
+    private static class encodedBucket {
+        long[] hashes;
+        long[] offsets;
+        int keyCount;
+        long postingCount;
+        ByteArrayOutputStream postings = new ByteArrayOutputStream();
+    }
+
+    private static encodedBucket encodeBucket(FileChannel spill) throws IOException {
+        int entries = Math.toIntExact(spill.size() / KEY_BYTES);
+        long[] hashes = new long[entries];
+        long[] postings = new long[entries];
+        ByteBuffer buffer = ByteBuffer.allocate(SPILL_BUFFER_BYTES * 4);
+        long position = 0;
+        int n = 0;
+        while (n < entries) {
+            buffer.clear();
+            position += spill.read(buffer, position);
+            buffer.flip();
+            while (buffer.remaining() >= KEY_BYTES) {
+                hashes[n] = buffer.getLong();
+                postings[n++] = buffer.getLong();
+            }
+            position -= buffer.remaining();
+        }
+        spill.truncate(0); // Give the disk space back early
+
+        sort(hashes, postings, 0, entries - 1);
+
+        encodedBucket bucket = new encodedBucket();
+        bucket.hashes = new long[Math.max(16, entries / 4)];
+        bucket.offsets = new long[bucket.hashes.length];
+        bucket.postingCount = entries;
+        byte[] scratch = new byte[10];
+        int i = 0;
+        while (i < entries) {
+            int j = i + 1;
+            while (j < entries && hashes[j] == hashes[i]) {
+                j++;
+            }
+            if (bucket.keyCount == bucket.hashes.length) {
+                bucket.hashes = Arrays.copyOf(bucket.hashes, bucket.keyCount * 2);
+                bucket.offsets = Arrays.copyOf(bucket.offsets, bucket.keyCount * 2);
+            }
+            bucket.hashes[bucket.keyCount] = hashes[i];
+            bucket.offsets[bucket.keyCount++] = bucket.postings.size();
+
+            writeVarlong(bucket.postings, scratch, j - i);
+            long previous = 0;
+            for (int k = i; k < j; k++) {
+                writeVarlong(bucket.postings, scratch, postings[k] - previous);
+                previous = postings[k];
+            }
+            i = j;
+        }
+        return bucket;
+    }
+
+    /**
+     * Encodes the buckets on the pool, keeping one per thread in flight ahead of the bucket
+     * being written, and drops each one as soon as it is on disk
+     */
+    private static void writeIndex(Path output, ExecutorService pool, int threads, FileChannel[] spills, Stats stats)
+            throws IOException, InterruptedException {
+        Path keysFile = Files.createTempFile(output.toAbsolutePath().getParent(), "position-keys", ".tmp");
+        Path postingsFile = Files.createTempFile(output.toAbsolutePath().getParent(), "position-postings", ".tmp");
+        int[] fanoutCounts = new int[FANOUT_SIZE];
+        try (FileChannel keys = FileChannel.open(keysFile, StandardOpenOption.WRITE, StandardOpenOption.READ,
+                                                 StandardOpenOption.DELETE_ON_CLOSE);
+             FileChannel postings = FileChannel.open(postingsFile, StandardOpenOption.WRITE, StandardOpenOption.READ,
+                                                     StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer keyBuffer = ByteBuffer.allocate(KEY_BYTES * 4096);
+            OutputStream postingsOut = Channels.newOutputStream(postings);
+            List<Future<encodedBucket>> buckets = new ArrayList<>(BUCKETS);
+            long postingBase = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                while (buckets.size() < BUCKETS && buckets.size() <= b + threads) {
+                    FileChannel spill = spills[buckets.size()];
+                    buckets.add(pool.submit(() -> encodeBucket(spill)));
+                }
+                encodedBucket bucket = get(buckets.get(b));
+                buckets.set(b, null);
+                for (int k = 0; k < bucket.keyCount; k++) {
+                    if (!keyBuffer.hasRemaining()) {
+                        keyBuffer.flip();
+                        while (keyBuffer.hasRemaining()) {
+                            keys.write(keyBuffer);
+                        }
+                        keyBuffer.clear();
+                    }
+                    keyBuffer.putLong(bucket.hashes[k]).putLong(postingBase + bucket.offsets[k]);
+                    fanoutCounts[(int) (bucket.hashes[k] >>> (64 - FANOUT_BITS)) + 1]++;
+                }
+                bucket.postings.writeTo(postingsOut);
+                postingBase += bucket.postings.size();
+                stats.keys += bucket.keyCount;
+                stats.postings += bucket.postingCount;
+            }
+            keyBuffer.flip();
+            while (keyBuffer.hasRemaining()) {
+                keys.write(keyBuffer);
+            }
+
+            // Prefix sums turn per-prefix counts into the first key index of each prefix
+            for (int f = 1; f < FANOUT_SIZE; f++) {
+                fanoutCounts[f] += fanoutCounts[f - 1];
+            }
+
+            try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                long postingsOffset = HEADER_BYTES + (long) FANOUT_SIZE * Integer.BYTES + stats.keys * KEY_BYTES;
+                ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + FANOUT_SIZE * Integer.BYTES);
+                head.putInt(MAGIC).putInt(VERSION).putLong(stats.keys).putLong(stats.postings)
+                    .putLong(postingsOffset).putLong(postingBase).putInt(stats.games).putInt(0);
+                for (int count : fanoutCounts) {
+                    head.putInt(count);
+                }
+                head.flip();
+                while (head.hasRemaining()) {
+                    out.write(head);
+                }
+                transfer(keys, out);
+                transfer(postings, out);
+                out.force(true);
+            }
+        }
+    }
+
+    private static void transfer(FileChannel from, FileChannel to) throws IOException {
+        long size = from.size();
+        long done = 0;
+        while (done < size) {
+            done += from.transferTo(done, size - done, to);
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws IOException, InterruptedException {
+        for (Future<?> future : futures) {
+            get(future);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime && runtime.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Index build failed", cause);
+        }
+    }
+
+    private static void writeVarlong(ByteArrayOutputStream out, byte[] scratch, long value) {
+        int n = 0;
+        while ((value & ~0x7FL) != 0) {
+            scratch[n++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        scratch[n++] = (byte) value;
+        out.write(scratch, 0, n);
+    }
+
+    /**
+     * Sorts two parallel arrays by unsigned hash, then by the second value
+     */
+    static void sort(long[] hashes, long[] postings, int lo, int hi) {
+        while (hi - lo > 16) {
+            int mid = (lo + hi) >>> 1;
+            // Median of three as the pivot
+            if (less(hashes, postings, mid, lo)) {
+                swap(hashes, postings, mid, lo);
+            }
+            if (less(hashes, postings, hi, lo)) {
+                swap(hashes, postings, hi, lo);
+            }
+            if (less(hashes, postings, hi, mid)) {
+                swap(hashes, postings, hi, mid);
+            }
+            long pivotHash = hashes[mid];
+            long pivotPosting = postings[mid];
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (compare(hashes[i], postings[i], pivotHash, pivotPosting) < 0) {
+                    i++;
+                }
+                while (compare(hashes[j], postings[j], pivotHash, pivotPosting) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(hashes, postings, i++, j--);
+                }
+            }
+            // Recurse into the smaller half, loop on the larger one
+            if (j - lo < hi - i) {
+                sort(hashes, postings, lo, j);
+                lo = i;
+            } else {
+                sort(hashes, postings, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && less(hashes, postings, j, j - 1); j--) {
+                swap(hashes, postings, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(long hashA, long postingA, long hashB, long postingB) {
+        int c = Long.compareUnsigned(hashA, hashB);
+        return c != 0 ? c : Long.compare(postingA, postingB);
+    }
+
+    private static boolean less(long[] hashes, long[] postings, int a, int b) {
+        return compare(hashes[a], postings[a], hashes[b], postings[b]) < 0;
+    }
+
+    private static void swap(long[] hashes, long[] postings, int a, int b) {
+        long h = hashes[a];
+        hashes[a] = hashes[b];
+        hashes[b] = h;
+        long p = postings[a];
+        postings[a] = postings[b];
+        postings[b] = p;
+    }
+
+    /**
+     * Builds an index over an archive (a random one if none is given) and times lookups.
+     * Usage: positionIndex [archive file] [threads] [max ply]
+     */
+    public static void main(String[] args) throws Exception {
+        Path archivePath;
+        if (args.length > 0) {
+            archivePath = Path.of(args[0]);
+        } else {
+            archivePath = Files.createTempFile("games", ".cga");
+            int games = 100_000;
+            System.out.printf("Writing %,d random games to %s...%n", games, archivePath);
+            randomGames sample = new randomGames(games, 80, 11);
+            try (gameArchive.Writer writer = gameArchive.Writer.create(archivePath)) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                for (int g = 0; g < games; g++) {
+                    writer.addGame(tags, sample.results[g], sample.moves[g], sample.moves[g].length);
+                }
+            }
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxPly = args.length > 2 ? Integer.parseInt(args[2]) : MAX_PLY;
+        Path indexPath = archivePath.resolveSibling(archivePath.getFileName() + ".pidx");
+
+        try (gameArchive archive = gameArchive.open(archivePath)) {
+            Stats stats = build(archive, indexPath, threads, maxPly);
+            double seconds = (stats.replayMillis + stats.sortMillis) / 1000.0;
+            System.out.printf("Indexed %,d games, %,d positions (%,d distinct) with %d threads in %.2f s " +
+                              "(%d ms replay, %d ms sort): %,.0f positions/s%n",
+                              stats.games, stats.postings, stats.keys, threads, seconds,
+                              stats.replayMillis, stats.sortMillis, stats.postings / seconds);
+            System.out.printf("Index size %,d bytes: %.2f bytes per position, archive %,d bytes%n",
+                              stats.bytes, (double) stats.bytes / stats.postings, Files.size(archivePath));
+
+            try (positionIndex index = open(indexPath)) {
+                // Look up positions taken from random games and check each game is found at its ply
+                Random random = new Random(5);
+                gameArchive.Game game = new gameArchive.Game();
+                int lookups = 20_000;
+                int missing = 0;
+                long postingsRead = 0;
+                long lookupNanos = 0;
+                for (int i = 0; i < lookups; i++) {
+                    archive.read(random.nextInt(archive.getGameCount()), game);
+                    int ply = random.nextInt(Math.min(game.getPlyCount(), maxPly) + 1);
+                    long hash = game.getHash(ply);
+
+                    long start = System.nanoTime();
+                    Postings postings = index.lookup(hash);
+                    lookupNanos += System.nanoTime() - start;
+
+                    postingsRead += postings.size();
+                    boolean found = false;
+                    for (int p = 0; p < postings.size() && !found; p++) {
+                        found = postings.getGame(p) == game.id && postings.getPly(p) == ply;
+                    }
+                    if (!found) {
+                        missing++;
+                    }
+                }
+                System.out.printf("%,d lookups: %.1f us each, %.1f postings per lookup, %d missing%n",
+                                  lookups, lookupNanos / 1e3 / lookups, (double) postingsRead / lookups, missing);
+
+                long startHash = position.startPosition().getHash();
+                long start = System.nanoTime();
+                int startCount = index.count(startHash);
+                System.out.printf("Start position occurs %,d times (count in %.1f us)%n",
+                                  startCount, (System.nanoTime() - start) / 1e3);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.programming.chess.storage;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.programming.chess.rules.moveGenerator;
+import com.programming.chess.rules.position;
+
+/**
+ * Reproducible random legal games for the storage benchmarks.
+ *
+ * The first few plies are drawn from only the first few generated moves, so games share
+ * openings the way real databases do; after that every legal move is equally likely.
+ */
+class randomGames {
+
+    private static final int OPENING_PLIES = 8;
+    private static final int OPENING_CHOICES = 3;
+
+    final int[][] moves;
+    final long[] finalHashes;
+    final int[] results;
+    final int[] whiteElo;
+    final int[] blackElo;
+    final long totalMoves;
+
+    randomGames(int games, int maxPlies, long seed) {
+        moves = new int[games][];
+        finalHashes = new long[games];
+        results = new int[games];
+        whiteElo = new int[games];
+        blackElo = new int[games];
+
+        int[] buffer = new int[moveGenerator.MAX_MOVES];
+        int[] line = new int[maxPlies];
+        Random random = new Random(seed);
+        long total = 0;
+        for (int g = 0; g < games; g++) {
+            position pos = position.startPosition();
+            int count = 0;
+            int legal = 0;
+            while (count < maxPlies) {
+                legal = moveGenerator.generateLegalMoves(pos, buffer);
+                if (legal == 0) {
+                    break;
+                }
+                int choices = count < OPENING_PLIES ? Math.min(legal, OPENING_CHOICES) : legal;
+                line[count] = buffer[random.nextInt(choices)];
+                pos.makeMove(line[count++]);
+            }
+            moves[g] = Arrays.copyOf(line, count);
+            finalHashes[g] = pos.getHash();
+            total += count;
+
+            if (legal == 0) {
+                // Checkmate or stalemate decides the game, otherwise pick a plausible result
+                results[g] = !pos.inCheck() ? gameJournal.RESULT_DRAW
+                           : pos.getSideToMove() == position.WHITE ? gameJournal.RESULT_BLACK_WINS
+                           : gameJournal.RESULT_WHITE_WINS;
+            } else {
+                results[g] = 1 + random.nextInt(3);
+            }
+            whiteElo[g] = 1200 + random.nextInt(1600);
+            blackElo[g] = 1200 + random.nextInt(1600);
+        }
+        totalMoves = total;
+    }
+}